@@ -0,0 +1,134 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+// Public because the code JMH generates in the jmh_generated package reads the @Param types.
+public final class BenchmarkKeys {
+
+  // Must be a power of 2 so inputs can be cycled with a mask.
+  static final int INPUT_COUNT = 1024;
+
+  private static final int MAX_MISS_ATTEMPTS = 100;
+  private static final int MAX_EXTRA_CHARS = 8;
+
+  public enum KeyLengths {
+    SHORT(1, 8),
+    MEDIUM(8, 32),
+    LONG(32, 128);
+
+    private final int min;
+    private final int max;
+
+    KeyLengths(final int min, final int max) {
+      this.min = min;
+      this.max = max;
+    }
+
+    private int next(final Random random) {
+      return min + random.nextInt(max - min + 1);
+    }
+  }
+
+  static char minChar(final String alphabet) {
+    return alphabet.charAt(0);
+  }
+
+  static char maxChar(final String alphabet) {
+    return alphabet.charAt(alphabet.length() - 1);
+  }
+
+  static Map<String, Integer> newKeys(
+      final Random random, final int keyCount, final KeyLengths keyLengths, final String alphabet) {
+
+    final Map<String, Integer> keys = new HashMap<>(keyCount * 2);
+    final long maxAttempts = keyCount * 10L;
+
+    for (long attempts = 0; keys.size() < keyCount; attempts++) {
+
+      if (attempts == maxAttempts) {
+        throw new IllegalArgumentException(
+            "Unable to generate "
+                + keyCount
+                + " unique "
+                + keyLengths
+                + " keys from alphabet "
+                + alphabet);
+      }
+
+      keys.putIfAbsent(randomString(random, keyLengths.next(random), alphabet), keys.size());
+    }
+
+    return keys;
+  }
+
+  // Hits extend a random key with extra chars so that longest matches may need to search past the
+  // first match. Misses are random strings which match no key whenever one can be found.
+  static String[] newInputs(
+      final Random random,
+      final Map<String, Integer> keys,
+      final double hitRatio,
+      final KeyLengths keyLengths,
+      final String alphabet,
+      final boolean forPrefix,
+      final Predicate<String> matchesAny) {
+
+    final String[] keyStrings = keys.keySet().toArray(new String[0]);
+    final String[] inputs = new String[INPUT_COUNT];
+
+    for (int i = 0; i < inputs.length; i++) {
+
+      if (random.nextDouble() < hitRatio) {
+
+        final String key = keyStrings[random.nextInt(keyStrings.length)];
+        final String extraChars =
+            randomString(random, random.nextInt(MAX_EXTRA_CHARS + 1), alphabet);
+        inputs[i] = forPrefix ? key + extraChars : extraChars + key;
+        continue;
+      }
+
+      String input;
+      int attempts = 0;
+
+      do {
+        input = randomString(random, keyLengths.next(random), alphabet);
+      } while (matchesAny.test(input) && ++attempts < MAX_MISS_ATTEMPTS);
+
+      inputs[i] = input;
+    }
+
+    return inputs;
+  }
+
+  private static String randomString(final Random random, final int length, final String alphabet) {
+
+    final char min = minChar(alphabet);
+    final int width = maxChar(alphabet) - min + 1;
+    final char[] chars = new char[length];
+
+    for (int i = 0; i < length; i++) {
+      chars[i] = (char) (min + random.nextInt(width));
+    }
+
+    return new String(chars);
+  }
+
+  private BenchmarkKeys() {}
+}
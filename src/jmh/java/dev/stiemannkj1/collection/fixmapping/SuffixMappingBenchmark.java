@@ -0,0 +1,138 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.collection.fixmapping.FixMappings.ImmutableSuffixMapping;
+import dev.stiemannkj1.util.Pair;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The full parameter matrix takes hours and the limited char array trie needs a very large heap
+// for a million keys over a wide alphabet, so narrow the matrix with -p when running.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SuffixMappingBenchmark {
+
+  @Param({
+    "binarySearchArray",
+    "eytzingerBinarySearchArray",
+    "limitedCharArrayTrie",
+    "sparseLimitedCharArrayTrie",
+    "unicodeTrie",
+    "radixTrie",
+    "doubleArrayTrie",
+    "hashed"
+  })
+  public String engine;
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int keyCount;
+
+  @Param({"SHORT", "MEDIUM", "LONG"})
+  public BenchmarkKeys.KeyLengths keyLengths;
+
+  @Param({"az", "!~"})
+  public String alphabet;
+
+  @Param({"0.0", "0.5", "1.0"})
+  public double hitRatio;
+
+  private ImmutableSuffixMapping<Integer> suffixMapping;
+  private String[] inputs;
+  private int index;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+
+    final Random random = new Random(keyCount);
+    final Map<String, Integer> suffixes =
+        BenchmarkKeys.newKeys(random, keyCount, keyLengths, alphabet);
+
+    switch (engine) {
+      case "binarySearchArray":
+        suffixMapping = FixMappings.binarySearchArraySuffixMapping(suffixes);
+        break;
+      case "eytzingerBinarySearchArray":
+        suffixMapping = FixMappings.eytzingerBinarySearchArraySuffixMapping(suffixes);
+        break;
+      case "limitedCharArrayTrie":
+        suffixMapping =
+            FixMappings.limitedCharArrayTrieSuffixMapping(
+                BenchmarkKeys.minChar(alphabet), BenchmarkKeys.maxChar(alphabet), suffixes);
+        break;
+      case "sparseLimitedCharArrayTrie":
+        suffixMapping =
+            FixMappings.sparseLimitedCharArrayTrieSuffixMapping(
+                BenchmarkKeys.minChar(alphabet), BenchmarkKeys.maxChar(alphabet), suffixes);
+        break;
+      case "unicodeTrie":
+        suffixMapping = FixMappings.unicodeTrieSuffixMapping(suffixes);
+        break;
+      case "radixTrie":
+        suffixMapping = FixMappings.radixTrieSuffixMapping(suffixes);
+        break;
+      case "doubleArrayTrie":
+        suffixMapping = FixMappings.doubleArrayTrieSuffixMapping(suffixes);
+        break;
+      case "hashed":
+        suffixMapping = FixMappings.hashedSuffixMapping(suffixes);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+
+    inputs =
+        BenchmarkKeys.newInputs(
+            random,
+            suffixes,
+            hitRatio,
+            keyLengths,
+            alphabet,
+            false,
+            suffixMapping::matchesAnySuffix);
+  }
+
+  private String nextInput() {
+    return inputs[index++ & (BenchmarkKeys.INPUT_COUNT - 1)];
+  }
+
+  @Benchmark
+  public boolean firstMatch() {
+    return suffixMapping.matchesAnySuffix(nextInput());
+  }
+
+  @Benchmark
+  public Pair<String, Integer> longestMatch() {
+    return suffixMapping.keyAndValueForSuffix(nextInput());
+  }
+}
@@ -0,0 +1,278 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import dev.stiemannkj1.util.Pair;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+class AhoCorasickFixMapping<T> implements FixMappings.FixMapping<T> {
+
+  private static final char[] EMPTY_CHARS = new char[0];
+
+  private static final class Node<T> {
+    private char[] chars = EMPTY_CHARS;
+    private Node<T>[] nodes;
+    private Node<T> failure;
+    // The nearest node on the failure chain which matches a key.
+    private Node<T> output;
+    private Pair<String, T> keyValuePair;
+
+    private boolean isMatch() {
+      return this.keyValuePair != null;
+    }
+
+    private Node<T> child(final char char_) {
+
+      final int childIndex = Arrays.binarySearch(chars, char_);
+
+      if (childIndex < 0) {
+        return null;
+      }
+
+      return nodes[childIndex];
+    }
+  }
+
+  private final Node<T> root;
+  private final int minInfixLength;
+
+  AhoCorasickFixMapping(final Map<String, T> fixes) {
+
+    if (fixes.isEmpty()) {
+      throw new IllegalArgumentException("Infixes cannot be empty.");
+    }
+
+    this.root = new Node<>();
+
+    int minLength = Integer.MAX_VALUE;
+
+    for (final Map.Entry<String, T> fix : fixes.entrySet()) {
+
+      if (fix == null || fix.getKey() == null) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      final String fixString = fix.getKey();
+      final int length = fixString.length();
+
+      if (length == 0) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      if (length < minLength) {
+        minLength = length;
+      }
+
+      Node<T> currentNode = root;
+
+      for (int i = 0; i < length; i++) {
+        currentNode = getOrAddChild(currentNode, fixString.charAt(i));
+      }
+
+      if (currentNode.isMatch()) {
+        throw new IllegalArgumentException("Duplicate keys found for: " + fixString);
+      }
+
+      currentNode.keyValuePair = Pair.fromEntry(fix);
+    }
+
+    this.minInfixLength = minLength;
+
+    linkFailures(root);
+  }
+
+  private static <T> Node<T> getOrAddChild(final Node<T> parent, final char char_) {
+
+    int childIndex = Arrays.binarySearch(parent.chars, char_);
+
+    if (childIndex >= 0) {
+      return parent.nodes[childIndex];
+    }
+
+    childIndex = -childIndex - 1;
+
+    final int length = parent.chars.length;
+    final char[] chars = new char[length + 1];
+    @SuppressWarnings("unchecked")
+    final Node<T>[] nodes = new Node[length + 1];
+
+    System.arraycopy(parent.chars, 0, chars, 0, childIndex);
+    System.arraycopy(parent.chars, childIndex, chars, childIndex + 1, length - childIndex);
+    chars[childIndex] = char_;
+
+    if (parent.nodes != null) {
+      System.arraycopy(parent.nodes, 0, nodes, 0, childIndex);
+      System.arraycopy(parent.nodes, childIndex, nodes, childIndex + 1, length - childIndex);
+    }
+
+    final Node<T> child = new Node<>();
+    nodes[childIndex] = child;
+
+    parent.chars = chars;
+    parent.nodes = nodes;
+
+    return child;
+  }
+
+  private static <T> void linkFailures(final Node<T> root) {
+
+    // Failures always point to shallower nodes, so link them breadth first.
+    final ArrayDeque<Node<T>> queue = new ArrayDeque<>();
+    root.failure = root;
+    queue.add(root);
+
+    while (!queue.isEmpty()) {
+
+      final Node<T> parent = queue.remove();
+
+      for (int i = 0; i < parent.chars.length; i++) {
+
+        final char char_ = parent.chars[i];
+        final Node<T> child = parent.nodes[i];
+
+        if (parent == root) {
+          child.failure = root;
+        } else {
+
+          Node<T> failure = parent.failure;
+
+          while (failure != root && failure.child(char_) == null) {
+            failure = failure.failure;
+          }
+
+          final Node<T> failureChild = failure.child(char_);
+          child.failure = failureChild != null ? failureChild : root;
+        }
+
+        child.output = child.failure.isMatch() ? child.failure : child.failure.output;
+        queue.add(child);
+      }
+    }
+  }
+
+  private Node<T> nextNode(
+      final Node<T> node, final char char_, final AtomicLong debugSearchSteps) {
+
+    Node<T> currentNode = node;
+    Node<T> child;
+
+    while ((child = currentNode.child(char_)) == null && currentNode != root) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      currentNode = currentNode.failure;
+    }
+
+    return child != null ? child : root;
+  }
+
+  // The first match is the key which ends earliest, and the longest match is the earliest of the
+  // longest keys.
+  @VisibleForTesting
+  @Override
+  public Pair<String, T> getKeyAndValue(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    if (string == null) {
+      return null;
+    }
+
+    final int length = string.length();
+
+    if (length < minInfixLength) {
+      return null;
+    }
+
+    Node<T> currentNode = root;
+    Pair<String, T> longestMatch = null;
+
+    for (int i = 0; i < length; i++) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      currentNode = nextNode(currentNode, string.charAt(i), debugSearchSteps);
+
+      // A node's own key is always longer than any key on its output chain.
+      final Node<T> matchNode = currentNode.isMatch() ? currentNode : currentNode.output;
+
+      if (matchNode == null) {
+        continue;
+      }
+
+      if (!getLongestMatch) {
+        return matchNode.keyValuePair;
+      }
+
+      if (longestMatch == null
+          || longestMatch.first.length() < matchNode.keyValuePair.first.length()) {
+        longestMatch = matchNode.keyValuePair;
+      }
+    }
+
+    return longestMatch;
+  }
+
+  // Matches are paired with their start index and ordered by end index, then longest first.
+  List<Pair<Integer, Pair<String, T>>> getAllKeysAndValues(final CharSequence string) {
+
+    if (string == null) {
+      return Collections.emptyList();
+    }
+
+    final int length = string.length();
+
+    if (length < minInfixLength) {
+      return Collections.emptyList();
+    }
+
+    Node<T> currentNode = root;
+    List<Pair<Integer, Pair<String, T>>> matches = null;
+
+    for (int i = 0; i < length; i++) {
+
+      currentNode = nextNode(currentNode, string.charAt(i), null);
+
+      for (Node<T> matchNode = currentNode.isMatch() ? currentNode : currentNode.output;
+          matchNode != null;
+          matchNode = matchNode.output) {
+
+        if (matches == null) {
+          matches = new ArrayList<>();
+        }
+
+        final Pair<String, T> keyValuePair = matchNode.keyValuePair;
+        matches.add(Pair.of(i - keyValuePair.first.length() + 1, keyValuePair));
+      }
+    }
+
+    if (matches == null) {
+      return Collections.emptyList();
+    }
+
+    return matches;
+  }
+}
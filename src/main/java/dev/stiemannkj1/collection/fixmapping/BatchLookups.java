@@ -0,0 +1,142 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import dev.stiemannkj1.util.Pair;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+final class BatchLookups {
+
+  // Ranges this small are cheaper to look up directly than to split across tasks.
+  @VisibleForTesting static final int MIN_FORK_LENGTH = 1024;
+
+  @FunctionalInterface
+  interface RangeLookup {
+    void lookUp(
+        final CharSequence[] strings, final Object[] keysAndValues, final int start, final int end);
+  }
+
+  static RangeLookup rangeLookup(
+      final Object mapping, final Function<CharSequence, ? extends Pair<String, ?>> lookup) {
+
+    if (mapping instanceof FixMappings.FixMapping) {
+      final FixMappings.FixMapping<?> fixMapping = (FixMappings.FixMapping<?>) mapping;
+      return (strings, keysAndValues, start, end) ->
+          fixMapping.getKeysAndValues(true, strings, keysAndValues, start, end);
+    }
+
+    return (strings, keysAndValues, start, end) -> {
+      for (int i = start; i < end; i++) {
+        keysAndValues[i] = lookup.apply(strings[i]);
+      }
+    };
+  }
+
+  static void lookUp(
+      final RangeLookup rangeLookup,
+      final CharSequence[] strings,
+      final Object[] results,
+      final boolean valuesOnly,
+      final ForkJoinPool pool) {
+
+    if (results.length < strings.length) {
+      throw new IllegalArgumentException(
+          "Results length "
+              + results.length
+              + " must be at least the strings length "
+              + strings.length
+              + ".");
+    }
+
+    if (pool == null || strings.length <= MIN_FORK_LENGTH) {
+      lookUpRange(rangeLookup, strings, results, valuesOnly, 0, strings.length);
+      return;
+    }
+
+    pool.invoke(new LookupTask(rangeLookup, strings, results, valuesOnly, 0, strings.length));
+  }
+
+  private static void lookUpRange(
+      final RangeLookup rangeLookup,
+      final CharSequence[] strings,
+      final Object[] results,
+      final boolean valuesOnly,
+      final int start,
+      final int end) {
+
+    rangeLookup.lookUp(strings, results, start, end);
+
+    if (!valuesOnly) {
+      return;
+    }
+
+    for (int i = start; i < end; i++) {
+
+      final Object keyAndValue = results[i];
+
+      if (keyAndValue != null) {
+        results[i] = ((Pair<?, ?>) keyAndValue).second;
+      }
+    }
+  }
+
+  private static final class LookupTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final RangeLookup rangeLookup;
+    private final CharSequence[] strings;
+    private final Object[] results;
+    private final boolean valuesOnly;
+    private final int start;
+    private final int end;
+
+    private LookupTask(
+        final RangeLookup rangeLookup,
+        final CharSequence[] strings,
+        final Object[] results,
+        final boolean valuesOnly,
+        final int start,
+        final int end) {
+      this.rangeLookup = rangeLookup;
+      this.strings = strings;
+      this.results = results;
+      this.valuesOnly = valuesOnly;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+
+      if ((end - start) <= MIN_FORK_LENGTH) {
+        lookUpRange(rangeLookup, strings, results, valuesOnly, start, end);
+        return;
+      }
+
+      final int middle = (start + end) >>> 1;
+
+      invokeAll(
+          new LookupTask(rangeLookup, strings, results, valuesOnly, start, middle),
+          new LookupTask(rangeLookup, strings, results, valuesOnly, middle, end));
+    }
+  }
+
+  private BatchLookups() {}
+}
@@ -17,21 +17,64 @@ package dev.stiemannkj1.collection.fixmapping;
 
 import dev.stiemannkj1.annotation.VisibleForTesting;
 import dev.stiemannkj1.util.Pair;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
-class BinarySearchArrayFixMapping<T> implements FixMappings.FixMapping<T> {
+class BinarySearchArrayFixMapping<T> implements FixMappings.IndexedFixMapping<T> {
 
-  private final List<Pair<String, T>> sortedFixes;
+  private static final int NO_FIX = NO_KEY;
+  // The number of leading chars packed into each Eytzinger head.
+  private static final int HEAD_CHARS = Long.SIZE / Character.SIZE;
+  // Comparisons of keys at least this long are dominated by reading chars, so such keys are also
+  // packed into one array that Mismatches can compare many chars at a time.
+  @VisibleForTesting static final int MIN_PACKED_KEY_LENGTH = 64;
+
+  // Reused by each thread to hold the string in search order, so lookups don't allocate. Each
+  // mapping only copies and grows it up to its longest key, since no comparison reads further.
+  @VisibleForTesting
+  static final ThreadLocal<char[]> SEARCH_CHARS = ThreadLocal.withInitial(() -> new char[0]);
+
+  // Sorted by comparing chars in search order, so suffixes are compared from their last char.
+  private final Pair<String, T>[] sortedFixes;
+  // The index of the longest other key that each key starts with (or ends with for suffixes).
+  // Every key matching a string is on the parent chain of the closest key sorted before it.
+  private final int[] parents;
+  // The index of the shortest key on each key's parent chain.
+  private final int[] roots;
+  // Only used by Eytzinger layouts, which store the sorted indexes in breadth first order of the
+  // implicit binary search tree, starting at index 1. Searches then read the top levels of the
+  // tree from the same few cache lines.
+  private final int[] eytzingerIndexes;
+  // The first chars of each key in search order, packed in the Eytzinger order, so most probes
+  // compare a long instead of reading the key.
+  private final long[] eytzingerHeads;
+  // Only used when some key is at least MIN_PACKED_KEY_LENGTH long. Holds the keys' chars in search
+  // order, with each key's chars starting at its offset.
+  private final char[] keyChars;
+  private final int[] keyOffsets;
+  private final int maxKeyLength;
   private final int minPrefixLength;
   private final boolean forPrefix;
 
   BinarySearchArrayFixMapping(final boolean forPrefix, final Map<String, T> unsortedFixes) {
+    this(forPrefix, false, unsortedFixes);
+  }
 
-    final int size = unsortedFixes.size();
+  BinarySearchArrayFixMapping(
+      final boolean forPrefix, final boolean eytzinger, final Map<String, T> unsortedFixes) {
+    this(forPrefix, eytzinger, toFixes(unsortedFixes), false);
+  }
+
+  // Sorted fixes must already be in search order. The array is kept rather than copied.
+  BinarySearchArrayFixMapping(
+      final boolean forPrefix,
+      final boolean eytzinger,
+      final Pair<String, T>[] fixes,
+      final boolean sorted) {
+
+    final int size = fixes.length;
 
     if (size == 0) {
       throw new IllegalArgumentException(
@@ -39,15 +82,16 @@ class BinarySearchArrayFixMapping<T> implements FixMappings.FixMapping<T> {
     }
 
     int minPrefixLength = Integer.MAX_VALUE;
-    final List<Pair<String, T>> sortedFixes = new ArrayList<>(size);
+    int maxLength = 0;
+    long charCount = 0;
 
-    for (final Map.Entry<String, T> entry : unsortedFixes.entrySet()) {
+    for (final Pair<String, T> fix : fixes) {
 
-      if (entry == null || entry.getKey() == null) {
+      if (fix.first == null) {
         throw new IllegalArgumentException("Empty keys are not allowed.");
       }
 
-      final int length = entry.getKey().length();
+      final int length = fix.first.length();
 
       if (length == 0) {
         throw new IllegalArgumentException("Empty keys are not allowed.");
@@ -57,129 +101,454 @@ class BinarySearchArrayFixMapping<T> implements FixMappings.FixMapping<T> {
         minPrefixLength = length;
       }
 
-      final Pair<String, T> fix = Pair.fromEntry(entry);
+      maxLength = Math.max(maxLength, length);
+      charCount += length;
+    }
+
+    if (!sorted) {
+      Arrays.sort(fixes, (pair1, pair2) -> compareFixes(forPrefix, pair1.first, pair2.first));
+    }
+
+    final int[] parents = new int[size];
+    final int[] roots = new int[size];
+    // The keys which the current key starts with, shortest first.
+    final int[] chain = new int[size];
+    int chainLength = 0;
+
+    for (int i = 0; i < size; i++) {
+
+      final String fix = fixes[i].first;
+
+      if (i > 0 && fix.equals(fixes[i - 1].first)) {
+        throw new IllegalArgumentException("Duplicate keys found for: " + fix);
+      }
+
+      while (chainLength > 0 && !isFixOf(forPrefix, fixes[chain[chainLength - 1]].first, fix)) {
+        chainLength--;
+      }
+
+      if (chainLength == 0) {
+        parents[i] = NO_FIX;
+        roots[i] = i;
+      } else {
+        parents[i] = chain[chainLength - 1];
+        roots[i] = roots[parents[i]];
+      }
+
+      chain[chainLength++] = i;
+    }
 
-      sortedFixes.add(fix);
+    this.sortedFixes = fixes;
+    this.parents = parents;
+    this.roots = roots;
+
+    if (eytzinger) {
+      this.eytzingerIndexes = new int[size + 1];
+      this.eytzingerHeads = new long[size + 1];
+      toEytzinger(forPrefix, this.sortedFixes, eytzingerIndexes, eytzingerHeads, 0, 1);
+    } else {
+      this.eytzingerIndexes = null;
+      this.eytzingerHeads = null;
     }
 
-    sortedFixes.sort(
-        (pair1, pair2) -> {
-          final int compareTo =
-              compareFix(
-                  forPrefix,
-                  pair1.first.length() > pair2.first.length(),
-                  pair2.first,
-                  pair1.first,
-                  null);
+    if (maxLength >= MIN_PACKED_KEY_LENGTH && charCount <= Integer.MAX_VALUE) {
+
+      this.keyChars = new char[(int) charCount];
+      this.keyOffsets = new int[size + 1];
 
-          if (pair1.first.length() == pair2.first.length() && compareTo == 0) {
-            throw new IllegalArgumentException("Duplicate keys found for: " + pair1.first);
-          }
+      for (int i = 0; i < size; i++) {
 
-          return compareTo;
-        });
+        final String fix = this.sortedFixes[i].first;
+        final int offset = keyOffsets[i];
 
-    this.sortedFixes = Collections.unmodifiableList(sortedFixes);
+        for (int j = 0; j < fix.length(); j++) {
+          keyChars[offset + j] = searchCharAt(forPrefix, fix, j);
+        }
+
+        keyOffsets[i + 1] = offset + fix.length();
+      }
+    } else {
+      this.keyChars = null;
+      this.keyOffsets = null;
+    }
+
+    this.maxKeyLength = maxLength;
     this.minPrefixLength = minPrefixLength;
     this.forPrefix = forPrefix;
   }
 
+  @SuppressWarnings("unchecked")
+  private static <T> Pair<String, T>[] toFixes(final Map<String, T> unsortedFixes) {
+
+    final Pair<String, T>[] fixes = new Pair[unsortedFixes.size()];
+    int i = 0;
+
+    for (final Map.Entry<String, T> entry : unsortedFixes.entrySet()) {
+
+      if (entry == null) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      fixes[i++] = Pair.fromEntry(entry);
+    }
+
+    return fixes;
+  }
+
   @VisibleForTesting
   @Override
   public Pair<String, T> getKeyAndValue(
-      final boolean getLongestMatch, final String string, final AtomicLong debugSearchSteps) {
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
 
-    if (string == null) {
+    final int fixIndex = getKeyIndex(getLongestMatch, string, debugSearchSteps);
+
+    if (fixIndex == NO_FIX) {
       return null;
     }
 
+    return sortedFixes[fixIndex];
+  }
+
+  @Override
+  public int getKeyIndex(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    if (string == null) {
+      return NO_FIX;
+    }
+
     if (string.length() < minPrefixLength) {
-      return null;
+      return NO_FIX;
+    }
+
+    return getFixIndex(getLongestMatch, string, debugSearchSteps);
+  }
+
+  @Override
+  public int size() {
+    return sortedFixes.length;
+  }
+
+  @Override
+  public Pair<String, T> keyAndValueAt(final int keyIndex) {
+    return sortedFixes[keyIndex];
+  }
+
+  int parentAt(final int keyIndex) {
+    return parents[keyIndex];
+  }
+
+  void forEachKeyAndValue(
+      final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+    if (string == null) {
+      return;
+    }
+
+    if (string.length() < minPrefixLength) {
+      return;
     }
 
-    int max = sortedFixes.size() - 1;
-    int min = 0;
-    int bisect;
-    Pair<String, T> lastMatch = null;
+    final int longestFixIndex = getFixIndex(true, string, null);
+    int depth = 0;
+
+    for (int i = longestFixIndex; i != NO_FIX; i = parents[i]) {
+      depth++;
+    }
 
-    while (min <= max) {
+    // Parents only link to shorter keys, so walk the chain again for each key rather than
+    // allocating a stack to emit them shortest first.
+    for (int remaining = depth - 1; remaining >= 0; remaining--) {
 
-      // TODO change to bitwise division
-      bisect = ((max - min) / 2) + min;
+      int fixIndex = longestFixIndex;
+
+      for (int i = 0; i < remaining; i++) {
+        fixIndex = parents[fixIndex];
+      }
+
+      consumer.accept(sortedFixes[fixIndex].first, sortedFixes[fixIndex].second);
+    }
+  }
 
-      final Pair<String, T> fixPair = sortedFixes.get(bisect);
-      final String fix = fixPair.first;
-      int compareTo =
-          compareFix(forPrefix, fix.length() > string.length(), string, fix, debugSearchSteps);
+  private int getFixIndex(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
 
-      if (compareTo == 0) {
+    final char[] stringChars = keyChars == null ? null : toSearchChars(string);
+    int floor = NO_FIX;
+    int floorSharedLength = 0;
 
-        if (fix.length() == string.length()) {
-          return fixPair;
-        } else if (fix.length() < string.length()) {
+    if (eytzingerIndexes != null) {
 
-          if (!getLongestMatch) {
-            return fixPair;
-          }
+      final long stringHead = head(forPrefix, string);
+      final int floorK = getEytzingerFloor(stringHead, string, stringChars, debugSearchSteps);
 
-          lastMatch = fixPair;
-          compareTo = -1;
+      if (floorK != 0) {
+
+        floor = eytzingerIndexes[floorK];
+
+        final String fix = sortedFixes[floor].first;
+        final int sharedHeadLength =
+            sharedHeadLength(eytzingerHeads[floorK], stringHead, fix, string);
+
+        floorSharedLength =
+            sharedLength(floor, string, stringChars, sharedHeadLength, debugSearchSteps);
+      }
+    } else {
+
+      int min = 0;
+      int max = sortedFixes.length - 1;
+
+      while (min <= max) {
+
+        final int bisect = (min + max) >>> 1;
+        final String fix = sortedFixes[bisect].first;
+        final int sharedLength = sharedLength(bisect, string, stringChars, 0, debugSearchSteps);
+        final int compareTo;
+
+        if (sharedLength < fix.length() && sharedLength < string.length()) {
+          compareTo =
+              searchCharAt(forPrefix, fix, sharedLength)
+                  - searchCharAt(forPrefix, string, sharedLength);
         } else {
-          compareTo = 1;
+          compareTo = fix.length() - string.length();
+        }
+
+        if (compareTo > 0) {
+          max = bisect - 1;
+          continue;
+        }
+
+        floor = bisect;
+        floorSharedLength = sharedLength;
+
+        if (compareTo == 0) {
+          break;
         }
-      }
 
-      if (compareTo > 0) {
-        max = bisect - 1;
-      } else {
         min = bisect + 1;
       }
     }
 
-    return lastMatch;
+    if (floor == NO_FIX) {
+      return NO_FIX;
+    }
+
+    if (!getLongestMatch) {
+      final int root = roots[floor];
+      return sortedFixes[root].first.length() <= floorSharedLength ? root : NO_FIX;
+    }
+
+    int fixIndex = floor;
+
+    while (fixIndex != NO_FIX && sortedFixes[fixIndex].first.length() > floorSharedLength) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      fixIndex = parents[fixIndex];
+    }
+
+    return fixIndex;
+  }
+
+  // Returns the Eytzinger index of the last key sorted at or before the string, or 0 if there is
+  // none. Descends the whole tree without stopping at equal keys, so the loop has no data-dependent
+  // exit and each step only chooses the next index.
+  private int getEytzingerFloor(
+      final long stringHead,
+      final CharSequence string,
+      final char[] stringChars,
+      final AtomicLong debugSearchSteps) {
+
+    final int size = sortedFixes.length;
+    int floorK = 0;
+    int k = 1;
+
+    while (k <= size) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      final long keyHead = eytzingerHeads[k];
+      final int compareTo =
+          keyHead != stringHead
+              ? Long.compareUnsigned(keyHead, stringHead)
+              : compareTo(eytzingerIndexes[k], string, stringChars, debugSearchSteps);
+
+      floorK = compareTo <= 0 ? k : floorK;
+      k = (k << 1) + (compareTo <= 0 ? 1 : 0);
+    }
+
+    return floorK;
   }
 
-  private static int compareFix(
+  // The number of leading chars which the heads show are shared.
+  private static int sharedHeadLength(
+      final long keyHead, final long stringHead, final String fix, final CharSequence string) {
+
+    final int sharedHeadChars = Long.numberOfLeadingZeros(keyHead ^ stringHead) / Character.SIZE;
+
+    // Missing chars are packed as zero, so they may match NUL chars.
+    return Math.min(Math.min(sharedHeadChars, HEAD_CHARS), Math.min(fix.length(), string.length()));
+  }
+
+  private static <T> int toEytzinger(
       final boolean forPrefix,
-      final boolean fixLargerThanSearchString,
-      final String string,
-      final String fix,
+      final Pair<String, T>[] sortedFixes,
+      final int[] eytzingerIndexes,
+      final long[] eytzingerHeads,
+      int sortedIndex,
+      final int k) {
+
+    if (k >= eytzingerIndexes.length) {
+      return sortedIndex;
+    }
+
+    sortedIndex =
+        toEytzinger(forPrefix, sortedFixes, eytzingerIndexes, eytzingerHeads, sortedIndex, k << 1);
+    eytzingerIndexes[k] = sortedIndex;
+    eytzingerHeads[k] = head(forPrefix, sortedFixes[sortedIndex].first);
+
+    return toEytzinger(
+        forPrefix, sortedFixes, eytzingerIndexes, eytzingerHeads, sortedIndex + 1, (k << 1) + 1);
+  }
+
+  // Missing chars are packed as zero, so heads compare as unsigned longs in the same order as
+  // their strings whenever they differ. Equal heads need the strings to be compared.
+  private static long head(final boolean forPrefix, final CharSequence string) {
+
+    final int length = Math.min(string.length(), HEAD_CHARS);
+    long head = 0;
+
+    for (int i = 0; i < length; i++) {
+      head |= (long) searchCharAt(forPrefix, string, i) << ((HEAD_CHARS - i - 1) * Character.SIZE);
+    }
+
+    return head;
+  }
+
+  // Only called when the heads are equal, so the chars in the heads are already known to match.
+  private int compareTo(
+      final int fixIndex,
+      final CharSequence string,
+      final char[] stringChars,
       final AtomicLong debugSearchSteps) {
 
-    final int length = Math.min(string.length(), fix.length());
+    final String fix = sortedFixes[fixIndex].first;
+    final int sharedLength =
+        sharedLength(
+            fixIndex,
+            string,
+            stringChars,
+            Math.min(HEAD_CHARS, Math.min(fix.length(), string.length())),
+            debugSearchSteps);
+
+    if (sharedLength < fix.length() && sharedLength < string.length()) {
+      return searchCharAt(forPrefix, fix, sharedLength)
+          - searchCharAt(forPrefix, string, sharedLength);
+    }
+
+    return fix.length() - string.length();
+  }
+
+  // Compares the packed chars when the string has been copied into search order.
+  private int sharedLength(
+      final int fixIndex,
+      final CharSequence string,
+      final char[] stringChars,
+      final int start,
+      final AtomicLong debugSearchSteps) {
+
+    if (stringChars == null) {
+      return sharedLength(forPrefix, sortedFixes[fixIndex].first, string, start, debugSearchSteps);
+    }
+
+    final int offset = keyOffsets[fixIndex];
+    final int length = Math.min(string.length(), keyOffsets[fixIndex + 1] - offset);
+    final int mismatch =
+        Mismatches.mismatch(keyChars, offset + start, stringChars, start, length - start);
+
+    if (debugSearchSteps != null) {
+      debugSearchSteps.addAndGet(mismatch < 0 ? length - start : mismatch + 1);
+    }
+
+    return mismatch < 0 ? length : start + mismatch;
+  }
+
+  private char[] toSearchChars(final CharSequence string) {
+
+    final int length = Math.min(string.length(), maxKeyLength);
+    char[] chars = SEARCH_CHARS.get();
+
+    if (chars.length < length) {
+      chars = new char[Math.max(length, Math.min(chars.length * 2, maxKeyLength))];
+      SEARCH_CHARS.set(chars);
+    }
 
-    if (forPrefix) {
-      return compareSubstring(string, fix, 0, 0, length, debugSearchSteps);
+    if (forPrefix && string instanceof String) {
+      ((String) string).getChars(0, length, chars, 0);
+      return chars;
     }
 
-    return fixLargerThanSearchString
-        ? compareSubstring(string, fix, 0, fix.length() - string.length(), length, debugSearchSteps)
-        : compareSubstring(
-            string, fix, string.length() - fix.length(), 0, length, debugSearchSteps);
+    for (int i = 0; i < length; i++) {
+      chars[i] = searchCharAt(forPrefix, string, i);
+    }
+
+    return chars;
   }
 
-  private static int compareSubstring(
-      final String string,
+  static int compareFixes(final boolean forPrefix, final String fix1, final String fix2) {
+
+    final int sharedLength = sharedLength(forPrefix, fix1, fix2, null);
+
+    if (sharedLength < fix1.length() && sharedLength < fix2.length()) {
+      return searchCharAt(forPrefix, fix1, sharedLength)
+          - searchCharAt(forPrefix, fix2, sharedLength);
+    }
+
+    return fix1.length() - fix2.length();
+  }
+
+  private static boolean isFixOf(final boolean forPrefix, final String fix, final String string) {
+    return fix.length() <= string.length()
+        && sharedLength(forPrefix, fix, string, null) == fix.length();
+  }
+
+  private static char searchCharAt(
+      final boolean forPrefix, final CharSequence string, final int index) {
+    return string.charAt(forPrefix ? index : string.length() - index - 1);
+  }
+
+  private static int sharedLength(
+      final boolean forPrefix,
+      final String fix,
+      final CharSequence string,
+      final AtomicLong debugSearchSteps) {
+    return sharedLength(forPrefix, fix, string, 0, debugSearchSteps);
+  }
+
+  private static int sharedLength(
+      final boolean forPrefix,
       final String fix,
-      final int stringStart,
-      final int fixStart,
-      final int end,
+      final CharSequence string,
+      final int start,
       final AtomicLong debugSearchSteps) {
 
-    for (int i = 0; i < end; i++) {
+    final int length = Math.min(string.length(), fix.length());
+
+    for (int i = start; i < length; i++) {
 
       if (debugSearchSteps != null) {
         debugSearchSteps.incrementAndGet();
       }
 
-      final char stringChar = string.charAt(stringStart + i);
-      final char fixChar = fix.charAt(fixStart + i);
-
-      if (stringChar != fixChar) {
-        return stringChar - fixChar;
+      if (searchCharAt(forPrefix, fix, i) != searchCharAt(forPrefix, string, i)) {
+        return i;
       }
     }
 
-    return 0;
+    return length;
   }
 }
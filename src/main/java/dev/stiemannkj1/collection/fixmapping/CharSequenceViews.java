@@ -0,0 +1,337 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Views are reused by each thread so lookups don't allocate. A view is only valid until the next
+// call on the same thread, so views must never escape a lookup.
+final class CharSequenceViews {
+
+  private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+  private static final ThreadLocal<CharArrayView> CHAR_ARRAY_VIEWS =
+      ThreadLocal.withInitial(CharArrayView::new);
+  private static final ThreadLocal<Utf8View> UTF8_VIEWS = ThreadLocal.withInitial(Utf8View::new);
+  private static final ThreadLocal<CaseFoldingView> CASE_FOLDING_VIEWS =
+      ThreadLocal.withInitial(CaseFoldingView::new);
+
+  static CharSequence of(final char[] chars, final int offset, final int length) {
+
+    if (chars == null) {
+      return null;
+    }
+
+    checkRange(chars.length, offset, length);
+
+    return CHAR_ARRAY_VIEWS.get().set(chars, offset, length);
+  }
+
+  static CharSequence ofUtf8(final byte[] bytes, final int offset, final int length) {
+
+    if (bytes == null) {
+      return null;
+    }
+
+    checkRange(bytes.length, offset, length);
+
+    return UTF8_VIEWS.get().set(bytes, null, offset, length);
+  }
+
+  static CharSequence ofUtf8(final ByteBuffer bytes, final int offset, final int length) {
+
+    if (bytes == null) {
+      return null;
+    }
+
+    checkRange(bytes.limit(), offset, length);
+
+    if (bytes.hasArray()) {
+      return UTF8_VIEWS.get().set(bytes.array(), null, bytes.arrayOffset() + offset, length);
+    }
+
+    return UTF8_VIEWS.get().set(null, bytes, offset, length);
+  }
+
+  static CharSequence caseFolded(
+      final CharSequence string, final FixMappings.CaseFolding caseFolding) {
+
+    if (string == null) {
+      return null;
+    }
+
+    return CASE_FOLDING_VIEWS.get().set(string, caseFolding);
+  }
+
+  // Unlike the reused views, this view stays valid while callbacks run other lookups on the same
+  // thread.
+  static CharSequence newCaseFolded(
+      final CharSequence string, final FixMappings.CaseFolding caseFolding) {
+
+    if (string == null) {
+      return null;
+    }
+
+    return new CaseFoldingView().set(string, caseFolding);
+  }
+
+  private static void checkRange(final int arrayLength, final int offset, final int length) {
+
+    if (offset < 0 || length < 0 || offset > arrayLength - length) {
+      throw new IndexOutOfBoundsException(
+          "offset " + offset + ", length " + length + ", array length " + arrayLength);
+    }
+  }
+
+  private static final class CharArrayView implements CharSequence {
+
+    private char[] chars;
+    private int offset;
+    private int length;
+
+    private CharArrayView set(final char[] chars, final int offset, final int length) {
+      this.chars = chars;
+      this.offset = offset;
+      this.length = length;
+      return this;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+      return chars[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+      return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return new String(chars, offset, length);
+    }
+  }
+
+  private static final class Utf8View implements CharSequence {
+
+    private byte[] bytes;
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+    // Only used when the bytes contain non-ASCII chars. ASCII bytes are read directly.
+    private char[] decoded = new char[0];
+    private boolean ascii;
+
+    private Utf8View set(
+        final byte[] bytes, final ByteBuffer buffer, final int offset, final int byteLength) {
+
+      this.bytes = bytes;
+      this.buffer = buffer;
+      this.offset = offset;
+
+      int i = 0;
+
+      while (i < byteLength && byteAt(i) >= 0) {
+        i++;
+      }
+
+      this.ascii = i == byteLength;
+
+      if (ascii) {
+        this.length = byteLength;
+      } else {
+        this.length = decode(byteLength);
+      }
+
+      return this;
+    }
+
+    private byte byteAt(final int index) {
+
+      if (bytes != null) {
+        return bytes[offset + index];
+      }
+
+      return buffer.get(offset + index);
+    }
+
+    private int continuationAt(final int index, final int byteLength) {
+
+      if (index >= byteLength) {
+        return -1;
+      }
+
+      final int continuation = byteAt(index);
+
+      if ((continuation & 0xC0) != 0x80) {
+        return -1;
+      }
+
+      return continuation & 0x3F;
+    }
+
+    private void ensureCapacity(final int capacity) {
+      if (decoded.length < capacity) {
+        decoded = Arrays.copyOf(decoded, Math.max(capacity, decoded.length * 2));
+      }
+    }
+
+    // Malformed sequences decode to replacement chars, so they never match a key unless the key
+    // itself contains the replacement char.
+    private int decode(final int byteLength) {
+
+      // UTF-8 never produces more chars than bytes.
+      ensureCapacity(byteLength);
+
+      int charLength = 0;
+      int i = 0;
+
+      while (i < byteLength) {
+
+        final int lead = byteAt(i) & 0xFF;
+
+        if (lead < 0x80) {
+          decoded[charLength++] = (char) lead;
+          i++;
+          continue;
+        }
+
+        final int codePoint;
+        final int sequenceLength;
+        final int minCodePoint;
+
+        if (lead >= 0xC2 && lead <= 0xDF) {
+          sequenceLength = 2;
+          codePoint = lead & 0x1F;
+          minCodePoint = 0x80;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+          sequenceLength = 3;
+          codePoint = lead & 0x0F;
+          minCodePoint = 0x800;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+          sequenceLength = 4;
+          codePoint = lead & 0x07;
+          minCodePoint = 0x10000;
+        } else {
+          decoded[charLength++] = REPLACEMENT_CHAR;
+          i++;
+          continue;
+        }
+
+        int value = codePoint;
+        int j = 1;
+
+        for (; j < sequenceLength; j++) {
+
+          final int continuation = continuationAt(i + j, byteLength);
+
+          if (continuation < 0) {
+            break;
+          }
+
+          value = (value << 6) | continuation;
+        }
+
+        if (j < sequenceLength
+            || value < minCodePoint
+            || value > Character.MAX_CODE_POINT
+            || (value >= Character.MIN_SURROGATE && value <= Character.MAX_SURROGATE)) {
+          decoded[charLength++] = REPLACEMENT_CHAR;
+          i += j;
+          continue;
+        }
+
+        if (value < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+          decoded[charLength++] = (char) value;
+        } else {
+          decoded[charLength++] = Character.highSurrogate(value);
+          decoded[charLength++] = Character.lowSurrogate(value);
+        }
+
+        i += sequenceLength;
+      }
+
+      return charLength;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+
+      if (ascii) {
+        return (char) byteAt(index);
+      }
+
+      return decoded[index];
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+      return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return new StringBuilder(this).toString();
+    }
+  }
+
+  // Folds each char as it is read, so folding never copies the string.
+  private static final class CaseFoldingView implements CharSequence {
+
+    private CharSequence string;
+    private FixMappings.CaseFolding caseFolding;
+
+    private CaseFoldingView set(
+        final CharSequence string, final FixMappings.CaseFolding caseFolding) {
+      this.string = string;
+      this.caseFolding = caseFolding;
+      return this;
+    }
+
+    @Override
+    public int length() {
+      return string.length();
+    }
+
+    @Override
+    public char charAt(final int index) {
+      return caseFolding.fold(string.charAt(index));
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+      return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return new StringBuilder(this).toString();
+    }
+  }
+
+  private CharSequenceViews() {}
+}
@@ -0,0 +1,297 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import dev.stiemannkj1.util.Pair;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+// Nodes are never modified after they are published. Updates copy the path from the root to the
+// changed node and swap in the new root, so lookups never wait and snapshots only copy the root
+// reference.
+class ConcurrentTrieFixMapping<T> implements FixMappings.FixMapping<T> {
+
+  private static final char[] EMPTY_CHARS = new char[0];
+
+  @SuppressWarnings("rawtypes")
+  private static final Node[] EMPTY_NODES = new Node[0];
+
+  @SuppressWarnings("unchecked")
+  private static final Node<?> EMPTY_ROOT = new Node<>(EMPTY_CHARS, EMPTY_NODES, null);
+
+  private static final class Node<T> {
+    private final char[] chars;
+    private final Node<T>[] nodes;
+    private final Pair<String, T> keyValuePair;
+
+    private Node(final char[] chars, final Node<T>[] nodes, final Pair<String, T> keyValuePair) {
+      this.chars = chars;
+      this.nodes = nodes;
+      this.keyValuePair = keyValuePair;
+    }
+
+    private boolean isMatch() {
+      return this.keyValuePair != null;
+    }
+
+    private Node<T> child(final char char_) {
+
+      final int childIndex = Arrays.binarySearch(chars, char_);
+
+      if (childIndex < 0) {
+        return null;
+      }
+
+      return nodes[childIndex];
+    }
+  }
+
+  private final boolean forPrefix;
+  private final AtomicReference<Node<T>> root;
+
+  @SuppressWarnings("unchecked")
+  ConcurrentTrieFixMapping(final boolean forPrefix, final Map<String, T> fixes) {
+
+    this.forPrefix = forPrefix;
+    this.root = new AtomicReference<>((Node<T>) EMPTY_ROOT);
+
+    for (final Map.Entry<String, T> fix : fixes.entrySet()) {
+
+      if (fix == null) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      if (putKeyAndValue(fix.getKey(), fix.getValue(), false) != null) {
+        throw new IllegalArgumentException("Duplicate keys found for: " + fix.getKey());
+      }
+    }
+  }
+
+  ConcurrentTrieFixMapping(final ConcurrentTrieFixMapping<T> fixMapping) {
+    this.forPrefix = fixMapping.forPrefix;
+    this.root = new AtomicReference<>(fixMapping.root.get());
+  }
+
+  private char charAt(final String key, final int index) {
+    return key.charAt(forPrefix ? index : key.length() - index - 1);
+  }
+
+  // Returns the previous key and value or null if the key was not mapped.
+  Pair<String, T> putKeyAndValue(final String key, final T value, final boolean replace) {
+
+    if (key == null || key.isEmpty()) {
+      throw new IllegalArgumentException("Empty keys are not allowed.");
+    }
+
+    final Pair<String, T> keyValuePair = Pair.of(key, value);
+
+    while (true) {
+
+      final Node<T> oldRoot = root.get();
+      final Pair<String, T> oldKeyValuePair = getExactKeyAndValue(oldRoot, key);
+
+      if (oldKeyValuePair != null && !replace) {
+        return oldKeyValuePair;
+      }
+
+      if (root.compareAndSet(oldRoot, put(oldRoot, key, 0, keyValuePair))) {
+        return oldKeyValuePair;
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Node<T> put(
+      final Node<T> node, final String key, final int depth, final Pair<String, T> keyValuePair) {
+
+    if (depth == key.length()) {
+      return new Node<>(node.chars, node.nodes, keyValuePair);
+    }
+
+    final char char_ = charAt(key, depth);
+    final int childIndex = Arrays.binarySearch(node.chars, char_);
+
+    if (childIndex >= 0) {
+      final Node<T>[] nodes = node.nodes.clone();
+      nodes[childIndex] = put(nodes[childIndex], key, depth + 1, keyValuePair);
+      return new Node<>(node.chars, nodes, node.keyValuePair);
+    }
+
+    final int insertIndex = -(childIndex + 1);
+    final int length = node.chars.length;
+    final char[] chars = new char[length + 1];
+    final Node<T>[] nodes = new Node[length + 1];
+
+    System.arraycopy(node.chars, 0, chars, 0, insertIndex);
+    System.arraycopy(node.chars, insertIndex, chars, insertIndex + 1, length - insertIndex);
+    System.arraycopy(node.nodes, 0, nodes, 0, insertIndex);
+    System.arraycopy(node.nodes, insertIndex, nodes, insertIndex + 1, length - insertIndex);
+
+    chars[insertIndex] = char_;
+    nodes[insertIndex] = put((Node<T>) EMPTY_ROOT, key, depth + 1, keyValuePair);
+
+    return new Node<>(chars, nodes, node.keyValuePair);
+  }
+
+  // Returns the removed key and value or null if the key was not mapped.
+  @SuppressWarnings("unchecked")
+  Pair<String, T> removeKeyAndValue(final String key) {
+
+    if (key == null || key.isEmpty()) {
+      return null;
+    }
+
+    while (true) {
+
+      final Node<T> oldRoot = root.get();
+      final Pair<String, T> oldKeyValuePair = getExactKeyAndValue(oldRoot, key);
+
+      if (oldKeyValuePair == null) {
+        return null;
+      }
+
+      final Node<T> newRoot = remove(oldRoot, key, 0);
+
+      if (root.compareAndSet(oldRoot, newRoot == null ? (Node<T>) EMPTY_ROOT : newRoot)) {
+        return oldKeyValuePair;
+      }
+    }
+  }
+
+  // Returns null when the node no longer leads to any key.
+  @SuppressWarnings("unchecked")
+  private Node<T> remove(final Node<T> node, final String key, final int depth) {
+
+    if (depth == key.length()) {
+
+      if (node.chars.length == 0) {
+        return null;
+      }
+
+      return new Node<>(node.chars, node.nodes, null);
+    }
+
+    final int childIndex = Arrays.binarySearch(node.chars, charAt(key, depth));
+    final Node<T> child = remove(node.nodes[childIndex], key, depth + 1);
+
+    if (child != null) {
+      final Node<T>[] nodes = node.nodes.clone();
+      nodes[childIndex] = child;
+      return new Node<>(node.chars, nodes, node.keyValuePair);
+    }
+
+    final int length = node.chars.length;
+
+    if (length == 1 && !node.isMatch()) {
+      return null;
+    }
+
+    final char[] chars = new char[length - 1];
+    final Node<T>[] nodes = new Node[length - 1];
+
+    System.arraycopy(node.chars, 0, chars, 0, childIndex);
+    System.arraycopy(node.chars, childIndex + 1, chars, childIndex, length - childIndex - 1);
+    System.arraycopy(node.nodes, 0, nodes, 0, childIndex);
+    System.arraycopy(node.nodes, childIndex + 1, nodes, childIndex, length - childIndex - 1);
+
+    return new Node<>(chars, nodes, node.keyValuePair);
+  }
+
+  private Pair<String, T> getExactKeyAndValue(final Node<T> root, final String key) {
+
+    Node<T> node = root;
+
+    for (int i = 0; i < key.length() && node != null; i++) {
+      node = node.child(charAt(key, i));
+    }
+
+    return node == null ? null : node.keyValuePair;
+  }
+
+  @VisibleForTesting
+  @Override
+  public Pair<String, T> getKeyAndValue(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    if (string == null) {
+      return null;
+    }
+
+    final int length = string.length();
+    Node<T> node = root.get();
+    Pair<String, T> lastMatch = null;
+
+    for (int i = 0; i < length; i++) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      node = node.child(string.charAt(forPrefix ? i : length - i - 1));
+
+      if (node == null) {
+        break;
+      }
+
+      if (node.isMatch()) {
+
+        if (!getLongestMatch) {
+          return node.keyValuePair;
+        }
+
+        lastMatch = node.keyValuePair;
+      }
+
+      if (node.chars.length == 0) {
+        break;
+      }
+    }
+
+    return lastMatch;
+  }
+
+  void forEachKeyAndValue(
+      final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+    if (string == null) {
+      return;
+    }
+
+    final int length = string.length();
+    Node<T> node = root.get();
+
+    for (int i = 0; i < length; i++) {
+
+      node = node.child(string.charAt(forPrefix ? i : length - i - 1));
+
+      if (node == null) {
+        return;
+      }
+
+      if (node.isMatch()) {
+        consumer.accept(node.keyValuePair.first, node.keyValuePair.second);
+      }
+
+      if (node.chars.length == 0) {
+        return;
+      }
+    }
+  }
+}
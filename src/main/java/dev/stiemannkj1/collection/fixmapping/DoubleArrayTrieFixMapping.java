@@ -0,0 +1,651 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import dev.stiemannkj1.util.Pair;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+class DoubleArrayTrieFixMapping<T> implements FixMappings.IndexedFixMapping<T> {
+
+  private static final int ROOT = 0;
+  private static final int FREE = -1;
+  private static final int NO_STATE = -1;
+  private static final int NO_FREE_SLOT = -1;
+  private static final int INTERLEAVED_LOOKUPS = 4;
+  private static final byte[] EMPTY_BYTES = new byte[0];
+
+  private final boolean forPrefix;
+  private final char minChar;
+  private final char maxChar;
+  // Maps (char - minChar) to a dense, non-zero code. Zero means the char is in no key.
+  private final int[] codes;
+  // A state with a base of zero has no children.
+  private final int[] base;
+  private final int[] check;
+  private final int[] keyIndexes;
+  private final Pair<String, T>[] keyValuePairs;
+  private final int minPrefixLength;
+
+  DoubleArrayTrieFixMapping(final boolean forPrefix, final Map<String, T> fixes) {
+
+    final int size = fixes.size();
+
+    if (size == 0) {
+      throw new IllegalArgumentException(
+          (forPrefix ? "Prefixes" : "Suffixes") + " cannot be empty.");
+    }
+
+    final char[][] keys = new char[size][];
+    @SuppressWarnings("unchecked")
+    final Pair<String, T>[] keyValuePairs = new Pair[size];
+    int minLength = Integer.MAX_VALUE;
+    char minChar = Character.MAX_VALUE;
+    char maxChar = Character.MIN_VALUE;
+    int i = 0;
+
+    for (final Map.Entry<String, T> fix : fixes.entrySet()) {
+
+      if (fix == null || fix.getKey() == null) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      final String fixString = fix.getKey();
+      final int length = fixString.length();
+
+      if (length == 0) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      if (length < minLength) {
+        minLength = length;
+      }
+
+      final char[] key = new char[length];
+
+      for (int j = 0; j < length; j++) {
+
+        final char char_ = fixString.charAt(forPrefix ? j : length - j - 1);
+
+        if (char_ < minChar) {
+          minChar = char_;
+        }
+
+        if (char_ > maxChar) {
+          maxChar = char_;
+        }
+
+        key[j] = char_;
+      }
+
+      keys[i] = key;
+      keyValuePairs[i] = Pair.fromEntry(fix);
+      i++;
+    }
+
+    final Integer[] sortedIndexes = new Integer[size];
+
+    for (i = 0; i < size; i++) {
+      sortedIndexes[i] = i;
+    }
+
+    Arrays.sort(sortedIndexes, (index1, index2) -> compareKeys(keys[index1], keys[index2]));
+
+    final char[][] sortedKeys = new char[size][];
+    @SuppressWarnings("unchecked")
+    final Pair<String, T>[] sortedKeyValuePairs = new Pair[size];
+
+    for (i = 0; i < size; i++) {
+
+      sortedKeys[i] = keys[sortedIndexes[i]];
+      sortedKeyValuePairs[i] = keyValuePairs[sortedIndexes[i]];
+
+      if (i > 0 && compareKeys(sortedKeys[i - 1], sortedKeys[i]) == 0) {
+        throw new IllegalArgumentException(
+            "Duplicate keys found for: " + sortedKeyValuePairs[i].first);
+      }
+    }
+
+    final int[] codes = new int[maxChar - minChar + 1];
+
+    for (final char[] key : sortedKeys) {
+      for (final char char_ : key) {
+        codes[char_ - minChar] = 1;
+      }
+    }
+
+    int code = 0;
+
+    for (i = 0; i < codes.length; i++) {
+      if (codes[i] != 0) {
+        codes[i] = ++code;
+      }
+    }
+
+    final Builder builder = new Builder(codes, minChar, sortedKeys);
+    builder.build(size);
+
+    this.forPrefix = forPrefix;
+    this.minChar = minChar;
+    this.maxChar = maxChar;
+    this.codes = codes;
+    this.base = Arrays.copyOf(builder.base, builder.length);
+    this.check = Arrays.copyOf(builder.check, builder.length);
+    this.keyIndexes = Arrays.copyOf(builder.keyIndexes, builder.length);
+    this.keyValuePairs = sortedKeyValuePairs;
+    this.minPrefixLength = minLength;
+  }
+
+  // Writes the arrays in the format read by MappedDoubleArrayTrieFixMapping. Keys are written in
+  // sorted order, so the key indexes in the trie refer to the same keys once mapped.
+  void write(final Function<? super T, byte[]> valueEncoder, final DataOutput out)
+      throws IOException {
+
+    final byte[][] values = new byte[keyValuePairs.length][];
+    long keyCharCount = 0;
+    long valueByteCount = 0;
+
+    for (int i = 0; i < keyValuePairs.length; i++) {
+
+      final byte[] value =
+          valueEncoder == null ? null : valueEncoder.apply(keyValuePairs[i].second);
+
+      values[i] = value == null ? EMPTY_BYTES : value;
+      keyCharCount += keyValuePairs[i].first.length();
+      valueByteCount += values[i].length;
+    }
+
+    final long length =
+        MappedDoubleArrayTrieFixMapping.HEADER_LENGTH
+            + ((long) (codes.length + (base.length * 3) + ((keyValuePairs.length + 1) * 2))
+                * Integer.BYTES)
+            + (keyCharCount * Character.BYTES)
+            + valueByteCount;
+
+    // Buffers are indexed by int, so larger mappings can't be mapped.
+    if (length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          "Fix mapping is too large to write: " + length + " bytes.");
+    }
+
+    out.writeInt(MappedDoubleArrayTrieFixMapping.MAGIC);
+    out.writeInt(MappedDoubleArrayTrieFixMapping.VERSION);
+    out.writeInt(forPrefix ? 1 : 0);
+    out.writeInt(minPrefixLength);
+    out.writeInt(minChar);
+    out.writeInt(codes.length);
+    out.writeInt(base.length);
+    out.writeInt(keyValuePairs.length);
+    out.writeInt((int) keyCharCount);
+    out.writeInt((int) valueByteCount);
+    // Reserved.
+    out.writeInt(0);
+
+    writeInts(codes, out);
+    writeInts(base, out);
+    writeInts(check, out);
+    writeInts(keyIndexes, out);
+
+    int offset = 0;
+    out.writeInt(offset);
+
+    for (final Pair<String, T> keyValuePair : keyValuePairs) {
+      offset += keyValuePair.first.length();
+      out.writeInt(offset);
+    }
+
+    offset = 0;
+    out.writeInt(offset);
+
+    for (final byte[] value : values) {
+      offset += value.length;
+      out.writeInt(offset);
+    }
+
+    for (final Pair<String, T> keyValuePair : keyValuePairs) {
+      out.writeChars(keyValuePair.first);
+    }
+
+    for (final byte[] value : values) {
+      out.write(value);
+    }
+  }
+
+  private static void writeInts(final int[] ints, final DataOutput out) throws IOException {
+    for (final int i : ints) {
+      out.writeInt(i);
+    }
+  }
+
+  private static int compareKeys(final char[] key1, final char[] key2) {
+
+    final int length = Math.min(key1.length, key2.length);
+
+    for (int i = 0; i < length; i++) {
+      if (key1[i] != key2[i]) {
+        return key1[i] - key2[i];
+      }
+    }
+
+    return key1.length - key2.length;
+  }
+
+  private static final class Builder {
+
+    private final int[] codes;
+    private final char minChar;
+    private final char[][] sortedKeys;
+    private int[] base;
+    private int[] check;
+    private int[] keyIndexes;
+    // Free slots are linked in index order so that finding a base skips every taken slot.
+    private int[] nextFreeSlots;
+    private int[] prevFreeSlots;
+    private int firstFreeSlot;
+    private int lastFreeSlot;
+    private int length;
+
+    private Builder(final int[] codes, final char minChar, final char[][] sortedKeys) {
+      this.codes = codes;
+      this.minChar = minChar;
+      this.sortedKeys = sortedKeys;
+      this.base = new int[0];
+      this.check = new int[0];
+      this.keyIndexes = new int[0];
+      this.nextFreeSlots = new int[0];
+      this.prevFreeSlots = new int[0];
+      this.firstFreeSlot = NO_FREE_SLOT;
+      this.lastFreeSlot = NO_FREE_SLOT;
+      ensureCapacity(ROOT + 1);
+      this.check[ROOT] = ROOT;
+      takeFreeSlot(ROOT);
+      this.length = ROOT + 1;
+    }
+
+    private void ensureCapacity(final int capacity) {
+
+      if (capacity <= check.length) {
+        return;
+      }
+
+      final int oldCapacity = check.length;
+      final int newCapacity = Math.max(capacity, oldCapacity * 2);
+      base = Arrays.copyOf(base, newCapacity);
+      check = Arrays.copyOf(check, newCapacity);
+      keyIndexes = Arrays.copyOf(keyIndexes, newCapacity);
+      nextFreeSlots = Arrays.copyOf(nextFreeSlots, newCapacity);
+      prevFreeSlots = Arrays.copyOf(prevFreeSlots, newCapacity);
+      Arrays.fill(check, oldCapacity, newCapacity, FREE);
+      Arrays.fill(keyIndexes, oldCapacity, newCapacity, NO_KEY);
+
+      for (int i = oldCapacity; i < newCapacity; i++) {
+        prevFreeSlots[i] = i - 1;
+        nextFreeSlots[i] = i + 1;
+      }
+
+      prevFreeSlots[oldCapacity] = lastFreeSlot;
+      nextFreeSlots[newCapacity - 1] = NO_FREE_SLOT;
+
+      if (lastFreeSlot == NO_FREE_SLOT) {
+        firstFreeSlot = oldCapacity;
+      } else {
+        nextFreeSlots[lastFreeSlot] = oldCapacity;
+      }
+
+      lastFreeSlot = newCapacity - 1;
+    }
+
+    private void takeFreeSlot(final int slot) {
+
+      final int prevFreeSlot = prevFreeSlots[slot];
+      final int nextFreeSlot = nextFreeSlots[slot];
+
+      if (prevFreeSlot == NO_FREE_SLOT) {
+        firstFreeSlot = nextFreeSlot;
+      } else {
+        nextFreeSlots[prevFreeSlot] = nextFreeSlot;
+      }
+
+      if (nextFreeSlot == NO_FREE_SLOT) {
+        lastFreeSlot = prevFreeSlot;
+      } else {
+        prevFreeSlots[nextFreeSlot] = prevFreeSlot;
+      }
+    }
+
+    private int toCode(final char char_) {
+      return codes[char_ - minChar];
+    }
+
+    // Keys may be long, so states are placed from a stack rather than recursively. Each entry holds
+    // a state, the range of keys which reach it and their shared depth. Children are pushed in
+    // reverse, so states are placed in the same depth-first order as a recursive build.
+    private void build(final int keyCount) {
+
+      final ArrayDeque<int[]> stack = new ArrayDeque<>();
+      stack.push(new int[] {ROOT, 0, keyCount, 0});
+
+      while (!stack.isEmpty()) {
+
+        final int[] entry = stack.pop();
+        final int state = entry[0];
+        int start = entry[1];
+        final int end = entry[2];
+        final int depth = entry[3];
+
+        // Keys are sorted so a key which ends at this state is always first.
+        if (sortedKeys[start].length == depth) {
+          keyIndexes[state] = start;
+          start++;
+        }
+
+        if (start == end) {
+          continue;
+        }
+
+        int childCount = 0;
+
+        for (int i = start; i < end; i++) {
+          if (i == start || sortedKeys[i][depth] != sortedKeys[i - 1][depth]) {
+            childCount++;
+          }
+        }
+
+        final int[] childCodes = new int[childCount];
+        final int[] childStarts = new int[childCount + 1];
+        childCount = 0;
+
+        for (int i = start; i < end; i++) {
+          if (i == start || sortedKeys[i][depth] != sortedKeys[i - 1][depth]) {
+            childCodes[childCount] = toCode(sortedKeys[i][depth]);
+            childStarts[childCount] = i;
+            childCount++;
+          }
+        }
+
+        childStarts[childCount] = end;
+
+        final int stateBase = findBase(childCodes);
+        base[state] = stateBase;
+
+        for (final int childCode : childCodes) {
+          check[stateBase + childCode] = state;
+          takeFreeSlot(stateBase + childCode);
+        }
+
+        length = Math.max(length, stateBase + childCodes[childCount - 1] + 1);
+
+        for (int i = childCount - 1; i >= 0; i--) {
+          stack.push(
+              new int[] {stateBase + childCodes[i], childStarts[i], childStarts[i + 1], depth + 1});
+        }
+      }
+    }
+
+    private int findBase(final int[] childCodes) {
+
+      // Child codes are sorted, so the largest code determines the required capacity.
+      final int maxChildCode = childCodes[childCodes.length - 1];
+      int freeSlot = firstFreeSlot;
+
+      while (true) {
+
+        if (freeSlot == NO_FREE_SLOT) {
+          freeSlot = check.length;
+          ensureCapacity(freeSlot + 1);
+        }
+
+        // Only bases which put the first child in a free slot are worth checking.
+        final int stateBase = freeSlot - childCodes[0];
+
+        if (stateBase >= 1) {
+
+          ensureCapacity(stateBase + maxChildCode + 1);
+          boolean free = true;
+
+          for (final int childCode : childCodes) {
+            if (check[stateBase + childCode] != FREE) {
+              free = false;
+              break;
+            }
+          }
+
+          if (free) {
+            return stateBase;
+          }
+        }
+
+        freeSlot = nextFreeSlots[freeSlot];
+      }
+    }
+  }
+
+  @VisibleForTesting
+  @Override
+  public Pair<String, T> getKeyAndValue(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    final int keyIndex = getKeyIndex(getLongestMatch, string, debugSearchSteps);
+
+    if (keyIndex == NO_KEY) {
+      return null;
+    }
+
+    return keyValuePairs[keyIndex];
+  }
+
+  @Override
+  public int getKeyIndex(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    if (string == null) {
+      return NO_KEY;
+    }
+
+    final int length = string.length();
+
+    if (length < minPrefixLength) {
+      return NO_KEY;
+    }
+
+    int state = ROOT;
+    int lastMatch = NO_KEY;
+
+    for (int i = 0; i < length; i++) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      state = nextState(state, string.charAt(forPrefix ? i : length - i - 1));
+
+      if (state == NO_STATE) {
+        break;
+      }
+
+      final int keyIndex = keyIndexes[state];
+
+      if (keyIndex != NO_KEY) {
+
+        if (!getLongestMatch) {
+          return keyIndex;
+        }
+
+        lastMatch = keyIndex;
+      }
+
+      if (base[state] == 0) {
+        break;
+      }
+    }
+
+    return lastMatch;
+  }
+
+  @Override
+  public int size() {
+    return keyValuePairs.length;
+  }
+
+  @Override
+  public Pair<String, T> keyAndValueAt(final int keyIndex) {
+    return keyValuePairs[keyIndex];
+  }
+
+  void forEachKeyAndValue(
+      final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+    if (string == null) {
+      return;
+    }
+
+    final int length = string.length();
+
+    if (length < minPrefixLength) {
+      return;
+    }
+
+    int state = ROOT;
+
+    for (int i = 0; i < length; i++) {
+
+      state = nextState(state, string.charAt(forPrefix ? i : length - i - 1));
+
+      if (state == NO_STATE) {
+        return;
+      }
+
+      final int keyIndex = keyIndexes[state];
+
+      if (keyIndex != NO_KEY) {
+        consumer.accept(keyValuePairs[keyIndex].first, keyValuePairs[keyIndex].second);
+      }
+
+      if (base[state] == 0) {
+        return;
+      }
+    }
+  }
+
+  private int nextState(final int state, final char char_) {
+
+    if (char_ < minChar || maxChar < char_) {
+      return NO_STATE;
+    }
+
+    final int code = codes[char_ - minChar];
+
+    if (code == 0) {
+      return NO_STATE;
+    }
+
+    final int nextState = base[state] + code;
+
+    if (nextState >= check.length || check[nextState] != state) {
+      return NO_STATE;
+    }
+
+    return nextState;
+  }
+
+  @Override
+  public void getKeysAndValues(
+      final boolean getLongestMatch,
+      final CharSequence[] strings,
+      final Object[] keysAndValues,
+      final int start,
+      final int end) {
+
+    final int[] states = new int[INTERLEAVED_LOOKUPS];
+    int i = start;
+
+    for (; i + INTERLEAVED_LOOKUPS <= end; i += INTERLEAVED_LOOKUPS) {
+      getInterleavedKeysAndValues(getLongestMatch, strings, keysAndValues, i, states);
+    }
+
+    for (; i < end; i++) {
+      keysAndValues[i] = getKeyAndValue(getLongestMatch, strings[i], null);
+    }
+  }
+
+  // Walks several strings in lockstep so that each string's array loads are independent of the
+  // others and their cache misses can overlap.
+  private void getInterleavedKeysAndValues(
+      final boolean getLongestMatch,
+      final CharSequence[] strings,
+      final Object[] keysAndValues,
+      final int start,
+      final int[] states) {
+
+    int activeLookups = 0;
+
+    for (int j = 0; j < INTERLEAVED_LOOKUPS; j++) {
+
+      final CharSequence string = strings[start + j];
+      keysAndValues[start + j] = null;
+
+      if (string == null || string.length() < minPrefixLength) {
+        states[j] = NO_STATE;
+      } else {
+        states[j] = ROOT;
+        activeLookups++;
+      }
+    }
+
+    for (int i = 0; activeLookups > 0; i++) {
+      for (int j = 0; j < INTERLEAVED_LOOKUPS; j++) {
+
+        if (states[j] == NO_STATE) {
+          continue;
+        }
+
+        final CharSequence string = strings[start + j];
+        final int length = string.length();
+        final int state =
+            i < length
+                ? nextState(states[j], string.charAt(forPrefix ? i : length - i - 1))
+                : NO_STATE;
+
+        if (state == NO_STATE) {
+          states[j] = NO_STATE;
+          activeLookups--;
+          continue;
+        }
+
+        final int keyIndex = keyIndexes[state];
+
+        if (keyIndex != NO_KEY) {
+          keysAndValues[start + j] = keyValuePairs[keyIndex];
+        }
+
+        if ((keyIndex != NO_KEY && !getLongestMatch) || base[state] == 0) {
+          states[j] = NO_STATE;
+          activeLookups--;
+          continue;
+        }
+
+        states[j] = state;
+      }
+    }
+  }
+}
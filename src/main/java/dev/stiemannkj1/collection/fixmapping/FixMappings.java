@@ -17,87 +17,2902 @@ package dev.stiemannkj1.collection.fixmapping;
 
 import dev.stiemannkj1.annotation.VisibleForTesting;
 import dev.stiemannkj1.util.Pair;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public final class FixMappings {
 
   @VisibleForTesting
   interface FixMapping<T> {
     Pair<String, T> getKeyAndValue(
-        final boolean getLongestMatch, final String string, final AtomicLong debugSearchSteps);
+        final boolean getLongestMatch,
+        final CharSequence string,
+        final AtomicLong debugSearchSteps);
+
+    default void getKeysAndValues(
+        final boolean getLongestMatch,
+        final CharSequence[] strings,
+        final Object[] keysAndValues,
+        final int start,
+        final int end) {
+      for (int i = start; i < end; i++) {
+        keysAndValues[i] = getKeyAndValue(getLongestMatch, strings[i], null);
+      }
+    }
+  }
+
+  // Engines which store their keys in an array, so other mappings can keep values in parallel
+  // arrays.
+  interface IndexedFixMapping<T> extends FixMapping<T> {
+    int NO_KEY = -1;
+
+    int getKeyIndex(
+        final boolean getLongestMatch,
+        final CharSequence string,
+        final AtomicLong debugSearchSteps);
+
+    int size();
+
+    Pair<String, T> keyAndValueAt(final int keyIndex);
+  }
+
+  public interface PrefixMatcher {
+    boolean matchesAnyPrefix(final String string);
+
+    default boolean matchesAnyPrefix(final CharSequence string) {
+      return matchesAnyPrefix(string == null ? null : string.toString());
+    }
+
+    default boolean matchesAnyPrefix(final char[] chars, final int offset, final int length) {
+      return matchesAnyPrefix(CharSequenceViews.of(chars, offset, length));
+    }
+
+    default boolean matchesAnyPrefix(final byte[] utf8, final int offset, final int length) {
+      return matchesAnyPrefix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+
+    default boolean matchesAnyPrefix(final ByteBuffer utf8, final int offset, final int length) {
+      return matchesAnyPrefix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+  }
+
+  public interface SuffixMatcher {
+    boolean matchesAnySuffix(final String string);
+
+    default boolean matchesAnySuffix(final CharSequence string) {
+      return matchesAnySuffix(string == null ? null : string.toString());
+    }
+
+    default boolean matchesAnySuffix(final char[] chars, final int offset, final int length) {
+      return matchesAnySuffix(CharSequenceViews.of(chars, offset, length));
+    }
+
+    default boolean matchesAnySuffix(final byte[] utf8, final int offset, final int length) {
+      return matchesAnySuffix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+
+    default boolean matchesAnySuffix(final ByteBuffer utf8, final int offset, final int length) {
+      return matchesAnySuffix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+  }
+
+  public interface PrefixMapping<T> extends PrefixMatcher {
+
+    @Override
+    default boolean matchesAnyPrefix(final String string) {
+      return keyAndValueForPrefix(string) != null;
+    }
+
+    @Override
+    default boolean matchesAnyPrefix(final CharSequence string) {
+      return keyAndValueForPrefix(string) != null;
+    }
+
+    default T valueForPrefix(final String string) {
+      final Pair<String, T> keyAndValue = keyAndValueForPrefix(string);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    default T valueForPrefix(final CharSequence string) {
+      final Pair<String, T> keyAndValue = keyAndValueForPrefix(string);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    default T valueForPrefix(final char[] chars, final int offset, final int length) {
+      return valueForPrefix(CharSequenceViews.of(chars, offset, length));
+    }
+
+    default T valueForPrefix(final byte[] utf8, final int offset, final int length) {
+      return valueForPrefix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+
+    default T valueForPrefix(final ByteBuffer utf8, final int offset, final int length) {
+      return valueForPrefix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+
+    Pair<String, T> keyAndValueForPrefix(final String string);
+
+    default Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return keyAndValueForPrefix(string == null ? null : string.toString());
+    }
+
+    default Pair<String, T> keyAndValueForPrefix(
+        final char[] chars, final int offset, final int length) {
+      return keyAndValueForPrefix(CharSequenceViews.of(chars, offset, length));
+    }
+
+    default Pair<String, T> keyAndValueForPrefix(
+        final byte[] utf8, final int offset, final int length) {
+      return keyAndValueForPrefix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+
+    default Pair<String, T> keyAndValueForPrefix(
+        final ByteBuffer utf8, final int offset, final int length) {
+      return keyAndValueForPrefix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+
+    default void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+      if (string == null) {
+        return;
+      }
+
+      for (int length = 1; length <= string.length(); length++) {
+
+        final Pair<String, T> keyAndValue = keyAndValueForPrefix(string.subSequence(0, length));
+
+        if (keyAndValue != null && keyAndValue.first.length() == length) {
+          consumer.accept(keyAndValue.first, keyAndValue.second);
+        }
+      }
+    }
+
+    default void valuesForPrefixes(final CharSequence[] strings, final Object[] values) {
+      valuesForPrefixes(strings, values, null);
+    }
+
+    default void valuesForPrefixes(
+        final CharSequence[] strings, final Object[] values, final ForkJoinPool pool) {
+      BatchLookups.lookUp(
+          BatchLookups.rangeLookup(this, string -> keyAndValueForPrefix(string)),
+          strings,
+          values,
+          true,
+          pool);
+    }
+
+    default Stream<T> valuesForPrefixes(final Stream<? extends CharSequence> strings) {
+      return strings.map(string -> valueForPrefix(string));
+    }
+
+    default void keysAndValuesForPrefixes(
+        final CharSequence[] strings, final Object[] keysAndValues) {
+      keysAndValuesForPrefixes(strings, keysAndValues, null);
+    }
+
+    default void keysAndValuesForPrefixes(
+        final CharSequence[] strings, final Object[] keysAndValues, final ForkJoinPool pool) {
+      BatchLookups.lookUp(
+          BatchLookups.rangeLookup(this, string -> keyAndValueForPrefix(string)),
+          strings,
+          keysAndValues,
+          false,
+          pool);
+    }
+
+    default Stream<Pair<String, T>> keysAndValuesForPrefixes(
+        final Stream<? extends CharSequence> strings) {
+      return strings.map(string -> keyAndValueForPrefix(string));
+    }
+  }
+
+  public interface SuffixMapping<T> extends SuffixMatcher {
+
+    @Override
+    default boolean matchesAnySuffix(final String string) {
+      return keyAndValueForSuffix(string) != null;
+    }
+
+    @Override
+    default boolean matchesAnySuffix(final CharSequence string) {
+      return keyAndValueForSuffix(string) != null;
+    }
+
+    default T valueForSuffix(final String string) {
+      final Pair<String, T> keyAndValue = keyAndValueForSuffix(string);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    default T valueForSuffix(final CharSequence string) {
+      final Pair<String, T> keyAndValue = keyAndValueForSuffix(string);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    default T valueForSuffix(final char[] chars, final int offset, final int length) {
+      return valueForSuffix(CharSequenceViews.of(chars, offset, length));
+    }
+
+    default T valueForSuffix(final byte[] utf8, final int offset, final int length) {
+      return valueForSuffix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+
+    default T valueForSuffix(final ByteBuffer utf8, final int offset, final int length) {
+      return valueForSuffix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+
+    Pair<String, T> keyAndValueForSuffix(final String string);
+
+    default Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return keyAndValueForSuffix(string == null ? null : string.toString());
+    }
+
+    default Pair<String, T> keyAndValueForSuffix(
+        final char[] chars, final int offset, final int length) {
+      return keyAndValueForSuffix(CharSequenceViews.of(chars, offset, length));
+    }
+
+    default Pair<String, T> keyAndValueForSuffix(
+        final byte[] utf8, final int offset, final int length) {
+      return keyAndValueForSuffix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+
+    default Pair<String, T> keyAndValueForSuffix(
+        final ByteBuffer utf8, final int offset, final int length) {
+      return keyAndValueForSuffix(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+
+    default void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+      if (string == null) {
+        return;
+      }
+
+      for (int length = 1; length <= string.length(); length++) {
+
+        final Pair<String, T> keyAndValue =
+            keyAndValueForSuffix(string.subSequence(string.length() - length, string.length()));
+
+        if (keyAndValue != null && keyAndValue.first.length() == length) {
+          consumer.accept(keyAndValue.first, keyAndValue.second);
+        }
+      }
+    }
+
+    default void valuesForSuffixes(final CharSequence[] strings, final Object[] values) {
+      valuesForSuffixes(strings, values, null);
+    }
+
+    default void valuesForSuffixes(
+        final CharSequence[] strings, final Object[] values, final ForkJoinPool pool) {
+      BatchLookups.lookUp(
+          BatchLookups.rangeLookup(this, string -> keyAndValueForSuffix(string)),
+          strings,
+          values,
+          true,
+          pool);
+    }
+
+    default Stream<T> valuesForSuffixes(final Stream<? extends CharSequence> strings) {
+      return strings.map(string -> valueForSuffix(string));
+    }
+
+    default void keysAndValuesForSuffixes(
+        final CharSequence[] strings, final Object[] keysAndValues) {
+      keysAndValuesForSuffixes(strings, keysAndValues, null);
+    }
+
+    default void keysAndValuesForSuffixes(
+        final CharSequence[] strings, final Object[] keysAndValues, final ForkJoinPool pool) {
+      BatchLookups.lookUp(
+          BatchLookups.rangeLookup(this, string -> keyAndValueForSuffix(string)),
+          strings,
+          keysAndValues,
+          false,
+          pool);
+    }
+
+    default Stream<Pair<String, T>> keysAndValuesForSuffixes(
+        final Stream<? extends CharSequence> strings) {
+      return strings.map(string -> keyAndValueForSuffix(string));
+    }
+  }
+
+  // Lookups on immutable matchers and mappings always give the same result for the same string.
+  public interface ImmutablePrefixMatcher extends PrefixMatcher {}
+
+  public interface ImmutableSuffixMatcher extends SuffixMatcher {}
+
+  public interface ImmutablePrefixMapping<T> extends PrefixMapping<T>, ImmutablePrefixMatcher {}
+
+  public interface ImmutableSuffixMapping<T> extends SuffixMapping<T>, ImmutableSuffixMatcher {}
+
+  // Lookups see the latest completed update without waiting on writers. Only snapshots are
+  // immutable.
+  public interface ConcurrentPrefixMapping<T> extends PrefixMapping<T> {
+    T put(final String prefix, final T value);
+
+    T remove(final String prefix);
+
+    ImmutablePrefixMapping<T> snapshot();
+  }
+
+  // Lookups see the latest completed update without waiting on writers. Only snapshots are
+  // immutable.
+  public interface ConcurrentSuffixMapping<T> extends SuffixMapping<T> {
+    T put(final String suffix, final T value);
+
+    T remove(final String suffix);
+
+    ImmutableSuffixMapping<T> snapshot();
+  }
+
+  // Lookups read and update the cache without locking.
+  public interface CachedPrefixMapping<T> extends ImmutablePrefixMapping<T> {
+    long hitCount();
+
+    long missCount();
+  }
+
+  // Lookups read and update the cache without locking.
+  public interface CachedSuffixMapping<T> extends ImmutableSuffixMapping<T> {
+    long hitCount();
+
+    long missCount();
+  }
+
+  // Lookups are counted without locking. Unmetered mappings pay nothing for metrics.
+  public interface MeteredPrefixMapping<T> extends ImmutablePrefixMapping<T> {
+    LookupMetricsSnapshot metrics();
+  }
+
+  // Lookups are counted without locking. Unmetered mappings pay nothing for metrics.
+  public interface MeteredSuffixMapping<T> extends ImmutableSuffixMapping<T> {
+    LookupMetricsSnapshot metrics();
+  }
+
+  // Most strings which can't match are rejected before the engine runs.
+  public interface PrefilteredPrefixMapping<T> extends ImmutablePrefixMapping<T> {
+    // The estimated fraction of strings which can't match but still pass the prefilter.
+    double falsePositiveRate();
+  }
+
+  // Most strings which can't match are rejected before the engine runs.
+  public interface PrefilteredSuffixMapping<T> extends ImmutableSuffixMapping<T> {
+    // The estimated fraction of strings which can't match but still pass the prefilter.
+    double falsePositiveRate();
+  }
+
+  // Each count is read separately while lookups continue, so counts may disagree by the lookups
+  // which were in progress.
+  public static final class LookupMetricsSnapshot {
+
+    private final long hits;
+    private final long misses;
+    private final long steps;
+    private final long[] stepsHistogram;
+    private final long[] matchLengthHistogram;
+
+    LookupMetricsSnapshot(
+        final long hits,
+        final long misses,
+        final long steps,
+        final long[] stepsHistogram,
+        final long[] matchLengthHistogram) {
+      this.hits = hits;
+      this.misses = misses;
+      this.steps = steps;
+      this.stepsHistogram = stepsHistogram;
+      this.matchLengthHistogram = matchLengthHistogram;
+    }
+
+    public long lookups() {
+      return hits + misses;
+    }
+
+    public long hits() {
+      return hits;
+    }
+
+    public long misses() {
+      return misses;
+    }
+
+    // Only mappings created by this class report search steps.
+    public long steps() {
+      return steps;
+    }
+
+    // Index 0 counts lookups which took no steps and index i counts lookups which took
+    // [2^(i - 1), 2^i) steps.
+    public long[] stepsHistogram() {
+      return stepsHistogram.clone();
+    }
+
+    // Index 0 counts matches of length 0 and index i counts matches of length [2^(i - 1), 2^i).
+    public long[] matchLengthHistogram() {
+      return matchLengthHistogram.clone();
+    }
+
+    @Override
+    public String toString() {
+      return "LookupMetricsSnapshot{"
+          + "lookups="
+          + lookups()
+          + ", hits="
+          + hits
+          + ", misses="
+          + misses
+          + ", steps="
+          + steps
+          + ", stepsHistogram="
+          + Arrays.toString(stepsHistogram)
+          + ", matchLengthHistogram="
+          + Arrays.toString(matchLengthHistogram)
+          + '}';
+    }
+  }
+
+  // Values are stored unboxed, so lookups never allocate or return Pairs.
+  public interface ImmutablePrefixIntMapping extends ImmutablePrefixMatcher {
+
+    @Override
+    default boolean matchesAnyPrefix(final String string) {
+      return matchLengthForPrefix(string) >= 0;
+    }
+
+    @Override
+    default boolean matchesAnyPrefix(final CharSequence string) {
+      return matchLengthForPrefix(string) >= 0;
+    }
+
+    default int valueForPrefix(final String string, final int missingValue) {
+      return valueForPrefix((CharSequence) string, missingValue);
+    }
+
+    int valueForPrefix(final CharSequence string, final int missingValue);
+
+    default int valueForPrefix(
+        final char[] chars, final int offset, final int length, final int missingValue) {
+      return valueForPrefix(CharSequenceViews.of(chars, offset, length), missingValue);
+    }
+
+    default int valueForPrefix(
+        final byte[] utf8, final int offset, final int length, final int missingValue) {
+      return valueForPrefix(CharSequenceViews.ofUtf8(utf8, offset, length), missingValue);
+    }
+
+    default int valueForPrefix(
+        final ByteBuffer utf8, final int offset, final int length, final int missingValue) {
+      return valueForPrefix(CharSequenceViews.ofUtf8(utf8, offset, length), missingValue);
+    }
+
+    // Returns the length of the longest matching key or -1 if no key matches.
+    default int matchLengthForPrefix(final String string) {
+      return matchLengthForPrefix((CharSequence) string);
+    }
+
+    int matchLengthForPrefix(final CharSequence string);
+  }
+
+  // Values are stored unboxed, so lookups never allocate or return Pairs.
+  public interface ImmutablePrefixLongMapping extends ImmutablePrefixMatcher {
+
+    @Override
+    default boolean matchesAnyPrefix(final String string) {
+      return matchLengthForPrefix(string) >= 0;
+    }
+
+    @Override
+    default boolean matchesAnyPrefix(final CharSequence string) {
+      return matchLengthForPrefix(string) >= 0;
+    }
+
+    default long valueForPrefix(final String string, final long missingValue) {
+      return valueForPrefix((CharSequence) string, missingValue);
+    }
+
+    long valueForPrefix(final CharSequence string, final long missingValue);
+
+    default long valueForPrefix(
+        final char[] chars, final int offset, final int length, final long missingValue) {
+      return valueForPrefix(CharSequenceViews.of(chars, offset, length), missingValue);
+    }
+
+    default long valueForPrefix(
+        final byte[] utf8, final int offset, final int length, final long missingValue) {
+      return valueForPrefix(CharSequenceViews.ofUtf8(utf8, offset, length), missingValue);
+    }
+
+    default long valueForPrefix(
+        final ByteBuffer utf8, final int offset, final int length, final long missingValue) {
+      return valueForPrefix(CharSequenceViews.ofUtf8(utf8, offset, length), missingValue);
+    }
+
+    // Returns the length of the longest matching key or -1 if no key matches.
+    default int matchLengthForPrefix(final String string) {
+      return matchLengthForPrefix((CharSequence) string);
+    }
+
+    int matchLengthForPrefix(final CharSequence string);
+  }
+
+  // Values are stored unboxed, so lookups never allocate or return Pairs.
+  public interface ImmutableSuffixIntMapping extends ImmutableSuffixMatcher {
+
+    @Override
+    default boolean matchesAnySuffix(final String string) {
+      return matchLengthForSuffix(string) >= 0;
+    }
+
+    @Override
+    default boolean matchesAnySuffix(final CharSequence string) {
+      return matchLengthForSuffix(string) >= 0;
+    }
+
+    default int valueForSuffix(final String string, final int missingValue) {
+      return valueForSuffix((CharSequence) string, missingValue);
+    }
+
+    int valueForSuffix(final CharSequence string, final int missingValue);
+
+    default int valueForSuffix(
+        final char[] chars, final int offset, final int length, final int missingValue) {
+      return valueForSuffix(CharSequenceViews.of(chars, offset, length), missingValue);
+    }
+
+    default int valueForSuffix(
+        final byte[] utf8, final int offset, final int length, final int missingValue) {
+      return valueForSuffix(CharSequenceViews.ofUtf8(utf8, offset, length), missingValue);
+    }
+
+    default int valueForSuffix(
+        final ByteBuffer utf8, final int offset, final int length, final int missingValue) {
+      return valueForSuffix(CharSequenceViews.ofUtf8(utf8, offset, length), missingValue);
+    }
+
+    // Returns the length of the longest matching key or -1 if no key matches.
+    default int matchLengthForSuffix(final String string) {
+      return matchLengthForSuffix((CharSequence) string);
+    }
+
+    int matchLengthForSuffix(final CharSequence string);
+  }
+
+  // Values are stored unboxed, so lookups never allocate or return Pairs.
+  public interface ImmutableSuffixLongMapping extends ImmutableSuffixMatcher {
+
+    @Override
+    default boolean matchesAnySuffix(final String string) {
+      return matchLengthForSuffix(string) >= 0;
+    }
+
+    @Override
+    default boolean matchesAnySuffix(final CharSequence string) {
+      return matchLengthForSuffix(string) >= 0;
+    }
+
+    default long valueForSuffix(final String string, final long missingValue) {
+      return valueForSuffix((CharSequence) string, missingValue);
+    }
+
+    long valueForSuffix(final CharSequence string, final long missingValue);
+
+    default long valueForSuffix(
+        final char[] chars, final int offset, final int length, final long missingValue) {
+      return valueForSuffix(CharSequenceViews.of(chars, offset, length), missingValue);
+    }
+
+    default long valueForSuffix(
+        final byte[] utf8, final int offset, final int length, final long missingValue) {
+      return valueForSuffix(CharSequenceViews.ofUtf8(utf8, offset, length), missingValue);
+    }
+
+    default long valueForSuffix(
+        final ByteBuffer utf8, final int offset, final int length, final long missingValue) {
+      return valueForSuffix(CharSequenceViews.ofUtf8(utf8, offset, length), missingValue);
+    }
+
+    // Returns the length of the longest matching key or -1 if no key matches.
+    default int matchLengthForSuffix(final String string) {
+      return matchLengthForSuffix((CharSequence) string);
+    }
+
+    int matchLengthForSuffix(final CharSequence string);
+  }
+
+  public interface ImmutableInfixMatcher {
+    boolean matchesAnyInfix(final String string);
+  }
+
+  public interface ImmutableInfixMapping<T> extends ImmutableInfixMatcher {
+
+    @Override
+    default boolean matchesAnyInfix(final String string) {
+      return keyAndValueForInfix(string) != null;
+    }
+
+    default T valueForInfix(final String string) {
+      final Pair<String, T> keyAndValue = keyAndValueForInfix(string);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    Pair<String, T> keyAndValueForInfix(final String string);
+
+    Pair<String, T> longestKeyAndValueForInfix(final String string);
+
+    List<Pair<Integer, Pair<String, T>>> allKeysAndValuesForInfix(final String string);
+  }
+
+  // Patterns must match the whole string. '?' matches one char other than '/', '*' matches any
+  // chars other than '/' and '**' matches any chars. '\' matches the next char literally.
+  public interface ImmutablePatternMatcher {
+    boolean matchesAnyPattern(final String string);
+
+    default boolean matchesAnyPattern(final CharSequence string) {
+      return matchesAnyPattern(string == null ? null : string.toString());
+    }
+
+    default boolean matchesAnyPattern(final char[] chars, final int offset, final int length) {
+      return matchesAnyPattern(CharSequenceViews.of(chars, offset, length));
+    }
+
+    default boolean matchesAnyPattern(final byte[] utf8, final int offset, final int length) {
+      return matchesAnyPattern(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+  }
+
+  // When several patterns match, the most specific pattern is returned. Patterns with more literal
+  // chars are more specific, then patterns with fewer '**', then fewer '*'.
+  public interface ImmutablePatternMapping<T> extends ImmutablePatternMatcher {
+
+    @Override
+    default boolean matchesAnyPattern(final String string) {
+      return keyAndValueForPattern(string) != null;
+    }
+
+    @Override
+    default boolean matchesAnyPattern(final CharSequence string) {
+      return keyAndValueForPattern(string) != null;
+    }
+
+    default T valueForPattern(final String string) {
+      final Pair<String, T> keyAndValue = keyAndValueForPattern(string);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    default T valueForPattern(final CharSequence string) {
+      final Pair<String, T> keyAndValue = keyAndValueForPattern(string);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    default T valueForPattern(final char[] chars, final int offset, final int length) {
+      return valueForPattern(CharSequenceViews.of(chars, offset, length));
+    }
+
+    default T valueForPattern(final byte[] utf8, final int offset, final int length) {
+      return valueForPattern(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+
+    Pair<String, T> keyAndValueForPattern(final String string);
+
+    default Pair<String, T> keyAndValueForPattern(final CharSequence string) {
+      return keyAndValueForPattern(string == null ? null : string.toString());
+    }
+
+    default Pair<String, T> keyAndValueForPattern(
+        final char[] chars, final int offset, final int length) {
+      return keyAndValueForPattern(CharSequenceViews.of(chars, offset, length));
+    }
+
+    default Pair<String, T> keyAndValueForPattern(
+        final byte[] utf8, final int offset, final int length) {
+      return keyAndValueForPattern(CharSequenceViews.ofUtf8(utf8, offset, length));
+    }
+  }
+
+  private static Map<String, Boolean> toMap(final String... fixes) {
+    return Arrays.stream(fixes)
+        .collect(Collectors.toMap(key -> key, key -> true, (k1, k2) -> k1, HashMap::new));
+  }
+
+  public enum Engine {
+    BINARY_SEARCH_ARRAY,
+    LIMITED_CHAR_ARRAY_TRIE,
+    RADIX_TRIE,
+    DOUBLE_ARRAY_TRIE,
+    HASHED
+  }
+
+  public enum CaseFolding {
+    // Only folds A-Z, which is enough for hostnames, header names and most file extensions.
+    ASCII,
+    // Folds each char with Unicode simple case folding. ASCII chars skip the Unicode tables.
+    UNICODE;
+
+    char fold(final char char_) {
+
+      if (char_ < 0x80) {
+        return char_ >= 'A' && char_ <= 'Z' ? (char) (char_ + ('a' - 'A')) : char_;
+      }
+
+      if (this == ASCII) {
+        return char_;
+      }
+
+      return Character.toLowerCase(Character.toUpperCase(char_));
+    }
+
+    String fold(final String string) {
+
+      final char[] chars = new char[string.length()];
+
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = fold(string.charAt(i));
+      }
+
+      return new String(chars);
+    }
+  }
+
+  public static final class EngineChoice {
+
+    // Limited char array trie nodes each hold an array as wide as the alphabet, so only use it
+    // while every node array together stays small.
+    @VisibleForTesting static final long MAX_LIMITED_CHAR_ARRAY_TRIE_SLOTS = 1 << 16;
+    // Radix tries compress runs of unshared chars into one edge, so prefer them once keys average
+    // this many unshared chars.
+    @VisibleForTesting static final double MIN_RADIX_TRIE_UNSHARED_CHARS_PER_KEY = 8;
+    // Hashed lookups probe once for each distinct key length, so prefer them for large key sets
+    // with only a few key lengths.
+    @VisibleForTesting static final int MIN_HASHED_KEY_COUNT = 1 << 10;
+    @VisibleForTesting static final int MAX_HASHED_KEY_LENGTHS = 4;
+
+    private final Engine engine;
+    private final char min;
+    private final char max;
+    private final int keyCount;
+    private final int minKeyLength;
+    private final int maxKeyLength;
+    private final int distinctKeyLengths;
+    private final long trieNodeCount;
+    private final double sharedCharRatio;
+
+    private EngineChoice(
+        final Engine engine,
+        final char min,
+        final char max,
+        final int keyCount,
+        final int minKeyLength,
+        final int maxKeyLength,
+        final int distinctKeyLengths,
+        final long trieNodeCount,
+        final double sharedCharRatio) {
+      this.engine = engine;
+      this.min = min;
+      this.max = max;
+      this.keyCount = keyCount;
+      this.minKeyLength = minKeyLength;
+      this.maxKeyLength = maxKeyLength;
+      this.distinctKeyLengths = distinctKeyLengths;
+      this.trieNodeCount = trieNodeCount;
+      this.sharedCharRatio = sharedCharRatio;
+    }
+
+    public Engine engine() {
+      return engine;
+    }
+
+    public char min() {
+      return min;
+    }
+
+    public char max() {
+      return max;
+    }
+
+    public int keyCount() {
+      return keyCount;
+    }
+
+    public int minKeyLength() {
+      return minKeyLength;
+    }
+
+    public int maxKeyLength() {
+      return maxKeyLength;
+    }
+
+    public int distinctKeyLengths() {
+      return distinctKeyLengths;
+    }
+
+    public long trieNodeCount() {
+      return trieNodeCount;
+    }
+
+    public double sharedCharRatio() {
+      return sharedCharRatio;
+    }
+
+    public <T> ImmutablePrefixMapping<T> prefixMapping(final Map<String, T> prefixes) {
+      switch (engine) {
+        case BINARY_SEARCH_ARRAY:
+          return binarySearchArrayPrefixMapping(prefixes);
+        case LIMITED_CHAR_ARRAY_TRIE:
+          return limitedCharArrayTriePrefixMapping(min, max, prefixes);
+        case RADIX_TRIE:
+          return radixTriePrefixMapping(prefixes);
+        case HASHED:
+          return hashedPrefixMapping(prefixes);
+        default:
+          return doubleArrayTriePrefixMapping(prefixes);
+      }
+    }
+
+    public <T> ImmutableSuffixMapping<T> suffixMapping(final Map<String, T> suffixes) {
+      switch (engine) {
+        case BINARY_SEARCH_ARRAY:
+          return binarySearchArraySuffixMapping(suffixes);
+        case LIMITED_CHAR_ARRAY_TRIE:
+          return limitedCharArrayTrieSuffixMapping(min, max, suffixes);
+        case RADIX_TRIE:
+          return radixTrieSuffixMapping(suffixes);
+        case HASHED:
+          return hashedSuffixMapping(suffixes);
+        default:
+          return doubleArrayTrieSuffixMapping(suffixes);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "EngineChoice{"
+          + "engine="
+          + engine
+          + ", min="
+          + (int) min
+          + ", max="
+          + (int) max
+          + ", keyCount="
+          + keyCount
+          + ", minKeyLength="
+          + minKeyLength
+          + ", maxKeyLength="
+          + maxKeyLength
+          + ", distinctKeyLengths="
+          + distinctKeyLengths
+          + ", trieNodeCount="
+          + trieNodeCount
+          + ", sharedCharRatio="
+          + sharedCharRatio
+          + '}';
+    }
+  }
+
+  public static EngineChoice choosePrefixEngine(final Map<String, ?> prefixes) {
+    return chooseEngine(true, prefixes);
+  }
+
+  public static EngineChoice chooseSuffixEngine(final Map<String, ?> suffixes) {
+    return chooseEngine(false, suffixes);
+  }
+
+  // Binary search is never chosen since every trie finds matches in a single pass over the string
+  // and the double-array trie is nearly as compact.
+  private static EngineChoice chooseEngine(final boolean forPrefix, final Map<String, ?> fixes) {
+
+    // Invalid keys are skipped here so that the chosen engine reports them.
+    final String[] keys =
+        fixes.entrySet().stream()
+            .filter(entry -> entry != null && entry.getKey() != null && !entry.getKey().isEmpty())
+            .map(Map.Entry::getKey)
+            .toArray(String[]::new);
+
+    if (keys.length == 0) {
+      return new EngineChoice(Engine.DOUBLE_ARRAY_TRIE, '\0', '\0', 0, 0, 0, 0, 0, 0);
+    }
+
+    Arrays.sort(keys, (key1, key2) -> compareFixes(forPrefix, key1, key2));
+
+    char min = Character.MAX_VALUE;
+    char max = Character.MIN_VALUE;
+    int minKeyLength = Integer.MAX_VALUE;
+    int maxKeyLength = 0;
+    long charCount = 0;
+    // Each char after the chars shared with the previous sorted key adds one trie node.
+    long trieNodeCount = 0;
+
+    for (int i = 0; i < keys.length; i++) {
+
+      final String key = keys[i];
+      final int length = key.length();
+
+      for (int j = 0; j < length; j++) {
+
+        final char char_ = key.charAt(j);
+
+        if (char_ < min) {
+          min = char_;
+        }
+
+        if (char_ > max) {
+          max = char_;
+        }
+      }
+
+      minKeyLength = Math.min(minKeyLength, length);
+      maxKeyLength = Math.max(maxKeyLength, length);
+      charCount += length;
+      trieNodeCount += length - (i > 0 ? sharedFixLength(forPrefix, keys[i - 1], key) : 0);
+    }
+
+    final int offset = LimitedCharArrayTrieFixMapping.prevPowerOf2(min);
+    final long limitedCharArrayTrieSlots =
+        LimitedCharArrayTrieFixMapping.nextPowerOf2(
+                LimitedCharArrayTrieFixMapping.toIndex(max, offset) + 1)
+            * (trieNodeCount + 1);
+
+    final int distinctKeyLengths =
+        (int) Arrays.stream(keys).mapToInt(String::length).distinct().count();
+    final Engine engine;
+
+    if (limitedCharArrayTrieSlots <= EngineChoice.MAX_LIMITED_CHAR_ARRAY_TRIE_SLOTS) {
+      engine = Engine.LIMITED_CHAR_ARRAY_TRIE;
+    } else if (keys.length >= EngineChoice.MIN_HASHED_KEY_COUNT
+        && distinctKeyLengths <= EngineChoice.MAX_HASHED_KEY_LENGTHS) {
+      engine = Engine.HASHED;
+    } else if (((double) trieNodeCount / keys.length)
+        >= EngineChoice.MIN_RADIX_TRIE_UNSHARED_CHARS_PER_KEY) {
+      engine = Engine.RADIX_TRIE;
+    } else {
+      engine = Engine.DOUBLE_ARRAY_TRIE;
+    }
+
+    return new EngineChoice(
+        engine,
+        min,
+        max,
+        keys.length,
+        minKeyLength,
+        maxKeyLength,
+        distinctKeyLengths,
+        trieNodeCount,
+        1 - ((double) trieNodeCount / charCount));
+  }
+
+  private static int compareFixes(final boolean forPrefix, final String key1, final String key2) {
+
+    final int length1 = key1.length();
+    final int length2 = key2.length();
+    final int length = Math.min(length1, length2);
+
+    for (int i = 0; i < length; i++) {
+
+      final char char1 = key1.charAt(forPrefix ? i : length1 - i - 1);
+      final char char2 = key2.charAt(forPrefix ? i : length2 - i - 1);
+
+      if (char1 != char2) {
+        return char1 - char2;
+      }
+    }
+
+    return length1 - length2;
+  }
+
+  private static int sharedFixLength(
+      final boolean forPrefix, final String key1, final String key2) {
+
+    final int length1 = key1.length();
+    final int length2 = key2.length();
+    final int length = Math.min(length1, length2);
+    int i = 0;
+
+    while (i < length
+        && key1.charAt(forPrefix ? i : length1 - i - 1)
+            == key2.charAt(forPrefix ? i : length2 - i - 1)) {
+      i++;
+    }
+
+    return i;
+  }
+
+  public static ImmutablePrefixMatcher prefixMatcher(final String... prefixes) {
+    return prefixMapping(toMap(prefixes));
+  }
+
+  public static <T> ImmutablePrefixMapping<T> prefixMapping(final Map<String, T> prefixes) {
+    return choosePrefixEngine(prefixes).prefixMapping(prefixes);
+  }
+
+  public static ImmutableSuffixMatcher suffixMatcher(final String... suffixes) {
+    return suffixMapping(toMap(suffixes));
+  }
+
+  public static <T> ImmutableSuffixMapping<T> suffixMapping(final Map<String, T> suffixes) {
+    return chooseSuffixEngine(suffixes).suffixMapping(suffixes);
+  }
+
+  public static ImmutablePrefixMatcher prefixMatcher(
+      final CaseFolding caseFolding, final String... prefixes) {
+    return prefixMapping(toMap(prefixes), caseFolding);
+  }
+
+  // Keys are folded once here and input is folded as each char is read, so lookups don't
+  // allocate folded strings. Lookups return the original keys.
+  public static <T> ImmutablePrefixMapping<T> prefixMapping(
+      final Map<String, T> prefixes, final CaseFolding caseFolding) {
+    return new CaseFoldingPrefixMapping<>(
+        prefixMapping(foldKeys(prefixes, caseFolding)), caseFolding);
+  }
+
+  public static ImmutableSuffixMatcher suffixMatcher(
+      final CaseFolding caseFolding, final String... suffixes) {
+    return suffixMapping(toMap(suffixes), caseFolding);
+  }
+
+  public static <T> ImmutableSuffixMapping<T> suffixMapping(
+      final Map<String, T> suffixes, final CaseFolding caseFolding) {
+    return new CaseFoldingSuffixMapping<>(
+        suffixMapping(foldKeys(suffixes, caseFolding)), caseFolding);
+  }
+
+  private static <T> Map<String, Pair<String, T>> foldKeys(
+      final Map<String, T> fixes, final CaseFolding caseFolding) {
+
+    final Map<String, Pair<String, T>> foldedFixes = new HashMap<>();
+
+    for (final Map.Entry<String, T> fix : fixes.entrySet()) {
+
+      if (fix == null || fix.getKey() == null) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      if (foldedFixes.put(caseFolding.fold(fix.getKey()), Pair.fromEntry(fix)) != null) {
+        throw new IllegalArgumentException("Duplicate keys found for: " + fix.getKey());
+      }
+    }
+
+    return foldedFixes;
+  }
+
+  private static final class CaseFoldingPrefixMapping<T>
+      implements FixMapping<T>, ImmutablePrefixMapping<T> {
+
+    private final ImmutablePrefixMapping<Pair<String, T>> prefixMapping;
+    // Every engine is a FixMapping.
+    private final FixMapping<Pair<String, T>> fixMapping;
+    private final CaseFolding caseFolding;
+
+    @SuppressWarnings("unchecked")
+    private CaseFoldingPrefixMapping(
+        final ImmutablePrefixMapping<Pair<String, T>> prefixMapping,
+        final CaseFolding caseFolding) {
+      this.prefixMapping = prefixMapping;
+      this.fixMapping = (FixMapping<Pair<String, T>>) prefixMapping;
+      this.caseFolding = caseFolding;
+    }
+
+    @Override
+    public Pair<String, T> getKeyAndValue(
+        final boolean getLongestMatch,
+        final CharSequence string,
+        final AtomicLong debugSearchSteps) {
+
+      final Pair<String, Pair<String, T>> keyAndValue =
+          fixMapping.getKeyAndValue(
+              getLongestMatch, CharSequenceViews.caseFolded(string, caseFolding), debugSearchSteps);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      prefixMapping.forEachKeyAndValueForPrefix(
+          CharSequenceViews.newCaseFolded(string, caseFolding),
+          (key, keyAndValue) -> consumer.accept(keyAndValue.first, keyAndValue.second));
+    }
+  }
+
+  private static final class CaseFoldingSuffixMapping<T>
+      implements FixMapping<T>, ImmutableSuffixMapping<T> {
+
+    private final ImmutableSuffixMapping<Pair<String, T>> suffixMapping;
+    // Every engine is a FixMapping.
+    private final FixMapping<Pair<String, T>> fixMapping;
+    private final CaseFolding caseFolding;
+
+    @SuppressWarnings("unchecked")
+    private CaseFoldingSuffixMapping(
+        final ImmutableSuffixMapping<Pair<String, T>> suffixMapping,
+        final CaseFolding caseFolding) {
+      this.suffixMapping = suffixMapping;
+      this.fixMapping = (FixMapping<Pair<String, T>>) suffixMapping;
+      this.caseFolding = caseFolding;
+    }
+
+    @Override
+    public Pair<String, T> getKeyAndValue(
+        final boolean getLongestMatch,
+        final CharSequence string,
+        final AtomicLong debugSearchSteps) {
+
+      final Pair<String, Pair<String, T>> keyAndValue =
+          fixMapping.getKeyAndValue(
+              getLongestMatch, CharSequenceViews.caseFolded(string, caseFolding), debugSearchSteps);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      suffixMapping.forEachKeyAndValueForSuffix(
+          CharSequenceViews.newCaseFolded(string, caseFolding),
+          (key, keyAndValue) -> consumer.accept(keyAndValue.first, keyAndValue.second));
+    }
+  }
+
+  public static ImmutablePrefixMatcher binarySearchArrayPrefixMatcher(final String... prefixes) {
+    return new BinarySearchArrayPrefixMapping<>(false, toMap(prefixes));
+  }
+
+  public static <T> ImmutablePrefixMapping<T> binarySearchArrayPrefixMapping(
+      final Map<String, T> prefixes) {
+    return new BinarySearchArrayPrefixMapping<>(false, prefixes);
+  }
+
+  public static ImmutablePrefixMatcher eytzingerBinarySearchArrayPrefixMatcher(
+      final String... prefixes) {
+    return new BinarySearchArrayPrefixMapping<>(true, toMap(prefixes));
+  }
+
+  public static <T> ImmutablePrefixMapping<T> eytzingerBinarySearchArrayPrefixMapping(
+      final Map<String, T> prefixes) {
+    return new BinarySearchArrayPrefixMapping<>(true, prefixes);
+  }
+
+  private static final class BinarySearchArrayPrefixMapping<T>
+      extends BinarySearchArrayFixMapping<T> implements ImmutablePrefixMapping<T> {
+
+    private BinarySearchArrayPrefixMapping(
+        final boolean eytzinger, final Map<String, T> unsortedPrefixes) {
+      super(true, eytzinger, unsortedPrefixes);
+    }
+
+    private BinarySearchArrayPrefixMapping(
+        final boolean eytzinger, final Pair<String, T>[] prefixes, final boolean sorted) {
+      super(true, eytzinger, prefixes, sorted);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutableSuffixMatcher binarySearchArraySuffixMatcher(final String... suffixes) {
+    return new BinarySearchArraySuffixMapping<>(false, toMap(suffixes));
+  }
+
+  public static <T> ImmutableSuffixMapping<T> binarySearchArraySuffixMapping(
+      final Map<String, T> suffixes) {
+    return new BinarySearchArraySuffixMapping<>(false, suffixes);
+  }
+
+  public static ImmutableSuffixMatcher eytzingerBinarySearchArraySuffixMatcher(
+      final String... suffixes) {
+    return new BinarySearchArraySuffixMapping<>(true, toMap(suffixes));
+  }
+
+  public static <T> ImmutableSuffixMapping<T> eytzingerBinarySearchArraySuffixMapping(
+      final Map<String, T> suffixes) {
+    return new BinarySearchArraySuffixMapping<>(true, suffixes);
+  }
+
+  private static final class BinarySearchArraySuffixMapping<T>
+      extends BinarySearchArrayFixMapping<T> implements ImmutableSuffixMapping<T> {
+
+    private BinarySearchArraySuffixMapping(
+        final boolean eytzinger, final Map<String, T> unsortedSuffixes) {
+      super(false, eytzinger, unsortedSuffixes);
+    }
+
+    private BinarySearchArraySuffixMapping(
+        final boolean eytzinger, final Pair<String, T>[] suffixes, final boolean sorted) {
+      super(false, eytzinger, suffixes, sorted);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static <T> Builder<T> builder() {
+    return new Builder<>(16);
+  }
+
+  public static <T> Builder<T> builder(final int expectedKeyCount) {
+    return new Builder<>(expectedKeyCount);
+  }
+
+  // Builds binary search array mappings without first collecting keys into a Map. Keys which are
+  // added in search order are never sorted or copied again, so building uses little more memory
+  // than the built mapping, especially when the expected key count is known. Each builder builds
+  // one mapping.
+  public static final class Builder<T> {
+
+    private Pair<String, T>[] fixes;
+    private int size;
+    // Whether the keys so far are in prefix or suffix search order. Sorted keys are checked for
+    // duplicates as they are added.
+    private boolean prefixSorted = true;
+    private boolean suffixSorted = true;
+
+    @SuppressWarnings("unchecked")
+    private Builder(final int expectedKeyCount) {
+
+      if (expectedKeyCount < 0) {
+        throw new IllegalArgumentException("Expected key count cannot be negative.");
+      }
+
+      this.fixes = new Pair[expectedKeyCount];
+    }
+
+    public Builder<T> add(final String key, final T value) {
+
+      if (fixes == null) {
+        throw new IllegalStateException("Builder was already built.");
+      }
+
+      if (key == null || key.isEmpty()) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      if (size > 0 && (prefixSorted || suffixSorted)) {
+
+        final String prevKey = fixes[size - 1].first;
+
+        if (prevKey.equals(key)) {
+          throw new IllegalArgumentException("Duplicate keys found for: " + key);
+        }
+
+        prefixSorted =
+            prefixSorted && BinarySearchArrayFixMapping.compareFixes(true, prevKey, key) < 0;
+        suffixSorted =
+            suffixSorted && BinarySearchArrayFixMapping.compareFixes(false, prevKey, key) < 0;
+      }
+
+      if (size == fixes.length) {
+        fixes = Arrays.copyOf(fixes, Math.max(16, size + (size >> 1)));
+      }
+
+      fixes[size++] = Pair.of(key, value);
+      return this;
+    }
+
+    public Builder<T> addAll(final Iterator<? extends Map.Entry<String, ? extends T>> entries) {
+
+      while (entries.hasNext()) {
+
+        final Map.Entry<String, ? extends T> entry = entries.next();
+
+        if (entry == null) {
+          throw new IllegalArgumentException("Empty keys are not allowed.");
+        }
+
+        add(entry.getKey(), entry.getValue());
+      }
+
+      return this;
+    }
+
+    public Builder<T> addAll(final Stream<? extends Map.Entry<String, ? extends T>> entries) {
+      return addAll(entries.iterator());
+    }
+
+    // Each line is parsed into a key and value. Lines are read one at a time, so the whole input
+    // is never held in memory.
+    public Builder<T> addAll(
+        final BufferedReader lines,
+        final Function<? super String, ? extends Map.Entry<String, ? extends T>> parseLine)
+        throws IOException {
+
+      String line;
+
+      while ((line = lines.readLine()) != null) {
+
+        final Map.Entry<String, ? extends T> entry = parseLine.apply(line);
+
+        if (entry == null) {
+          throw new IllegalArgumentException("Empty keys are not allowed.");
+        }
+
+        add(entry.getKey(), entry.getValue());
+      }
+
+      return this;
+    }
+
+    public ImmutablePrefixMapping<T> buildPrefixMapping() {
+      final boolean sorted = prefixSorted;
+      return new BinarySearchArrayPrefixMapping<>(false, takeFixes(), sorted);
+    }
+
+    public ImmutableSuffixMapping<T> buildSuffixMapping() {
+      final boolean sorted = suffixSorted;
+      return new BinarySearchArraySuffixMapping<>(false, takeFixes(), sorted);
+    }
+
+    // The built mapping keeps the array, so the builder gives it up.
+    private Pair<String, T>[] takeFixes() {
+
+      if (fixes == null) {
+        throw new IllegalStateException("Builder was already built.");
+      }
+
+      final Pair<String, T>[] fixes =
+          size == this.fixes.length ? this.fixes : Arrays.copyOf(this.fixes, size);
+      this.fixes = null;
+      return fixes;
+    }
+  }
+
+  public static ImmutablePrefixMatcher frontCodedArrayPrefixMatcher(final String... prefixes) {
+    return new FrontCodedArrayPrefixMapping<>(toMap(prefixes));
+  }
+
+  public static <T> ImmutablePrefixMapping<T> frontCodedArrayPrefixMapping(
+      final Map<String, T> prefixes) {
+    return new FrontCodedArrayPrefixMapping<>(prefixes);
+  }
+
+  private static final class FrontCodedArrayPrefixMapping<T> extends FrontCodedArrayFixMapping<T>
+      implements ImmutablePrefixMapping<T> {
+
+    private FrontCodedArrayPrefixMapping(final Map<String, T> unsortedPrefixes) {
+      super(true, unsortedPrefixes);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return getKeyIndex(false, string, null) != NO_KEY;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyIndex(false, string, null) != NO_KEY;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutableSuffixMatcher frontCodedArraySuffixMatcher(final String... suffixes) {
+    return new FrontCodedArraySuffixMapping<>(toMap(suffixes));
+  }
+
+  public static <T> ImmutableSuffixMapping<T> frontCodedArraySuffixMapping(
+      final Map<String, T> suffixes) {
+    return new FrontCodedArraySuffixMapping<>(suffixes);
+  }
+
+  private static final class FrontCodedArraySuffixMapping<T> extends FrontCodedArrayFixMapping<T>
+      implements ImmutableSuffixMapping<T> {
+
+    private FrontCodedArraySuffixMapping(final Map<String, T> unsortedSuffixes) {
+      super(false, unsortedSuffixes);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return getKeyIndex(false, string, null) != NO_KEY;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyIndex(false, string, null) != NO_KEY;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutablePrefixMatcher limitedCharArrayTriePrefixMatcher(
+      final char min, final char max, final String... prefixes) {
+    return new LimitedCharArrayTriePrefixMapping<>(false, min, max, toMap(prefixes));
+  }
+
+  public static <T> ImmutablePrefixMapping<T> limitedCharArrayTriePrefixMapping(
+      final char min, final char max, final Map<String, T> prefixes) {
+    return new LimitedCharArrayTriePrefixMapping<>(false, min, max, prefixes);
+  }
+
+  public static ImmutablePrefixMatcher sparseLimitedCharArrayTriePrefixMatcher(
+      final char min, final char max, final String... prefixes) {
+    return new LimitedCharArrayTriePrefixMapping<>(true, min, max, toMap(prefixes));
+  }
+
+  public static <T> ImmutablePrefixMapping<T> sparseLimitedCharArrayTriePrefixMapping(
+      final char min, final char max, final Map<String, T> prefixes) {
+    return new LimitedCharArrayTriePrefixMapping<>(true, min, max, prefixes);
+  }
+
+  private static final class LimitedCharArrayTriePrefixMapping<T>
+      extends LimitedCharArrayTrieFixMapping<T> implements ImmutablePrefixMapping<T> {
+    private LimitedCharArrayTriePrefixMapping(
+        final boolean sparse, final char min, final char max, final Map<String, T> prefixes) {
+      super(true, sparse, min, max, prefixes);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutableSuffixMatcher limitedCharArrayTrieSuffixMatcher(
+      final char min, final char max, final String... suffixes) {
+    return new LimitedCharArrayTrieSuffixMapping<>(false, min, max, toMap(suffixes));
+  }
+
+  public static <T> ImmutableSuffixMapping<T> limitedCharArrayTrieSuffixMapping(
+      final char min, final char max, final Map<String, T> suffixes) {
+    return new LimitedCharArrayTrieSuffixMapping<>(false, min, max, suffixes);
+  }
+
+  public static ImmutableSuffixMatcher sparseLimitedCharArrayTrieSuffixMatcher(
+      final char min, final char max, final String... suffixes) {
+    return new LimitedCharArrayTrieSuffixMapping<>(true, min, max, toMap(suffixes));
+  }
+
+  public static <T> ImmutableSuffixMapping<T> sparseLimitedCharArrayTrieSuffixMapping(
+      final char min, final char max, final Map<String, T> suffixes) {
+    return new LimitedCharArrayTrieSuffixMapping<>(true, min, max, suffixes);
+  }
+
+  private static final class LimitedCharArrayTrieSuffixMapping<T>
+      extends LimitedCharArrayTrieFixMapping<T> implements ImmutableSuffixMapping<T> {
+    private LimitedCharArrayTrieSuffixMapping(
+        final boolean sparse, final char min, final char max, final Map<String, T> suffixes) {
+      super(false, sparse, min, max, suffixes);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutablePrefixMatcher unicodeTriePrefixMatcher(final String... prefixes) {
+    return new UnicodeTriePrefixMapping<>(toMap(prefixes));
+  }
+
+  public static <T> ImmutablePrefixMapping<T> unicodeTriePrefixMapping(
+      final Map<String, T> prefixes) {
+    return new UnicodeTriePrefixMapping<>(prefixes);
+  }
+
+  private static final class UnicodeTriePrefixMapping<T> extends UnicodeTrieFixMapping<T>
+      implements ImmutablePrefixMapping<T> {
+    private UnicodeTriePrefixMapping(final Map<String, T> prefixes) {
+      super(true, prefixes);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutableSuffixMatcher unicodeTrieSuffixMatcher(final String... suffixes) {
+    return new UnicodeTrieSuffixMapping<>(toMap(suffixes));
+  }
+
+  public static <T> ImmutableSuffixMapping<T> unicodeTrieSuffixMapping(
+      final Map<String, T> suffixes) {
+    return new UnicodeTrieSuffixMapping<>(suffixes);
+  }
+
+  private static final class UnicodeTrieSuffixMapping<T> extends UnicodeTrieFixMapping<T>
+      implements ImmutableSuffixMapping<T> {
+    private UnicodeTrieSuffixMapping(final Map<String, T> suffixes) {
+      super(false, suffixes);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutablePrefixMatcher radixTriePrefixMatcher(final String... prefixes) {
+    return new RadixTriePrefixMapping<>(toMap(prefixes));
+  }
+
+  public static <T> ImmutablePrefixMapping<T> radixTriePrefixMapping(
+      final Map<String, T> prefixes) {
+    return new RadixTriePrefixMapping<>(prefixes);
+  }
+
+  private static final class RadixTriePrefixMapping<T> extends RadixTrieFixMapping<T>
+      implements ImmutablePrefixMapping<T> {
+    private RadixTriePrefixMapping(final Map<String, T> prefixes) {
+      super(true, prefixes);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutableSuffixMatcher radixTrieSuffixMatcher(final String... suffixes) {
+    return new RadixTrieSuffixMapping<>(toMap(suffixes));
+  }
+
+  public static <T> ImmutableSuffixMapping<T> radixTrieSuffixMapping(
+      final Map<String, T> suffixes) {
+    return new RadixTrieSuffixMapping<>(suffixes);
+  }
+
+  private static final class RadixTrieSuffixMapping<T> extends RadixTrieFixMapping<T>
+      implements ImmutableSuffixMapping<T> {
+    private RadixTrieSuffixMapping(final Map<String, T> suffixes) {
+      super(false, suffixes);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutablePrefixMatcher doubleArrayTriePrefixMatcher(final String... prefixes) {
+    return new DoubleArrayTriePrefixMapping<>(toMap(prefixes));
+  }
+
+  public static <T> ImmutablePrefixMapping<T> doubleArrayTriePrefixMapping(
+      final Map<String, T> prefixes) {
+    return new DoubleArrayTriePrefixMapping<>(prefixes);
+  }
+
+  private static final class DoubleArrayTriePrefixMapping<T> extends DoubleArrayTrieFixMapping<T>
+      implements ImmutablePrefixMapping<T> {
+    private DoubleArrayTriePrefixMapping(final Map<String, T> prefixes) {
+      super(true, prefixes);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutableSuffixMatcher doubleArrayTrieSuffixMatcher(final String... suffixes) {
+    return new DoubleArrayTrieSuffixMapping<>(toMap(suffixes));
+  }
+
+  public static <T> ImmutableSuffixMapping<T> doubleArrayTrieSuffixMapping(
+      final Map<String, T> suffixes) {
+    return new DoubleArrayTrieSuffixMapping<>(suffixes);
+  }
+
+  private static final class DoubleArrayTrieSuffixMapping<T> extends DoubleArrayTrieFixMapping<T>
+      implements ImmutableSuffixMapping<T> {
+    private DoubleArrayTrieSuffixMapping(final Map<String, T> suffixes) {
+      super(false, suffixes);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutablePrefixMatcher hashedPrefixMatcher(final String... prefixes) {
+    return new HashedPrefixMapping<>(toMap(prefixes));
+  }
+
+  public static <T> ImmutablePrefixMapping<T> hashedPrefixMapping(final Map<String, T> prefixes) {
+    return new HashedPrefixMapping<>(prefixes);
+  }
+
+  private static final class HashedPrefixMapping<T> extends HashedFixMapping<T>
+      implements ImmutablePrefixMapping<T> {
+    private HashedPrefixMapping(final Map<String, T> prefixes) {
+      super(true, prefixes);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutableSuffixMatcher hashedSuffixMatcher(final String... suffixes) {
+    return new HashedSuffixMapping<>(toMap(suffixes));
+  }
+
+  public static <T> ImmutableSuffixMapping<T> hashedSuffixMapping(final Map<String, T> suffixes) {
+    return new HashedSuffixMapping<>(suffixes);
+  }
+
+  private static final class HashedSuffixMapping<T> extends HashedFixMapping<T>
+      implements ImmutableSuffixMapping<T> {
+    private HashedSuffixMapping(final Map<String, T> suffixes) {
+      super(false, suffixes);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static ImmutablePrefixIntMapping prefixIntMapping(final Map<String, Integer> prefixes) {
+    return new PrefixIntMapping(new DoubleArrayTrieFixMapping<>(true, keysOf(prefixes)), prefixes);
+  }
+
+  public static ImmutablePrefixIntMapping binarySearchArrayPrefixIntMapping(
+      final Map<String, Integer> prefixes) {
+    return new PrefixIntMapping(
+        new BinarySearchArrayFixMapping<>(true, keysOf(prefixes)), prefixes);
+  }
+
+  public static ImmutablePrefixIntMapping limitedCharArrayTriePrefixIntMapping(
+      final char min, final char max, final Map<String, Integer> prefixes) {
+    return new PrefixIntMapping(
+        new LimitedCharArrayTrieFixMapping<>(true, false, min, max, keysOf(prefixes)), prefixes);
+  }
+
+  public static ImmutablePrefixIntMapping sparseLimitedCharArrayTriePrefixIntMapping(
+      final char min, final char max, final Map<String, Integer> prefixes) {
+    return new PrefixIntMapping(
+        new LimitedCharArrayTrieFixMapping<>(true, true, min, max, keysOf(prefixes)), prefixes);
+  }
+
+  private static final class PrefixIntMapping implements ImmutablePrefixIntMapping {
+
+    private final IndexedFixMapping<Boolean> fixMapping;
+    private final int[] values;
+    private final int[] keyLengths;
+
+    private PrefixIntMapping(
+        final IndexedFixMapping<Boolean> fixMapping, final Map<String, Integer> prefixes) {
+      this.fixMapping = fixMapping;
+      this.values = intValues(fixMapping, prefixes);
+      this.keyLengths = keyLengths(fixMapping);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return fixMapping.getKeyIndex(false, string, null) != IndexedFixMapping.NO_KEY;
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return fixMapping.getKeyIndex(false, string, null) != IndexedFixMapping.NO_KEY;
+    }
+
+    @Override
+    public int valueForPrefix(final CharSequence string, final int missingValue) {
+
+      final int keyIndex = fixMapping.getKeyIndex(true, string, null);
+
+      if (keyIndex == IndexedFixMapping.NO_KEY) {
+        return missingValue;
+      }
+
+      return values[keyIndex];
+    }
+
+    @Override
+    public int matchLengthForPrefix(final CharSequence string) {
+
+      final int keyIndex = fixMapping.getKeyIndex(true, string, null);
+
+      if (keyIndex == IndexedFixMapping.NO_KEY) {
+        return -1;
+      }
+
+      return keyLengths[keyIndex];
+    }
+  }
+
+  public static ImmutablePrefixLongMapping prefixLongMapping(final Map<String, Long> prefixes) {
+    return new PrefixLongMapping(new DoubleArrayTrieFixMapping<>(true, keysOf(prefixes)), prefixes);
+  }
+
+  public static ImmutablePrefixLongMapping binarySearchArrayPrefixLongMapping(
+      final Map<String, Long> prefixes) {
+    return new PrefixLongMapping(
+        new BinarySearchArrayFixMapping<>(true, keysOf(prefixes)), prefixes);
+  }
+
+  public static ImmutablePrefixLongMapping limitedCharArrayTriePrefixLongMapping(
+      final char min, final char max, final Map<String, Long> prefixes) {
+    return new PrefixLongMapping(
+        new LimitedCharArrayTrieFixMapping<>(true, false, min, max, keysOf(prefixes)), prefixes);
+  }
+
+  public static ImmutablePrefixLongMapping sparseLimitedCharArrayTriePrefixLongMapping(
+      final char min, final char max, final Map<String, Long> prefixes) {
+    return new PrefixLongMapping(
+        new LimitedCharArrayTrieFixMapping<>(true, true, min, max, keysOf(prefixes)), prefixes);
+  }
+
+  private static final class PrefixLongMapping implements ImmutablePrefixLongMapping {
+
+    private final IndexedFixMapping<Boolean> fixMapping;
+    private final long[] values;
+    private final int[] keyLengths;
+
+    private PrefixLongMapping(
+        final IndexedFixMapping<Boolean> fixMapping, final Map<String, Long> prefixes) {
+      this.fixMapping = fixMapping;
+      this.values = longValues(fixMapping, prefixes);
+      this.keyLengths = keyLengths(fixMapping);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return fixMapping.getKeyIndex(false, string, null) != IndexedFixMapping.NO_KEY;
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return fixMapping.getKeyIndex(false, string, null) != IndexedFixMapping.NO_KEY;
+    }
+
+    @Override
+    public long valueForPrefix(final CharSequence string, final long missingValue) {
+
+      final int keyIndex = fixMapping.getKeyIndex(true, string, null);
+
+      if (keyIndex == IndexedFixMapping.NO_KEY) {
+        return missingValue;
+      }
+
+      return values[keyIndex];
+    }
+
+    @Override
+    public int matchLengthForPrefix(final CharSequence string) {
+
+      final int keyIndex = fixMapping.getKeyIndex(true, string, null);
+
+      if (keyIndex == IndexedFixMapping.NO_KEY) {
+        return -1;
+      }
+
+      return keyLengths[keyIndex];
+    }
+  }
+
+  public static ImmutableSuffixIntMapping suffixIntMapping(final Map<String, Integer> suffixes) {
+    return new SuffixIntMapping(new DoubleArrayTrieFixMapping<>(false, keysOf(suffixes)), suffixes);
+  }
+
+  public static ImmutableSuffixIntMapping binarySearchArraySuffixIntMapping(
+      final Map<String, Integer> suffixes) {
+    return new SuffixIntMapping(
+        new BinarySearchArrayFixMapping<>(false, keysOf(suffixes)), suffixes);
+  }
+
+  public static ImmutableSuffixIntMapping limitedCharArrayTrieSuffixIntMapping(
+      final char min, final char max, final Map<String, Integer> suffixes) {
+    return new SuffixIntMapping(
+        new LimitedCharArrayTrieFixMapping<>(false, false, min, max, keysOf(suffixes)), suffixes);
+  }
+
+  public static ImmutableSuffixIntMapping sparseLimitedCharArrayTrieSuffixIntMapping(
+      final char min, final char max, final Map<String, Integer> suffixes) {
+    return new SuffixIntMapping(
+        new LimitedCharArrayTrieFixMapping<>(false, true, min, max, keysOf(suffixes)), suffixes);
+  }
+
+  private static final class SuffixIntMapping implements ImmutableSuffixIntMapping {
+
+    private final IndexedFixMapping<Boolean> fixMapping;
+    private final int[] values;
+    private final int[] keyLengths;
+
+    private SuffixIntMapping(
+        final IndexedFixMapping<Boolean> fixMapping, final Map<String, Integer> suffixes) {
+      this.fixMapping = fixMapping;
+      this.values = intValues(fixMapping, suffixes);
+      this.keyLengths = keyLengths(fixMapping);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return fixMapping.getKeyIndex(false, string, null) != IndexedFixMapping.NO_KEY;
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return fixMapping.getKeyIndex(false, string, null) != IndexedFixMapping.NO_KEY;
+    }
+
+    @Override
+    public int valueForSuffix(final CharSequence string, final int missingValue) {
+
+      final int keyIndex = fixMapping.getKeyIndex(true, string, null);
+
+      if (keyIndex == IndexedFixMapping.NO_KEY) {
+        return missingValue;
+      }
+
+      return values[keyIndex];
+    }
+
+    @Override
+    public int matchLengthForSuffix(final CharSequence string) {
+
+      final int keyIndex = fixMapping.getKeyIndex(true, string, null);
+
+      if (keyIndex == IndexedFixMapping.NO_KEY) {
+        return -1;
+      }
+
+      return keyLengths[keyIndex];
+    }
+  }
+
+  public static ImmutableSuffixLongMapping suffixLongMapping(final Map<String, Long> suffixes) {
+    return new SuffixLongMapping(
+        new DoubleArrayTrieFixMapping<>(false, keysOf(suffixes)), suffixes);
+  }
+
+  public static ImmutableSuffixLongMapping binarySearchArraySuffixLongMapping(
+      final Map<String, Long> suffixes) {
+    return new SuffixLongMapping(
+        new BinarySearchArrayFixMapping<>(false, keysOf(suffixes)), suffixes);
+  }
+
+  public static ImmutableSuffixLongMapping limitedCharArrayTrieSuffixLongMapping(
+      final char min, final char max, final Map<String, Long> suffixes) {
+    return new SuffixLongMapping(
+        new LimitedCharArrayTrieFixMapping<>(false, false, min, max, keysOf(suffixes)), suffixes);
+  }
+
+  public static ImmutableSuffixLongMapping sparseLimitedCharArrayTrieSuffixLongMapping(
+      final char min, final char max, final Map<String, Long> suffixes) {
+    return new SuffixLongMapping(
+        new LimitedCharArrayTrieFixMapping<>(false, true, min, max, keysOf(suffixes)), suffixes);
+  }
+
+  private static final class SuffixLongMapping implements ImmutableSuffixLongMapping {
+
+    private final IndexedFixMapping<Boolean> fixMapping;
+    private final long[] values;
+    private final int[] keyLengths;
+
+    private SuffixLongMapping(
+        final IndexedFixMapping<Boolean> fixMapping, final Map<String, Long> suffixes) {
+      this.fixMapping = fixMapping;
+      this.values = longValues(fixMapping, suffixes);
+      this.keyLengths = keyLengths(fixMapping);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return fixMapping.getKeyIndex(false, string, null) != IndexedFixMapping.NO_KEY;
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return fixMapping.getKeyIndex(false, string, null) != IndexedFixMapping.NO_KEY;
+    }
+
+    @Override
+    public long valueForSuffix(final CharSequence string, final long missingValue) {
+
+      final int keyIndex = fixMapping.getKeyIndex(true, string, null);
+
+      if (keyIndex == IndexedFixMapping.NO_KEY) {
+        return missingValue;
+      }
+
+      return values[keyIndex];
+    }
+
+    @Override
+    public int matchLengthForSuffix(final CharSequence string) {
+
+      final int keyIndex = fixMapping.getKeyIndex(true, string, null);
+
+      if (keyIndex == IndexedFixMapping.NO_KEY) {
+        return -1;
+      }
+
+      return keyLengths[keyIndex];
+    }
+  }
+
+  // The engines only hold the keys, so the primitive array is the only copy of the values.
+  private static Map<String, Boolean> keysOf(final Map<String, ?> fixes) {
+
+    final Map<String, Boolean> keys = new HashMap<>();
+
+    for (final String key : fixes.keySet()) {
+      keys.put(key, true);
+    }
+
+    return keys;
+  }
+
+  private static int[] intValues(
+      final IndexedFixMapping<?> fixMapping, final Map<String, Integer> fixes) {
+
+    final int[] values = new int[fixMapping.size()];
+
+    for (int i = 0; i < values.length; i++) {
+
+      final String key = fixMapping.keyAndValueAt(i).first;
+      final Integer value = fixes.get(key);
+
+      if (value == null) {
+        throw new IllegalArgumentException("Null values are not allowed for: " + key);
+      }
+
+      values[i] = value;
+    }
+
+    return values;
+  }
+
+  private static long[] longValues(
+      final IndexedFixMapping<?> fixMapping, final Map<String, Long> fixes) {
+
+    final long[] values = new long[fixMapping.size()];
+
+    for (int i = 0; i < values.length; i++) {
+
+      final String key = fixMapping.keyAndValueAt(i).first;
+      final Long value = fixes.get(key);
+
+      if (value == null) {
+        throw new IllegalArgumentException("Null values are not allowed for: " + key);
+      }
+
+      values[i] = value;
+    }
+
+    return values;
+  }
+
+  private static int[] keyLengths(final IndexedFixMapping<?> fixMapping) {
+
+    final int[] keyLengths = new int[fixMapping.size()];
+
+    for (int i = 0; i < keyLengths.length; i++) {
+      keyLengths[i] = fixMapping.keyAndValueAt(i).first.length();
+    }
+
+    return keyLengths;
+  }
+
+  // Builds a prefilter from the heads of the prefixes, which is worth it when most lookups miss.
+  public static <T> PrefilteredPrefixMapping<T> prefilteredPrefixMapping(
+      final Map<String, T> prefixes) {
+    return new PrefilteringPrefixMapping<>(prefixMapping(prefixes), prefixes.keySet());
+  }
+
+  private static final class PrefilteringPrefixMapping<T>
+      implements FixMapping<T>, PrefilteredPrefixMapping<T> {
+
+    private final ImmutablePrefixMapping<T> prefixMapping;
+    // Every engine is a FixMapping.
+    private final FixMapping<T> fixMapping;
+    private final NegativeLookupFilter filter;
+
+    @SuppressWarnings("unchecked")
+    private PrefilteringPrefixMapping(
+        final ImmutablePrefixMapping<T> prefixMapping, final Set<String> prefixes) {
+      this.prefixMapping = prefixMapping;
+      this.fixMapping = (FixMapping<T>) prefixMapping;
+      this.filter = new NegativeLookupFilter(true, prefixes);
+    }
+
+    @Override
+    public Pair<String, T> getKeyAndValue(
+        final boolean getLongestMatch,
+        final CharSequence string,
+        final AtomicLong debugSearchSteps) {
+
+      if (!filter.mightMatch(string)) {
+        return null;
+      }
+
+      return fixMapping.getKeyAndValue(getLongestMatch, string, debugSearchSteps);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+      if (filter.mightMatch(string)) {
+        prefixMapping.forEachKeyAndValueForPrefix(string, consumer);
+      }
+    }
+
+    @Override
+    public double falsePositiveRate() {
+      return filter.falsePositiveRate();
+    }
+  }
+
+  // Builds a prefilter from the tails of the suffixes, which is worth it when most lookups miss.
+  public static <T> PrefilteredSuffixMapping<T> prefilteredSuffixMapping(
+      final Map<String, T> suffixes) {
+    return new PrefilteringSuffixMapping<>(suffixMapping(suffixes), suffixes.keySet());
+  }
+
+  private static final class PrefilteringSuffixMapping<T>
+      implements FixMapping<T>, PrefilteredSuffixMapping<T> {
+
+    private final ImmutableSuffixMapping<T> suffixMapping;
+    // Every engine is a FixMapping.
+    private final FixMapping<T> fixMapping;
+    private final NegativeLookupFilter filter;
+
+    @SuppressWarnings("unchecked")
+    private PrefilteringSuffixMapping(
+        final ImmutableSuffixMapping<T> suffixMapping, final Set<String> suffixes) {
+      this.suffixMapping = suffixMapping;
+      this.fixMapping = (FixMapping<T>) suffixMapping;
+      this.filter = new NegativeLookupFilter(false, suffixes);
+    }
+
+    @Override
+    public Pair<String, T> getKeyAndValue(
+        final boolean getLongestMatch,
+        final CharSequence string,
+        final AtomicLong debugSearchSteps) {
+
+      if (!filter.mightMatch(string)) {
+        return null;
+      }
+
+      return fixMapping.getKeyAndValue(getLongestMatch, string, debugSearchSteps);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+      if (filter.mightMatch(string)) {
+        suffixMapping.forEachKeyAndValueForSuffix(string, consumer);
+      }
+    }
+
+    @Override
+    public double falsePositiveRate() {
+      return filter.falsePositiveRate();
+    }
+  }
+
+  // Caches the results of up to the capacity (rounded up to a power of 2) of the most frequently
+  // looked up strings, including strings which match no prefix.
+  public static <T> CachedPrefixMapping<T> cachedPrefixMapping(
+      final ImmutablePrefixMapping<T> prefixMapping, final int capacity) {
+    return new CachingPrefixMapping<>(prefixMapping, capacity);
+  }
+
+  private static final class CachingPrefixMapping<T> implements CachedPrefixMapping<T> {
+
+    private final ImmutablePrefixMapping<T> prefixMapping;
+    private final Function<CharSequence, Pair<String, T>> lookup;
+    private final LookupCache<T> cache;
+
+    private CachingPrefixMapping(
+        final ImmutablePrefixMapping<T> prefixMapping, final int capacity) {
+      this.prefixMapping = prefixMapping;
+      this.lookup = prefixMapping::keyAndValueForPrefix;
+      this.cache = new LookupCache<>(capacity);
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return cache.keyAndValue(string, lookup);
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return cache.keyAndValue(string, lookup);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      prefixMapping.forEachKeyAndValueForPrefix(string, consumer);
+    }
+
+    @Override
+    public long hitCount() {
+      return cache.hitCount();
+    }
+
+    @Override
+    public long missCount() {
+      return cache.missCount();
+    }
+  }
+
+  // Caches the results of up to the capacity (rounded up to a power of 2) of the most frequently
+  // looked up strings, including strings which match no suffix.
+  public static <T> CachedSuffixMapping<T> cachedSuffixMapping(
+      final ImmutableSuffixMapping<T> suffixMapping, final int capacity) {
+    return new CachingSuffixMapping<>(suffixMapping, capacity);
+  }
+
+  private static final class CachingSuffixMapping<T> implements CachedSuffixMapping<T> {
+
+    private final ImmutableSuffixMapping<T> suffixMapping;
+    private final Function<CharSequence, Pair<String, T>> lookup;
+    private final LookupCache<T> cache;
+
+    private CachingSuffixMapping(
+        final ImmutableSuffixMapping<T> suffixMapping, final int capacity) {
+      this.suffixMapping = suffixMapping;
+      this.lookup = suffixMapping::keyAndValueForSuffix;
+      this.cache = new LookupCache<>(capacity);
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return cache.keyAndValue(string, lookup);
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return cache.keyAndValue(string, lookup);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      suffixMapping.forEachKeyAndValueForSuffix(string, consumer);
+    }
+
+    @Override
+    public long hitCount() {
+      return cache.hitCount();
+    }
+
+    @Override
+    public long missCount() {
+      return cache.missCount();
+    }
+  }
+
+  public static <T> MeteredPrefixMapping<T> meteredPrefixMapping(
+      final ImmutablePrefixMapping<T> prefixMapping) {
+    return new MeteringPrefixMapping<>(prefixMapping);
+  }
+
+  private static final class MeteringPrefixMapping<T> implements MeteredPrefixMapping<T> {
+
+    private final ImmutablePrefixMapping<T> prefixMapping;
+    private final LookupMetrics<T> metrics;
+
+    private MeteringPrefixMapping(final ImmutablePrefixMapping<T> prefixMapping) {
+      this.prefixMapping = prefixMapping;
+      this.metrics = new LookupMetrics<>(prefixMapping, prefixMapping::keyAndValueForPrefix);
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return metrics.keyAndValue(string);
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return metrics.keyAndValue(string);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      prefixMapping.forEachKeyAndValueForPrefix(string, consumer);
+    }
+
+    @Override
+    public LookupMetricsSnapshot metrics() {
+      return metrics.snapshot();
+    }
   }
 
-  public interface ImmutablePrefixMatcher {
-    boolean matchesAnyPrefix(final String string);
+  public static <T> MeteredSuffixMapping<T> meteredSuffixMapping(
+      final ImmutableSuffixMapping<T> suffixMapping) {
+    return new MeteringSuffixMapping<>(suffixMapping);
   }
 
-  public interface ImmutableSuffixMatcher {
-    boolean matchesAnySuffix(final String string);
+  private static final class MeteringSuffixMapping<T> implements MeteredSuffixMapping<T> {
+
+    private final ImmutableSuffixMapping<T> suffixMapping;
+    private final LookupMetrics<T> metrics;
+
+    private MeteringSuffixMapping(final ImmutableSuffixMapping<T> suffixMapping) {
+      this.suffixMapping = suffixMapping;
+      this.metrics = new LookupMetrics<>(suffixMapping, suffixMapping::keyAndValueForSuffix);
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return metrics.keyAndValue(string);
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return metrics.keyAndValue(string);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      suffixMapping.forEachKeyAndValueForSuffix(string, consumer);
+    }
+
+    @Override
+    public LookupMetricsSnapshot metrics() {
+      return metrics.snapshot();
+    }
+  }
+
+  public static <T> void writePrefixMapping(
+      final Map<String, T> prefixes,
+      final Function<? super T, byte[]> valueEncoder,
+      final OutputStream out)
+      throws IOException {
+    writeFixMapping(true, prefixes, valueEncoder, out);
+  }
+
+  public static <T> void writePrefixMapping(
+      final Map<String, T> prefixes,
+      final Function<? super T, byte[]> valueEncoder,
+      final Path path)
+      throws IOException {
+    try (OutputStream out = Files.newOutputStream(path)) {
+      writeFixMapping(true, prefixes, valueEncoder, out);
+    }
+  }
+
+  public static ImmutablePrefixMatcher mappedPrefixMatcher(final Path path) throws IOException {
+    return new MappedPrefixMapping<>(map(path), null);
+  }
+
+  public static <T> ImmutablePrefixMapping<T> mappedPrefixMapping(
+      final Path path, final Function<ByteBuffer, ? extends T> valueDecoder) throws IOException {
+    return new MappedPrefixMapping<>(map(path), valueDecoder);
+  }
+
+  public static <T> ImmutablePrefixMapping<T> mappedPrefixMapping(
+      final ByteBuffer buffer, final Function<ByteBuffer, ? extends T> valueDecoder) {
+    return new MappedPrefixMapping<>(buffer, valueDecoder);
   }
 
-  public interface ImmutablePrefixMapping<T> extends ImmutablePrefixMatcher {
+  private static final class MappedPrefixMapping<T> extends MappedDoubleArrayTrieFixMapping<T>
+      implements ImmutablePrefixMapping<T> {
+    private MappedPrefixMapping(
+        final ByteBuffer buffer, final Function<ByteBuffer, ? extends T> valueDecoder) {
+      super(true, buffer, valueDecoder);
+    }
 
     @Override
-    default boolean matchesAnyPrefix(final String string) {
-      return keyAndValueForPrefix(string) != null;
+    public boolean matchesAnyPrefix(final String string) {
+      return getKeyIndex(false, string, null) != NO_KEY;
     }
 
-    default T valueForPrefix(final String string) {
-      final Pair<String, T> keyAndValue = keyAndValueForPrefix(string);
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
 
-      if (keyAndValue == null) {
-        return null;
-      }
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyIndex(false, string, null) != NO_KEY;
+    }
 
-      return keyAndValue.second;
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
     }
 
-    Pair<String, T> keyAndValueForPrefix(final String string);
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  public static <T> void writeSuffixMapping(
+      final Map<String, T> suffixes,
+      final Function<? super T, byte[]> valueEncoder,
+      final OutputStream out)
+      throws IOException {
+    writeFixMapping(false, suffixes, valueEncoder, out);
+  }
+
+  public static <T> void writeSuffixMapping(
+      final Map<String, T> suffixes,
+      final Function<? super T, byte[]> valueEncoder,
+      final Path path)
+      throws IOException {
+    try (OutputStream out = Files.newOutputStream(path)) {
+      writeFixMapping(false, suffixes, valueEncoder, out);
+    }
+  }
+
+  public static ImmutableSuffixMatcher mappedSuffixMatcher(final Path path) throws IOException {
+    return new MappedSuffixMapping<>(map(path), null);
+  }
+
+  public static <T> ImmutableSuffixMapping<T> mappedSuffixMapping(
+      final Path path, final Function<ByteBuffer, ? extends T> valueDecoder) throws IOException {
+    return new MappedSuffixMapping<>(map(path), valueDecoder);
+  }
+
+  public static <T> ImmutableSuffixMapping<T> mappedSuffixMapping(
+      final ByteBuffer buffer, final Function<ByteBuffer, ? extends T> valueDecoder) {
+    return new MappedSuffixMapping<>(buffer, valueDecoder);
   }
 
-  public interface ImmutableSuffixMapping<T> extends ImmutableSuffixMatcher {
+  private static final class MappedSuffixMapping<T> extends MappedDoubleArrayTrieFixMapping<T>
+      implements ImmutableSuffixMapping<T> {
+    private MappedSuffixMapping(
+        final ByteBuffer buffer, final Function<ByteBuffer, ? extends T> valueDecoder) {
+      super(false, buffer, valueDecoder);
+    }
 
     @Override
-    default boolean matchesAnySuffix(final String string) {
-      return keyAndValueForSuffix(string) != null;
+    public boolean matchesAnySuffix(final String string) {
+      return getKeyIndex(false, string, null) != NO_KEY;
     }
 
-    default T valueForSuffix(final String string) {
-      final Pair<String, T> keyAndValue = keyAndValueForSuffix(string);
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
 
-      if (keyAndValue == null) {
-        return null;
-      }
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyIndex(false, string, null) != NO_KEY;
+    }
 
-      return keyAndValue.second;
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
     }
 
-    Pair<String, T> keyAndValueForSuffix(final String string);
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
   }
 
-  private static Map<String, Boolean> toMap(final String... fixes) {
-    return Arrays.stream(fixes)
-        .collect(Collectors.toMap(key -> key, key -> true, (k1, k2) -> k1, HashMap::new));
+  private static <T> void writeFixMapping(
+      final boolean forPrefix,
+      final Map<String, T> fixes,
+      final Function<? super T, byte[]> valueEncoder,
+      final OutputStream out)
+      throws IOException {
+
+    final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+    new DoubleArrayTrieFixMapping<>(forPrefix, fixes).write(valueEncoder, dataOut);
+    dataOut.flush();
   }
 
-  public static ImmutablePrefixMatcher binarySearchArrayPrefixMatcher(final String... prefixes) {
-    return new BinarySearchArrayPrefixMapping<>(toMap(prefixes));
+  // The mapping stays valid after the channel is closed.
+  private static ByteBuffer map(final Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
   }
 
-  public static <T> ImmutablePrefixMapping<T> binarySearchArrayPrefixMapping(
+  public static <T> ConcurrentPrefixMapping<T> concurrentPrefixMapping() {
+    return new ConcurrentTriePrefixMapping<>(Collections.emptyMap());
+  }
+
+  public static <T> ConcurrentPrefixMapping<T> concurrentPrefixMapping(
       final Map<String, T> prefixes) {
-    return new BinarySearchArrayPrefixMapping<>(prefixes);
+    return new ConcurrentTriePrefixMapping<>(prefixes);
   }
 
-  private static final class BinarySearchArrayPrefixMapping<T>
-      extends BinarySearchArrayFixMapping<T> implements ImmutablePrefixMapping<T> {
+  private static final class ConcurrentTriePrefixMapping<T> extends ConcurrentTrieFixMapping<T>
+      implements ConcurrentPrefixMapping<T> {
+    private ConcurrentTriePrefixMapping(final Map<String, T> prefixes) {
+      super(true, prefixes);
+    }
 
-    private BinarySearchArrayPrefixMapping(final Map<String, T> unsortedPrefixes) {
-      super(true, unsortedPrefixes);
+    @Override
+    public T put(final String prefix, final T value) {
+
+      final Pair<String, T> keyAndValue = putKeyAndValue(prefix, value, true);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    @Override
+    public T remove(final String prefix) {
+
+      final Pair<String, T> keyAndValue = removeKeyAndValue(prefix);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    @Override
+    public ImmutablePrefixMapping<T> snapshot() {
+      return new ConcurrentTriePrefixSnapshot<>(this);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  private static final class ConcurrentTriePrefixSnapshot<T> extends ConcurrentTrieFixMapping<T>
+      implements ImmutablePrefixMapping<T> {
+    private ConcurrentTriePrefixSnapshot(final ConcurrentTriePrefixMapping<T> prefixMapping) {
+      super(prefixMapping);
     }
 
     @Override
@@ -109,22 +2924,99 @@ public final class FixMappings {
     public Pair<String, T> keyAndValueForPrefix(final String string) {
       return getKeyAndValue(true, string, null);
     }
+
+    @Override
+    public boolean matchesAnyPrefix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPrefix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForPrefix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
   }
 
-  public static ImmutableSuffixMatcher binarySearchArraySuffixMatcher(final String... suffixes) {
-    return new BinarySearchArraySuffixMapping<>(toMap(suffixes));
+  public static <T> ConcurrentSuffixMapping<T> concurrentSuffixMapping() {
+    return new ConcurrentTrieSuffixMapping<>(Collections.emptyMap());
   }
 
-  public static <T> ImmutableSuffixMapping<T> binarySearchArraySuffixMapping(
+  public static <T> ConcurrentSuffixMapping<T> concurrentSuffixMapping(
       final Map<String, T> suffixes) {
-    return new BinarySearchArraySuffixMapping<>(suffixes);
+    return new ConcurrentTrieSuffixMapping<>(suffixes);
   }
 
-  private static final class BinarySearchArraySuffixMapping<T>
-      extends BinarySearchArrayFixMapping<T> implements ImmutableSuffixMapping<T> {
+  private static final class ConcurrentTrieSuffixMapping<T> extends ConcurrentTrieFixMapping<T>
+      implements ConcurrentSuffixMapping<T> {
+    private ConcurrentTrieSuffixMapping(final Map<String, T> suffixes) {
+      super(false, suffixes);
+    }
 
-    private BinarySearchArraySuffixMapping(final Map<String, T> unsortedSuffixes) {
-      super(false, unsortedSuffixes);
+    @Override
+    public T put(final String suffix, final T value) {
+
+      final Pair<String, T> keyAndValue = putKeyAndValue(suffix, value, true);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    @Override
+    public T remove(final String suffix) {
+
+      final Pair<String, T> keyAndValue = removeKeyAndValue(suffix);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    @Override
+    public ImmutableSuffixMapping<T> snapshot() {
+      return new ConcurrentTrieSuffixSnapshot<>(this);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final String string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
+  }
+
+  private static final class ConcurrentTrieSuffixSnapshot<T> extends ConcurrentTrieFixMapping<T>
+      implements ImmutableSuffixMapping<T> {
+    private ConcurrentTrieSuffixSnapshot(final ConcurrentTrieSuffixMapping<T> suffixMapping) {
+      super(suffixMapping);
     }
 
     @Override
@@ -136,60 +3028,90 @@ public final class FixMappings {
     public Pair<String, T> keyAndValueForSuffix(final String string) {
       return getKeyAndValue(true, string, null);
     }
+
+    @Override
+    public boolean matchesAnySuffix(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForSuffix(final CharSequence string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public void forEachKeyAndValueForSuffix(
+        final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+      forEachKeyAndValue(string, consumer);
+    }
   }
 
-  public static ImmutablePrefixMatcher limitedCharArrayTriePrefixMatcher(
-      final char min, final char max, final String... prefixes) {
-    return new LimitedCharArrayTriePrefixMapping<>(min, max, toMap(prefixes));
+  public static ImmutableInfixMatcher ahoCorasickInfixMatcher(final String... infixes) {
+    return new AhoCorasickInfixMapping<>(toMap(infixes));
   }
 
-  public static <T> ImmutablePrefixMapping<T> limitedCharArrayTriePrefixMapping(
-      final char min, final char max, final Map<String, T> prefixes) {
-    return new LimitedCharArrayTriePrefixMapping<>(min, max, prefixes);
+  public static <T> ImmutableInfixMapping<T> ahoCorasickInfixMapping(final Map<String, T> infixes) {
+    return new AhoCorasickInfixMapping<>(infixes);
   }
 
-  private static final class LimitedCharArrayTriePrefixMapping<T>
-      extends LimitedCharArrayTrieFixMapping<T> implements ImmutablePrefixMapping<T> {
-    private LimitedCharArrayTriePrefixMapping(
-        final char min, final char max, final Map<String, T> prefixes) {
-      super(true, min, max, prefixes);
+  private static final class AhoCorasickInfixMapping<T> extends AhoCorasickFixMapping<T>
+      implements ImmutableInfixMapping<T> {
+    private AhoCorasickInfixMapping(final Map<String, T> infixes) {
+      super(infixes);
     }
 
     @Override
-    public boolean matchesAnyPrefix(final String string) {
+    public boolean matchesAnyInfix(final String string) {
       return getKeyAndValue(false, string, null) != null;
     }
 
     @Override
-    public Pair<String, T> keyAndValueForPrefix(final String string) {
+    public Pair<String, T> keyAndValueForInfix(final String string) {
+      return getKeyAndValue(false, string, null);
+    }
+
+    @Override
+    public Pair<String, T> longestKeyAndValueForInfix(final String string) {
       return getKeyAndValue(true, string, null);
     }
+
+    @Override
+    public List<Pair<Integer, Pair<String, T>>> allKeysAndValuesForInfix(final String string) {
+      return getAllKeysAndValues(string);
+    }
   }
 
-  public static ImmutableSuffixMatcher limitedCharArrayTrieSuffixMatcher(
-      final char min, final char max, final String... suffixes) {
-    return new LimitedCharArrayTrieSuffixMapping<>(min, max, toMap(suffixes));
+  public static ImmutablePatternMatcher patternMatcher(final String... patterns) {
+    return new GlobPatternMapping<>(toMap(patterns));
   }
 
-  public static <T> ImmutableSuffixMapping<T> limitedCharArrayTrieSuffixMapping(
-      final char min, final char max, final Map<String, T> suffixes) {
-    return new LimitedCharArrayTrieSuffixMapping<>(min, max, suffixes);
+  public static <T> ImmutablePatternMapping<T> patternMapping(final Map<String, T> patterns) {
+    return new GlobPatternMapping<>(patterns);
   }
 
-  private static final class LimitedCharArrayTrieSuffixMapping<T>
-      extends LimitedCharArrayTrieFixMapping<T> implements ImmutableSuffixMapping<T> {
-    private LimitedCharArrayTrieSuffixMapping(
-        final char min, final char max, final Map<String, T> suffixes) {
-      super(false, min, max, suffixes);
+  private static final class GlobPatternMapping<T> extends GlobPatternFixMapping<T>
+      implements ImmutablePatternMapping<T> {
+    private GlobPatternMapping(final Map<String, T> patterns) {
+      super(patterns);
     }
 
     @Override
-    public boolean matchesAnySuffix(final String string) {
+    public boolean matchesAnyPattern(final String string) {
       return getKeyAndValue(false, string, null) != null;
     }
 
     @Override
-    public Pair<String, T> keyAndValueForSuffix(final String string) {
+    public Pair<String, T> keyAndValueForPattern(final String string) {
+      return getKeyAndValue(true, string, null);
+    }
+
+    @Override
+    public boolean matchesAnyPattern(final CharSequence string) {
+      return getKeyAndValue(false, string, null) != null;
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForPattern(final CharSequence string) {
       return getKeyAndValue(true, string, null);
     }
   }
@@ -0,0 +1,405 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import dev.stiemannkj1.util.Pair;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+// Stores sorted keys front coded in blocks: the first key of each block is stored whole and every
+// other key only stores the length it shares with the key before it and its remaining chars.
+// Binary search runs over the whole block heads and then scans a single block.
+class FrontCodedArrayFixMapping<T> implements FixMappings.IndexedFixMapping<T> {
+
+  @VisibleForTesting static final int BLOCK_SIZE = 16;
+
+  // Lengths below this are stored in one char. Longer lengths take two.
+  private static final int MAX_SHORT_LENGTH = 0x8000;
+
+  // Keys are stored in search order, so suffixes are stored reversed.
+  private final char[] chars;
+  private final int[] blockOffsets;
+  private final int[] keyLengths;
+  // The index of the longest other key that each key starts with (or ends with for suffixes).
+  private final int[] parents;
+  private final T[] values;
+  private final int minPrefixLength;
+  private final boolean forPrefix;
+
+  @SuppressWarnings("unchecked")
+  FrontCodedArrayFixMapping(final boolean forPrefix, final Map<String, T> unsortedFixes) {
+
+    // Sorting, duplicate detection and parent links are shared with the uncompressed array.
+    final BinarySearchArrayFixMapping<T> sortedFixes =
+        new BinarySearchArrayFixMapping<>(forPrefix, unsortedFixes);
+    final int size = sortedFixes.size();
+    final int[] blockOffsets = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+    final int[] keyLengths = new int[size];
+    final int[] parents = new int[size];
+    final T[] values = (T[]) new Object[size];
+    char[] chars = new char[16];
+    int length = 0;
+    int minPrefixLength = Integer.MAX_VALUE;
+    String prevFix = null;
+
+    for (int i = 0; i < size; i++) {
+
+      final Pair<String, T> fix = sortedFixes.keyAndValueAt(i);
+      final int fixLength = fix.first.length();
+      final int sharedLength;
+
+      keyLengths[i] = fixLength;
+      parents[i] = sortedFixes.parentAt(i);
+      values[i] = fix.second;
+      minPrefixLength = Math.min(minPrefixLength, fixLength);
+
+      if (i % BLOCK_SIZE == 0) {
+        blockOffsets[i / BLOCK_SIZE] = length;
+        sharedLength = 0;
+      } else {
+        sharedLength = sharedLength(forPrefix, prevFix, fix.first);
+      }
+
+      // Two chars for the shared length plus the unshared chars.
+      final int required = length + 2 + fixLength - sharedLength;
+
+      if (required > chars.length) {
+        chars = Arrays.copyOf(chars, Math.max(required, chars.length * 2));
+      }
+
+      if (i % BLOCK_SIZE != 0) {
+        length = writeLength(chars, length, sharedLength);
+      }
+
+      for (int j = sharedLength; j < fixLength; j++) {
+        chars[length++] = searchCharAt(forPrefix, fix.first, j);
+      }
+
+      prevFix = fix.first;
+    }
+
+    this.chars = Arrays.copyOf(chars, length);
+    this.blockOffsets = blockOffsets;
+    this.keyLengths = keyLengths;
+    this.parents = parents;
+    this.values = values;
+    this.minPrefixLength = minPrefixLength;
+    this.forPrefix = forPrefix;
+  }
+
+  @VisibleForTesting
+  @Override
+  public Pair<String, T> getKeyAndValue(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    final int keyIndex = getKeyIndex(getLongestMatch, string, debugSearchSteps);
+
+    if (keyIndex == NO_KEY) {
+      return null;
+    }
+
+    return keyAndValueAt(keyIndex);
+  }
+
+  @Override
+  public int getKeyIndex(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    if (string == null) {
+      return NO_KEY;
+    }
+
+    if (string.length() < minPrefixLength) {
+      return NO_KEY;
+    }
+
+    final long floor = getFloor(string, debugSearchSteps);
+
+    if (floor == NO_KEY) {
+      return NO_KEY;
+    }
+
+    int keyIndex = floorIndex(floor);
+    final int floorSharedLength = floorSharedLength(floor);
+
+    if (!getLongestMatch) {
+
+      // The shortest key on the chain starts every other key on it, so it matches if any do.
+      while (parents[keyIndex] != NO_KEY) {
+        keyIndex = parents[keyIndex];
+      }
+
+      return keyLengths[keyIndex] <= floorSharedLength ? keyIndex : NO_KEY;
+    }
+
+    while (keyIndex != NO_KEY && keyLengths[keyIndex] > floorSharedLength) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      keyIndex = parents[keyIndex];
+    }
+
+    return keyIndex;
+  }
+
+  @Override
+  public int size() {
+    return keyLengths.length;
+  }
+
+  // Keys are only decoded for matches.
+  @Override
+  public Pair<String, T> keyAndValueAt(final int keyIndex) {
+    return Pair.of(keyAt(keyIndex), values[keyIndex]);
+  }
+
+  void forEachKeyAndValue(
+      final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+    final int longestKeyIndex = getKeyIndex(true, string, null);
+    int depth = 0;
+
+    for (int i = longestKeyIndex; i != NO_KEY; i = parents[i]) {
+      depth++;
+    }
+
+    // Parents only link to shorter keys, so walk the chain again for each key rather than
+    // allocating a stack to emit them shortest first.
+    for (int remaining = depth - 1; remaining >= 0; remaining--) {
+
+      int keyIndex = longestKeyIndex;
+
+      for (int i = 0; i < remaining; i++) {
+        keyIndex = parents[keyIndex];
+      }
+
+      consumer.accept(keyAt(keyIndex), values[keyIndex]);
+    }
+  }
+
+  // Returns the index of the last key sorted at or before the string in the high int and the
+  // length that key shares with the string in the low int, or NO_KEY if every key sorts after the
+  // string.
+  private long getFloor(final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    int min = 0;
+    int max = blockOffsets.length - 1;
+    int floorBlock = NO_KEY;
+    int floorSharedLength = 0;
+
+    while (min <= max) {
+
+      final int bisect = (min + max) >>> 1;
+      final int offset = blockOffsets[bisect];
+      final int keyLength = keyLengths[bisect * BLOCK_SIZE];
+      final int sharedLength = sharedLength(0, offset, keyLength, string, debugSearchSteps);
+      final int compareTo = compareTo(offset, sharedLength, keyLength, string);
+
+      if (compareTo > 0) {
+        max = bisect - 1;
+        continue;
+      }
+
+      floorBlock = bisect;
+      floorSharedLength = sharedLength;
+
+      if (compareTo == 0) {
+        return toFloor(bisect * BLOCK_SIZE, sharedLength);
+      }
+
+      min = bisect + 1;
+    }
+
+    if (floorBlock == NO_KEY) {
+      return NO_KEY;
+    }
+
+    int floor = floorBlock * BLOCK_SIZE;
+    final int end = Math.min(floor + BLOCK_SIZE, keyLengths.length);
+    int offset = blockOffsets[floorBlock] + keyLengths[floor];
+
+    for (int i = floor + 1; i < end; i++) {
+
+      final int keyLength = keyLengths[i];
+      final int sharedWithPrev = readLength(chars, offset);
+      offset += sharedWithPrev < MAX_SHORT_LENGTH ? 1 : 2;
+
+      // The chars this key shares with the previous key already sort after the string.
+      if (sharedWithPrev < floorSharedLength) {
+        break;
+      }
+
+      // The first unshared char sorts after the previous key's char, which sorts before the
+      // string's char, so this key only shares as much as the previous key did.
+      if (sharedWithPrev > floorSharedLength) {
+        floor = i;
+        offset += keyLength - sharedWithPrev;
+        continue;
+      }
+
+      // The key's chars are indexed from here, although its shared chars are stored earlier.
+      final int keyOffset = offset - sharedWithPrev;
+      final int sharedLength =
+          sharedLength(sharedWithPrev, keyOffset, keyLength, string, debugSearchSteps);
+      final int compareTo = compareTo(keyOffset, sharedLength, keyLength, string);
+
+      if (compareTo > 0) {
+        break;
+      }
+
+      floor = i;
+      floorSharedLength = sharedLength;
+
+      if (compareTo == 0) {
+        break;
+      }
+
+      offset += keyLength - sharedWithPrev;
+    }
+
+    return toFloor(floor, floorSharedLength);
+  }
+
+  private static long toFloor(final int keyIndex, final int sharedLength) {
+    return ((long) keyIndex << Integer.SIZE) | sharedLength;
+  }
+
+  private static int floorIndex(final long floor) {
+    return (int) (floor >>> Integer.SIZE);
+  }
+
+  private static int floorSharedLength(final long floor) {
+    return (int) floor;
+  }
+
+  // The key's chars from index start onwards begin at chars[offset + start].
+  private int sharedLength(
+      final int start,
+      final int offset,
+      final int keyLength,
+      final CharSequence string,
+      final AtomicLong debugSearchSteps) {
+
+    final int length = Math.min(keyLength, string.length());
+
+    for (int i = start; i < length; i++) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      if (chars[offset + i] != searchCharAt(forPrefix, string, i)) {
+        return i;
+      }
+    }
+
+    return length;
+  }
+
+  private int compareTo(
+      final int offset, final int sharedLength, final int keyLength, final CharSequence string) {
+
+    if (sharedLength < keyLength && sharedLength < string.length()) {
+      return chars[offset + sharedLength] - searchCharAt(forPrefix, string, sharedLength);
+    }
+
+    return keyLength - string.length();
+  }
+
+  private String keyAt(final int keyIndex) {
+
+    final int block = keyIndex / BLOCK_SIZE;
+    final char[] key = new char[keyLengths[keyIndex]];
+    int offset = blockOffsets[block];
+    int i = block * BLOCK_SIZE;
+    int sharedLength = 0;
+
+    while (true) {
+
+      final int keyLength = keyLengths[i];
+      final int unsharedLength = Math.min(keyLength, key.length) - sharedLength;
+
+      if (unsharedLength > 0) {
+        System.arraycopy(chars, offset, key, sharedLength, unsharedLength);
+      }
+
+      offset += keyLength - sharedLength;
+
+      if (i == keyIndex) {
+        break;
+      }
+
+      i++;
+      sharedLength = readLength(chars, offset);
+      offset += sharedLength < MAX_SHORT_LENGTH ? 1 : 2;
+    }
+
+    if (!forPrefix) {
+      for (int j = 0, k = key.length - 1; j < k; j++, k--) {
+        final char char_ = key[j];
+        key[j] = key[k];
+        key[k] = char_;
+      }
+    }
+
+    return new String(key);
+  }
+
+  private static int writeLength(final char[] chars, final int offset, final int length) {
+
+    if (length < MAX_SHORT_LENGTH) {
+      chars[offset] = (char) length;
+      return offset + 1;
+    }
+
+    chars[offset] = (char) (MAX_SHORT_LENGTH | (length >>> 16));
+    chars[offset + 1] = (char) length;
+    return offset + 2;
+  }
+
+  private static int readLength(final char[] chars, final int offset) {
+
+    final char length = chars[offset];
+
+    if (length < MAX_SHORT_LENGTH) {
+      return length;
+    }
+
+    return ((length & (MAX_SHORT_LENGTH - 1)) << 16) | chars[offset + 1];
+  }
+
+  private static char searchCharAt(
+      final boolean forPrefix, final CharSequence string, final int index) {
+    return string.charAt(forPrefix ? index : string.length() - index - 1);
+  }
+
+  private static int sharedLength(final boolean forPrefix, final String fix1, final String fix2) {
+
+    final int length = Math.min(fix1.length(), fix2.length());
+    int i = 0;
+
+    while (i < length && searchCharAt(forPrefix, fix1, i) == searchCharAt(forPrefix, fix2, i)) {
+      i++;
+    }
+
+    return i;
+  }
+}
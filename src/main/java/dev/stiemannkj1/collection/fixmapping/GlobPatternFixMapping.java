@@ -0,0 +1,406 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import dev.stiemannkj1.util.Pair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Patterns are compiled into one trie so patterns share the nodes of their common leading literals
+// and wildcards. The trie is a nondeterministic automaton since wildcards can match empty strings
+// and loop, so lookups run a deterministic automaton whose states are sets of trie nodes. States
+// and their transitions are built lazily and cached, so each lookup takes one cached transition
+// per char no matter how many patterns there are.
+//
+// '?' matches one char other than '/', '*' matches any chars other than '/' and '**' matches any
+// chars. '\' matches the next char literally. Patterns must match the whole string.
+class GlobPatternFixMapping<T> implements FixMappings.FixMapping<T> {
+
+  private static final char[] EMPTY_CHARS = new char[0];
+  private static final char SEPARATOR = '/';
+  private static final char ESCAPE = '\\';
+  private static final int CACHED_CHARS = 128;
+  // Bounds the memory used by cached states. Lookups which reach more states still match
+  // correctly but build their states as they go.
+  @VisibleForTesting static final int MAX_CACHED_STATES = 4096;
+
+  private static final class Node<T> {
+    private final int id;
+    private char[] chars = EMPTY_CHARS;
+    private Node<T>[] nodes;
+    private Node<T> anyChar;
+    private Node<T> star;
+    private Node<T> doubleStar;
+    // Set for star nodes, which loop on any char other than '/'.
+    private boolean loopsWithinSegment;
+    // Set for double star nodes, which loop on any char.
+    private boolean loopsAcrossSegments;
+    private Pattern<T> pattern;
+
+    private Node(final int id) {
+      this.id = id;
+    }
+
+    private Node<T> child(final char char_) {
+
+      final int childIndex = Arrays.binarySearch(chars, char_);
+
+      if (childIndex < 0) {
+        return null;
+      }
+
+      return nodes[childIndex];
+    }
+  }
+
+  private static final class Pattern<T> {
+    private final Pair<String, T> keyValuePair;
+    private final int literals;
+    private final int doubleStars;
+    private final int stars;
+
+    private Pattern(
+        final Pair<String, T> keyValuePair,
+        final int literals,
+        final int doubleStars,
+        final int stars) {
+      this.keyValuePair = keyValuePair;
+      this.literals = literals;
+      this.doubleStars = doubleStars;
+      this.stars = stars;
+    }
+
+    // Patterns with more literal chars are more specific, then patterns with fewer double stars,
+    // then fewer stars. Remaining ties go to the lesser pattern so results don't depend on the
+    // order patterns were added.
+    private boolean isMoreSpecificThan(final Pattern<T> other) {
+
+      if (literals != other.literals) {
+        return literals > other.literals;
+      }
+
+      if (doubleStars != other.doubleStars) {
+        return doubleStars < other.doubleStars;
+      }
+
+      if (stars != other.stars) {
+        return stars < other.stars;
+      }
+
+      return keyValuePair.first.compareTo(other.keyValuePair.first) < 0;
+    }
+  }
+
+  private static final class State<T> {
+    private final int[] nodeIds;
+    private final int hash;
+    private final Pattern<T> match;
+    private final AtomicReferenceArray<State<T>> transitions;
+
+    private State(final int[] nodeIds, final Pattern<T> match, final boolean cached) {
+      this.nodeIds = nodeIds;
+      this.hash = Arrays.hashCode(nodeIds);
+      this.match = match;
+      this.transitions = cached ? new AtomicReferenceArray<>(CACHED_CHARS) : null;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return o instanceof State && Arrays.equals(nodeIds, ((State<?>) o).nodeIds);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private final List<Node<T>> nodes = new ArrayList<>();
+  private final ConcurrentHashMap<State<T>, State<T>> states = new ConcurrentHashMap<>();
+  private final State<T> start;
+
+  GlobPatternFixMapping(final Map<String, T> patterns) {
+
+    if (patterns.isEmpty()) {
+      throw new IllegalArgumentException("Patterns cannot be empty.");
+    }
+
+    final Node<T> root = newNode();
+
+    for (final Map.Entry<String, T> pattern : patterns.entrySet()) {
+
+      if (pattern == null || pattern.getKey() == null || pattern.getKey().isEmpty()) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      if (pattern.getValue() == null) {
+        throw new IllegalArgumentException("Null values are not allowed for: " + pattern.getKey());
+      }
+
+      addPattern(root, pattern);
+    }
+
+    final BitSet nodeIds = new BitSet(nodes.size());
+    addClosure(root, nodeIds);
+    this.start = state(nodeIds);
+  }
+
+  private Node<T> newNode() {
+    final Node<T> node = new Node<>(nodes.size());
+    nodes.add(node);
+    return node;
+  }
+
+  private void addPattern(final Node<T> root, final Map.Entry<String, T> entry) {
+
+    final String pattern = entry.getKey();
+    final int length = pattern.length();
+
+    Node<T> currentNode = root;
+    int literals = 0;
+    int doubleStars = 0;
+    int stars = 0;
+
+    for (int i = 0; i < length; i++) {
+
+      final char char_ = pattern.charAt(i);
+
+      if (char_ == '*') {
+
+        int end = i + 1;
+
+        while (end < length && pattern.charAt(end) == '*') {
+          end++;
+        }
+
+        if (end - i > 1) {
+
+          if (currentNode.doubleStar == null) {
+            currentNode.doubleStar = newNode();
+            currentNode.doubleStar.loopsAcrossSegments = true;
+          }
+
+          currentNode = currentNode.doubleStar;
+          doubleStars++;
+        } else {
+
+          if (currentNode.star == null) {
+            currentNode.star = newNode();
+            currentNode.star.loopsWithinSegment = true;
+          }
+
+          currentNode = currentNode.star;
+          stars++;
+        }
+
+        i = end - 1;
+        continue;
+      }
+
+      if (char_ == '?') {
+
+        if (currentNode.anyChar == null) {
+          currentNode.anyChar = newNode();
+        }
+
+        currentNode = currentNode.anyChar;
+        continue;
+      }
+
+      if (char_ == ESCAPE) {
+
+        if (++i == length) {
+          throw new IllegalArgumentException("Pattern ends with an escape: " + pattern);
+        }
+
+        currentNode = getOrAddChild(currentNode, pattern.charAt(i));
+        literals++;
+        continue;
+      }
+
+      currentNode = getOrAddChild(currentNode, char_);
+      literals++;
+    }
+
+    if (currentNode.pattern != null) {
+      throw new IllegalArgumentException("Duplicate keys found for: " + pattern);
+    }
+
+    currentNode.pattern = new Pattern<>(Pair.fromEntry(entry), literals, doubleStars, stars);
+  }
+
+  private Node<T> getOrAddChild(final Node<T> parent, final char char_) {
+
+    int childIndex = Arrays.binarySearch(parent.chars, char_);
+
+    if (childIndex >= 0) {
+      return parent.nodes[childIndex];
+    }
+
+    childIndex = -childIndex - 1;
+
+    final int length = parent.chars.length;
+    final char[] chars = new char[length + 1];
+    @SuppressWarnings("unchecked")
+    final Node<T>[] nodes = new Node[length + 1];
+
+    System.arraycopy(parent.chars, 0, chars, 0, childIndex);
+    System.arraycopy(parent.chars, childIndex, chars, childIndex + 1, length - childIndex);
+    chars[childIndex] = char_;
+
+    if (parent.nodes != null) {
+      System.arraycopy(parent.nodes, 0, nodes, 0, childIndex);
+      System.arraycopy(parent.nodes, childIndex, nodes, childIndex + 1, length - childIndex);
+    }
+
+    final Node<T> child = newNode();
+    nodes[childIndex] = child;
+
+    parent.chars = chars;
+    parent.nodes = nodes;
+
+    return child;
+  }
+
+  // Wildcards can match empty strings, so reaching a node also reaches its wildcard children.
+  private static <T> void addClosure(final Node<T> node, final BitSet nodeIds) {
+
+    if (nodeIds.get(node.id)) {
+      return;
+    }
+
+    nodeIds.set(node.id);
+
+    if (node.star != null) {
+      addClosure(node.star, nodeIds);
+    }
+
+    if (node.doubleStar != null) {
+      addClosure(node.doubleStar, nodeIds);
+    }
+  }
+
+  private State<T> state(final BitSet nodeIds) {
+
+    final int[] ids = nodeIds.stream().toArray();
+    Pattern<T> match = null;
+
+    for (final int id : ids) {
+
+      final Pattern<T> pattern = nodes.get(id).pattern;
+
+      if (pattern != null && (match == null || pattern.isMoreSpecificThan(match))) {
+        match = pattern;
+      }
+    }
+
+    if (states.size() >= MAX_CACHED_STATES) {
+
+      final State<T> state = new State<>(ids, match, false);
+      final State<T> cachedState = states.get(state);
+      return cachedState != null ? cachedState : state;
+    }
+
+    final State<T> state = new State<>(ids, match, true);
+    final State<T> cachedState = states.putIfAbsent(state, state);
+    return cachedState != null ? cachedState : state;
+  }
+
+  private State<T> nextState(final State<T> state, final char char_) {
+
+    final boolean cacheable = state.transitions != null && char_ < CACHED_CHARS;
+
+    if (cacheable) {
+
+      final State<T> nextState = state.transitions.get(char_);
+
+      if (nextState != null) {
+        return nextState;
+      }
+    }
+
+    final BitSet nodeIds = new BitSet(nodes.size());
+
+    for (final int id : state.nodeIds) {
+
+      final Node<T> node = nodes.get(id);
+
+      if (node.loopsAcrossSegments || (node.loopsWithinSegment && char_ != SEPARATOR)) {
+        addClosure(node, nodeIds);
+      }
+
+      if (node.anyChar != null && char_ != SEPARATOR) {
+        addClosure(node.anyChar, nodeIds);
+      }
+
+      final Node<T> child = node.child(char_);
+
+      if (child != null) {
+        addClosure(child, nodeIds);
+      }
+    }
+
+    final State<T> nextState = state(nodeIds);
+
+    if (cacheable) {
+      // Racing lookups build equal states, so whichever transition is cached is correct.
+      state.transitions.lazySet(char_, nextState);
+    }
+
+    return nextState;
+  }
+
+  // Every match is a whole string match, so the first match is the most specific match.
+  @VisibleForTesting
+  @Override
+  public Pair<String, T> getKeyAndValue(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    if (string == null) {
+      return null;
+    }
+
+    final int length = string.length();
+    State<T> state = start;
+
+    for (int i = 0; i < length; i++) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      state = nextState(state, string.charAt(i));
+
+      // No pattern can match once no node is reachable.
+      if (state.nodeIds.length == 0) {
+        return null;
+      }
+    }
+
+    if (state.match == null) {
+      return null;
+    }
+
+    return state.match.keyValuePair;
+  }
+}
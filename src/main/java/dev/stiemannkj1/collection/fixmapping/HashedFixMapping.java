@@ -0,0 +1,330 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import dev.stiemannkj1.util.Pair;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+// Groups keys by length and stores each length's keys in an open addressing hash table, so each
+// distinct key length costs one hash probe no matter how many keys there are.
+class HashedFixMapping<T> implements FixMappings.IndexedFixMapping<T> {
+
+  // Odd, so it has a multiplicative inverse and a hash can be rolled back one char at a time.
+  private static final int MULTIPLIER = 0x01000193;
+  private static final int INVERSE_MULTIPLIER = inverse(MULTIPLIER);
+  private static final int EMPTY = 0;
+
+  private final boolean forPrefix;
+  // The distinct key lengths in ascending order.
+  private final int[] keyLengths;
+  // One table for each key length. Slots hold key indexes plus one, so zero marks an empty slot.
+  private final int[][] tables;
+  private final int[] keyHashes;
+  private final Pair<String, T>[] keyValuePairs;
+
+  @SuppressWarnings("unchecked")
+  HashedFixMapping(final boolean forPrefix, final Map<String, T> fixes) {
+
+    final int size = fixes.size();
+
+    if (size == 0) {
+      throw new IllegalArgumentException(
+          (forPrefix ? "Prefixes" : "Suffixes") + " cannot be empty.");
+    }
+
+    final Pair<String, T>[] keyValuePairs = new Pair[size];
+    final int[] keyHashes = new int[size];
+    final int[] lengths = new int[size];
+    int i = 0;
+
+    for (final Map.Entry<String, T> fix : fixes.entrySet()) {
+
+      if (fix == null || fix.getKey() == null || fix.getKey().isEmpty()) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      keyValuePairs[i] = Pair.fromEntry(fix);
+      keyHashes[i] = hash(forPrefix, fix.getKey(), fix.getKey().length());
+      lengths[i] = fix.getKey().length();
+      i++;
+    }
+
+    Arrays.sort(lengths);
+
+    int lengthCount = 0;
+
+    for (i = 0; i < size; i++) {
+      if (lengthCount == 0 || lengths[lengthCount - 1] != lengths[i]) {
+        lengths[lengthCount++] = lengths[i];
+      }
+    }
+
+    final int[] keyLengths = Arrays.copyOf(lengths, lengthCount);
+    final int[] keyCounts = new int[lengthCount];
+
+    for (final Pair<String, T> keyValuePair : keyValuePairs) {
+      keyCounts[Arrays.binarySearch(keyLengths, keyValuePair.first.length())]++;
+    }
+
+    final int[][] tables = new int[lengthCount][];
+
+    for (i = 0; i < lengthCount; i++) {
+      // Keep tables at most half full so that probe sequences stay short.
+      tables[i] = new int[LimitedCharArrayTrieFixMapping.nextPowerOf2(keyCounts[i] * 2)];
+    }
+
+    for (i = 0; i < size; i++) {
+
+      final String key = keyValuePairs[i].first;
+      final int[] table = tables[Arrays.binarySearch(keyLengths, key.length())];
+      final int mask = table.length - 1;
+      int slot = spread(keyHashes[i]) & mask;
+
+      while (table[slot] != EMPTY) {
+
+        final int keyIndex = table[slot] - 1;
+
+        if (keyHashes[keyIndex] == keyHashes[i] && keyValuePairs[keyIndex].first.equals(key)) {
+          throw new IllegalArgumentException("Duplicate keys found for: " + key);
+        }
+
+        slot = (slot + 1) & mask;
+      }
+
+      table[slot] = i + 1;
+    }
+
+    this.forPrefix = forPrefix;
+    this.keyLengths = keyLengths;
+    this.tables = tables;
+    this.keyHashes = keyHashes;
+    this.keyValuePairs = keyValuePairs;
+  }
+
+  @VisibleForTesting
+  @Override
+  public Pair<String, T> getKeyAndValue(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    final int keyIndex = getKeyIndex(getLongestMatch, string, debugSearchSteps);
+
+    if (keyIndex == NO_KEY) {
+      return null;
+    }
+
+    return keyValuePairs[keyIndex];
+  }
+
+  @Override
+  public int getKeyIndex(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    if (string == null) {
+      return NO_KEY;
+    }
+
+    final int length = string.length();
+
+    if (length < keyLengths[0]) {
+      return NO_KEY;
+    }
+
+    if (!getLongestMatch) {
+      return getShortestKeyIndex(string, debugSearchSteps);
+    }
+
+    int lengthIndex = keyLengths.length - 1;
+
+    while (keyLengths[lengthIndex] > length) {
+      lengthIndex--;
+    }
+
+    int hashLength = keyLengths[lengthIndex];
+    int hash = hash(forPrefix, string, hashLength);
+
+    if (debugSearchSteps != null) {
+      debugSearchSteps.addAndGet(hashLength);
+    }
+
+    // Probe the longest keys first and roll the hash back to each shorter key length.
+    while (true) {
+
+      final int keyIndex = probe(lengthIndex, hash, string, debugSearchSteps);
+
+      if (keyIndex != NO_KEY || lengthIndex == 0) {
+        return keyIndex;
+      }
+
+      lengthIndex--;
+
+      final int keyLength = keyLengths[lengthIndex];
+
+      for (; hashLength > keyLength; hashLength--) {
+
+        if (debugSearchSteps != null) {
+          debugSearchSteps.incrementAndGet();
+        }
+
+        hash = (hash - searchCharAt(forPrefix, string, hashLength - 1)) * INVERSE_MULTIPLIER;
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return keyValuePairs.length;
+  }
+
+  @Override
+  public Pair<String, T> keyAndValueAt(final int keyIndex) {
+    return keyValuePairs[keyIndex];
+  }
+
+  void forEachKeyAndValue(
+      final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+    if (string == null) {
+      return;
+    }
+
+    final int length = string.length();
+    int hash = 0;
+    int hashLength = 0;
+
+    for (int lengthIndex = 0;
+        lengthIndex < keyLengths.length && keyLengths[lengthIndex] <= length;
+        lengthIndex++) {
+
+      for (; hashLength < keyLengths[lengthIndex]; hashLength++) {
+        hash = (hash * MULTIPLIER) + searchCharAt(forPrefix, string, hashLength);
+      }
+
+      final int keyIndex = probe(lengthIndex, hash, string, null);
+
+      if (keyIndex != NO_KEY) {
+        consumer.accept(keyValuePairs[keyIndex].first, keyValuePairs[keyIndex].second);
+      }
+    }
+  }
+
+  private int getShortestKeyIndex(final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    final int length = string.length();
+    int hash = 0;
+    int hashLength = 0;
+
+    for (int lengthIndex = 0;
+        lengthIndex < keyLengths.length && keyLengths[lengthIndex] <= length;
+        lengthIndex++) {
+
+      for (; hashLength < keyLengths[lengthIndex]; hashLength++) {
+
+        if (debugSearchSteps != null) {
+          debugSearchSteps.incrementAndGet();
+        }
+
+        hash = (hash * MULTIPLIER) + searchCharAt(forPrefix, string, hashLength);
+      }
+
+      final int keyIndex = probe(lengthIndex, hash, string, debugSearchSteps);
+
+      if (keyIndex != NO_KEY) {
+        return keyIndex;
+      }
+    }
+
+    return NO_KEY;
+  }
+
+  private int probe(
+      final int lengthIndex,
+      final int hash,
+      final CharSequence string,
+      final AtomicLong debugSearchSteps) {
+
+    final int[] table = tables[lengthIndex];
+    final int mask = table.length - 1;
+    int slot = spread(hash) & mask;
+
+    while (table[slot] != EMPTY) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      final int keyIndex = table[slot] - 1;
+
+      if (keyHashes[keyIndex] == hash && matches(keyValuePairs[keyIndex].first, string)) {
+        return keyIndex;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    return NO_KEY;
+  }
+
+  private boolean matches(final String key, final CharSequence string) {
+
+    final int length = key.length();
+
+    for (int i = 0; i < length; i++) {
+      if (searchCharAt(forPrefix, key, i) != searchCharAt(forPrefix, string, i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static int hash(final boolean forPrefix, final CharSequence string, final int length) {
+
+    int hash = 0;
+
+    for (int i = 0; i < length; i++) {
+      hash = (hash * MULTIPLIER) + searchCharAt(forPrefix, string, i);
+    }
+
+    return hash;
+  }
+
+  // Mixes the high bits into the low bits used to pick slots.
+  private static int spread(final int hash) {
+    final int spread = hash * 0x9E3779B9;
+    return spread ^ (spread >>> 16);
+  }
+
+  // Newton's method doubles the number of correct low bits on each step.
+  private static int inverse(final int odd) {
+
+    int inverse = odd;
+
+    for (int i = 0; i < 5; i++) {
+      inverse *= 2 - (odd * inverse);
+    }
+
+    return inverse;
+  }
+
+  private static char searchCharAt(
+      final boolean forPrefix, final CharSequence string, final int index) {
+    return string.charAt(forPrefix ? index : string.length() - index - 1);
+  }
+}
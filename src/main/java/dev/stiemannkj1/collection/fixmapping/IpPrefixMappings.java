@@ -0,0 +1,354 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.util.Pair;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class IpPrefixMappings {
+
+  private static final int IPV4_LENGTH = 32;
+  private static final int IPV6_LENGTH = 128;
+  // IPv4 mapped addresses are ::ffff:0:0/96 followed by the IPv4 address.
+  private static final int IPV4_MAPPED_LENGTH = IPV6_LENGTH - IPV4_LENGTH;
+  private static final long IPV4_MAPPED_BITS = 0xFFFFL << IPV4_LENGTH;
+
+  // Lookups read address bits directly, so they don't build strings or allocate. The InetAddress
+  // overloads are the exception: InetAddress only exposes its bits through getAddress(), which
+  // copies them into a new array on each call.
+  public interface ImmutableIpPrefixMapping<T> {
+
+    default T valueForIpv4(final int address) {
+      final Pair<String, T> keyAndValue = keyAndValueForIpv4(address);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    default T valueForIpv6(final long high, final long low) {
+      final Pair<String, T> keyAndValue = keyAndValueForIpv6(high, low);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    default T valueForAddress(final byte[] address) {
+      final Pair<String, T> keyAndValue = keyAndValueForAddress(address);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    // Allocates a copy of the address. See keyAndValueForAddress(InetAddress).
+    default T valueForAddress(final InetAddress address) {
+      final Pair<String, T> keyAndValue = keyAndValueForAddress(address);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    // Returns the longest prefix containing the address.
+    Pair<String, T> keyAndValueForIpv4(final int address);
+
+    // The high long holds the first 8 bytes of the address.
+    Pair<String, T> keyAndValueForIpv6(final long high, final long low);
+
+    default Pair<String, T> keyAndValueForAddress(final byte[] address) {
+
+      if (address == null) {
+        return null;
+      }
+
+      if (address.length == IPV4_LENGTH / Byte.SIZE) {
+        return keyAndValueForIpv4((int) toLong(address, 0, address.length));
+      }
+
+      if (address.length == IPV6_LENGTH / Byte.SIZE) {
+        return keyAndValueForIpv6(toLong(address, 0, Long.BYTES), toLong(address, Long.BYTES, 16));
+      }
+
+      throw new IllegalArgumentException(
+          "Addresses must be 4 or 16 bytes, but was " + address.length + " bytes.");
+    }
+
+    // Allocates one array per lookup, since getAddress() returns a copy. Callers that avoid
+    // allocation should keep addresses as ints, longs or reused byte arrays instead.
+    default Pair<String, T> keyAndValueForAddress(final InetAddress address) {
+
+      if (address == null) {
+        return null;
+      }
+
+      return keyAndValueForAddress(address.getAddress());
+    }
+  }
+
+  // Keys are CIDR prefixes such as "10.0.0.0/8" or "2001:db8::/32". Keys without a length match
+  // a single address. Address bits past the length must be zero. IPv4 addresses and IPv4 mapped
+  // IPv6 addresses (::ffff:a.b.c.d) are the same address, as they are for InetAddress, so
+  // "::ffff:10.0.0.0/104" and "10.0.0.0/8" are duplicates and either form matches both.
+  public static <T> ImmutableIpPrefixMapping<T> ipPrefixMapping(final Map<String, T> prefixes) {
+    return new IpPrefixMapping<>(prefixes);
+  }
+
+  private static final class IpPrefixMapping<T> implements ImmutableIpPrefixMapping<T> {
+
+    // Indexed by route number - 1.
+    private final Pair<String, T>[] keysAndValues;
+    private final IpPrefixTrie ipv4Trie;
+    private final IpPrefixTrie ipv6Trie;
+
+    @SuppressWarnings("unchecked")
+    private IpPrefixMapping(final Map<String, T> prefixes) {
+
+      if (prefixes.isEmpty()) {
+        throw new IllegalArgumentException("IP prefixes cannot be empty.");
+      }
+
+      this.keysAndValues = new Pair[prefixes.size()];
+
+      final List<IpPrefixTrie.Route> ipv4Routes = new ArrayList<>();
+      final List<IpPrefixTrie.Route> ipv6Routes = new ArrayList<>();
+      final Set<String> normalizedPrefixes = new HashSet<>();
+      int routeNumber = 0;
+
+      for (final Map.Entry<String, T> prefix : prefixes.entrySet()) {
+
+        if (prefix == null || prefix.getKey() == null || prefix.getKey().isEmpty()) {
+          throw new IllegalArgumentException("Empty keys are not allowed.");
+        }
+
+        final String key = prefix.getKey();
+        final int slash = key.indexOf('/');
+        final String address = slash < 0 ? key : key.substring(0, slash);
+        final boolean ipv6 = address.indexOf(':') >= 0;
+        final int maxLength = ipv6 ? IPV6_LENGTH : IPV4_LENGTH;
+        final long high;
+        final long low;
+
+        if (ipv6) {
+          final byte[] bytes = parseIpv6(key, address);
+          high = toLong(bytes, 0, Long.BYTES);
+          low = toLong(bytes, Long.BYTES, bytes.length);
+        } else {
+          high = parseIpv4(key, address) << IPV4_LENGTH;
+          low = 0;
+        }
+
+        final int length =
+            slash < 0 ? maxLength : parseLength(key, key.substring(slash + 1), maxLength);
+
+        if ((high & ~highMask(length)) != 0 || (low & ~lowMask(length)) != 0) {
+          throw new IllegalArgumentException(
+              "Address bits past the prefix length are set in: " + key);
+        }
+
+        final boolean ipv4 = !ipv6 || (isIpv4Mapped(high, low) && length >= IPV4_MAPPED_LENGTH);
+        final long routeHigh = ipv4 && ipv6 ? low << IPV4_LENGTH : high;
+        final long routeLow = ipv4 ? 0 : low;
+        final int routeLength = ipv4 && ipv6 ? length - IPV4_MAPPED_LENGTH : length;
+
+        if (!normalizedPrefixes.add(
+            (ipv4 ? IPV4_LENGTH : IPV6_LENGTH)
+                + ":"
+                + routeHigh
+                + ":"
+                + routeLow
+                + "/"
+                + routeLength)) {
+          throw new IllegalArgumentException("Duplicate keys found for: " + key);
+        }
+
+        keysAndValues[routeNumber++] = Pair.fromEntry(prefix);
+        (ipv4 ? ipv4Routes : ipv6Routes)
+            .add(new IpPrefixTrie.Route(routeHigh, routeLow, routeLength, routeNumber));
+      }
+
+      this.ipv4Trie = new IpPrefixTrie(ipv4Routes);
+      this.ipv6Trie = new IpPrefixTrie(ipv6Routes);
+    }
+
+    // IPv6 prefixes shorter than the IPv4 mapped prefix may still contain the address.
+    @Override
+    public Pair<String, T> keyAndValueForIpv4(final int address) {
+
+      final int routeNumber = ipv4Trie.route((address & 0xFFFFFFFFL) << IPV4_LENGTH, 0);
+
+      if (routeNumber != IpPrefixTrie.NO_ROUTE) {
+        return keyAndValue(routeNumber);
+      }
+
+      return keyAndValue(ipv6Trie.route(0, IPV4_MAPPED_BITS | (address & 0xFFFFFFFFL)));
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueForIpv6(final long high, final long low) {
+
+      if (isIpv4Mapped(high, low)) {
+        return keyAndValueForIpv4((int) low);
+      }
+
+      return keyAndValue(ipv6Trie.route(high, low));
+    }
+
+    private Pair<String, T> keyAndValue(final int routeNumber) {
+
+      if (routeNumber == IpPrefixTrie.NO_ROUTE) {
+        return null;
+      }
+
+      return keysAndValues[routeNumber - 1];
+    }
+  }
+
+  private static boolean isIpv4Mapped(final long high, final long low) {
+    return high == 0 && (low & ~0xFFFFFFFFL) == IPV4_MAPPED_BITS;
+  }
+
+  private static long toLong(final byte[] bytes, final int start, final int end) {
+
+    long value = 0;
+
+    for (int i = start; i < end; i++) {
+      value = (value << Byte.SIZE) | (bytes[i] & 0xFF);
+    }
+
+    return value;
+  }
+
+  private static long highMask(final int length) {
+    return length == 0 ? 0 : -1L << Math.max(0, Long.SIZE - length);
+  }
+
+  private static long lowMask(final int length) {
+    return length <= Long.SIZE ? 0 : -1L << (IPV6_LENGTH - length);
+  }
+
+  private static long parseIpv4(final String key, final String address) {
+
+    long value = 0;
+    int octets = 0;
+    int i = 0;
+
+    while (i <= address.length()) {
+
+      final int start = i;
+      int octet = 0;
+
+      while (i < address.length() && address.charAt(i) >= '0' && address.charAt(i) <= '9') {
+        octet = octet * 10 + (address.charAt(i++) - '0');
+
+        if (octet > 0xFF) {
+          throw new IllegalArgumentException("Invalid IP prefix: " + key);
+        }
+      }
+
+      if (i == start || (i < address.length() && address.charAt(i) != '.')) {
+        throw new IllegalArgumentException("Invalid IP prefix: " + key);
+      }
+
+      value = (value << Byte.SIZE) | octet;
+      octets++;
+      i++;
+    }
+
+    if (octets != IPV4_LENGTH / Byte.SIZE) {
+      throw new IllegalArgumentException("Invalid IP prefix: " + key);
+    }
+
+    return value;
+  }
+
+  private static byte[] parseIpv6(final String key, final String address) {
+
+    // Only literal addresses are parsed, so parsing never looks up a host name.
+    for (int i = 0; i < address.length(); i++) {
+
+      final char char_ = address.charAt(i);
+
+      if (char_ != ':' && char_ != '.' && Character.digit(char_, 16) < 0) {
+        throw new IllegalArgumentException("Invalid IP prefix: " + key);
+      }
+    }
+
+    final InetAddress inetAddress;
+
+    try {
+      inetAddress = InetAddress.getByName(address);
+    } catch (final UnknownHostException e) {
+      throw new IllegalArgumentException("Invalid IP prefix: " + key, e);
+    }
+
+    final byte[] bytes = inetAddress.getAddress();
+
+    if (bytes.length == IPV6_LENGTH / Byte.SIZE) {
+      return bytes;
+    }
+
+    // IPv4 mapped addresses are parsed as IPv4 addresses.
+    final byte[] mappedBytes = new byte[IPV6_LENGTH / Byte.SIZE];
+    mappedBytes[10] = (byte) 0xFF;
+    mappedBytes[11] = (byte) 0xFF;
+    System.arraycopy(bytes, 0, mappedBytes, 12, bytes.length);
+    return mappedBytes;
+  }
+
+  private static int parseLength(final String key, final String length, final int maxLength) {
+
+    if (length.isEmpty() || length.length() > 3) {
+      throw new IllegalArgumentException("Invalid IP prefix: " + key);
+    }
+
+    int value = 0;
+
+    for (int i = 0; i < length.length(); i++) {
+
+      final char char_ = length.charAt(i);
+
+      if (char_ < '0' || char_ > '9') {
+        throw new IllegalArgumentException("Invalid IP prefix: " + key);
+      }
+
+      value = value * 10 + (char_ - '0');
+    }
+
+    if (value > maxLength) {
+      throw new IllegalArgumentException("Invalid IP prefix: " + key);
+    }
+
+    return value;
+  }
+
+  private IpPrefixMappings() {}
+}
@@ -0,0 +1,249 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// A poptrie: a multibit trie over address bits whose first 16 bits index a direct table and whose
+// remaining bits are read 6 at a time. Each 6 bit node marks its 64 slots in two bitmaps, one for
+// slots with child nodes and one for the start of each run of equal leaves, so children and leaves
+// are packed into shared arrays and found by counting bits. Each leaf holds the number of the
+// longest route covering its slot, or NO_ROUTE.
+//
+// Addresses are left aligned in two longs, so IPv4 addresses only use the high bits of the first.
+final class IpPrefixTrie {
+
+  static final int NO_ROUTE = 0;
+
+  @VisibleForTesting static final int DIRECT_BITS = 16;
+  @VisibleForTesting static final int STRIDE = 6;
+  private static final int SLOTS = 1 << STRIDE;
+
+  static final class Route {
+    private final long high;
+    private final long low;
+    private final int length;
+    private final int number;
+
+    Route(final long high, final long low, final int length, final int number) {
+      this.high = high;
+      this.low = low;
+      this.length = length;
+      this.number = number;
+    }
+  }
+
+  // Only used while building.
+  private static final class BuildNode {
+    private final int[] leaves;
+    private BuildNode[] nodes;
+
+    private BuildNode(final int slots, final int inheritedLeaf) {
+      this.leaves = new int[slots];
+      Arrays.fill(leaves, inheritedLeaf);
+    }
+  }
+
+  // Each direct entry is either a node index or the complement of a leaf.
+  private final int[] direct;
+  private final long[] nodeBits;
+  private final long[] leafBits;
+  private final int[] firstNodes;
+  private final int[] firstLeaves;
+  private final int[] leaves;
+
+  // Routes with the same bits and length must already be rejected.
+  IpPrefixTrie(final List<Route> routes) {
+
+    // Shorter routes are expanded first, so longer routes overwrite the slots they cover and nodes
+    // are only created after every route which ends above them has filled the parent's slots.
+    routes.sort(Comparator.comparingInt(route -> route.length));
+
+    final BuildNode root = new BuildNode(1 << DIRECT_BITS, NO_ROUTE);
+
+    for (final Route route : routes) {
+      add(root, route);
+    }
+
+    // Nodes are numbered breadth first, so each node's children have consecutive indexes.
+    final List<BuildNode> buildNodes = new ArrayList<>();
+    this.direct = new int[root.leaves.length];
+
+    for (int slot = 0; slot < direct.length; slot++) {
+
+      final BuildNode child = root.nodes == null ? null : root.nodes[slot];
+
+      if (child == null) {
+        direct[slot] = ~root.leaves[slot];
+      } else {
+        direct[slot] = buildNodes.size();
+        buildNodes.add(child);
+      }
+    }
+
+    for (int i = 0; i < buildNodes.size(); i++) {
+
+      final BuildNode node = buildNodes.get(i);
+
+      if (node.nodes == null) {
+        continue;
+      }
+
+      for (final BuildNode child : node.nodes) {
+        if (child != null) {
+          buildNodes.add(child);
+        }
+      }
+    }
+
+    final int nodeCount = buildNodes.size();
+    this.nodeBits = new long[nodeCount];
+    this.leafBits = new long[nodeCount];
+    this.firstNodes = new int[nodeCount];
+    this.firstLeaves = new int[nodeCount];
+
+    int[] leaves = new int[Math.max(SLOTS, nodeCount)];
+    int leafCount = 0;
+    // The direct table's children come first.
+    int nextChildIndex = (int) Arrays.stream(direct).filter(entry -> entry >= 0).count();
+
+    for (int i = 0; i < nodeCount; i++) {
+
+      final BuildNode node = buildNodes.get(i);
+      long nodeBits = 0;
+      long leafBits = 0;
+      boolean afterLeaf = false;
+      int previousLeaf = NO_ROUTE;
+
+      firstNodes[i] = nextChildIndex;
+      firstLeaves[i] = leafCount;
+
+      for (int slot = 0; slot < SLOTS; slot++) {
+
+        if (node.nodes != null && node.nodes[slot] != null) {
+          nodeBits |= 1L << slot;
+          nextChildIndex++;
+          continue;
+        }
+
+        final int leaf = node.leaves[slot];
+
+        // Slots with children don't end a run, since lookups never read their leaves.
+        if (afterLeaf && leaf == previousLeaf) {
+          continue;
+        }
+
+        leafBits |= 1L << slot;
+
+        if (leafCount == leaves.length) {
+          leaves = Arrays.copyOf(leaves, leafCount + (leafCount >> 1));
+        }
+
+        leaves[leafCount++] = leaf;
+        afterLeaf = true;
+        previousLeaf = leaf;
+      }
+
+      this.nodeBits[i] = nodeBits;
+      this.leafBits[i] = leafBits;
+    }
+
+    this.leaves = Arrays.copyOf(leaves, leafCount);
+  }
+
+  private static void add(final BuildNode root, final Route route) {
+
+    BuildNode node = root;
+    int offset = 0;
+    int stride = DIRECT_BITS;
+
+    while (true) {
+
+      final int end = offset + stride;
+      final int slot = slot(route.high, route.low, offset, stride);
+
+      if (route.length <= end) {
+
+        // The route only fixes the leading bits of the slot, so it covers every slot which shares
+        // them.
+        final int freeBits = end - route.length;
+        final int firstSlot = (slot >>> freeBits) << freeBits;
+        Arrays.fill(node.leaves, firstSlot, firstSlot + (1 << freeBits), route.number);
+        return;
+      }
+
+      if (node.nodes == null) {
+        node.nodes = new BuildNode[node.leaves.length];
+      }
+
+      BuildNode child = node.nodes[slot];
+
+      if (child == null) {
+        child = new BuildNode(SLOTS, node.leaves[slot]);
+        node.nodes[slot] = child;
+      }
+
+      node = child;
+      offset = end;
+      stride = STRIDE;
+    }
+  }
+
+  // Bits past the end of the address read as zeros.
+  private static int slot(final long high, final long low, final int offset, final int stride) {
+
+    final long word = offset < Long.SIZE ? high : low;
+    final int bitOffset = offset & (Long.SIZE - 1);
+    final int shift = Long.SIZE - stride - bitOffset;
+    final long mask = (1L << stride) - 1;
+
+    if (shift >= 0) {
+      return (int) ((word >>> shift) & mask);
+    }
+
+    return (int) ((word << -shift) & mask);
+  }
+
+  int route(final long high, final long low) {
+
+    int entry = direct[(int) (high >>> (Long.SIZE - DIRECT_BITS))];
+
+    if (entry < 0) {
+      return ~entry;
+    }
+
+    int offset = DIRECT_BITS;
+
+    while (true) {
+
+      final int slot = slot(high, low, offset, STRIDE);
+      // Shifting 2 rather than 1 keeps slot 63's own bit.
+      final long mask = (2L << slot) - 1;
+      final long nodeBits = this.nodeBits[entry];
+
+      if ((nodeBits & (1L << slot)) == 0) {
+        return leaves[firstLeaves[entry] + Long.bitCount(leafBits[entry] & mask) - 1];
+      }
+
+      entry = firstNodes[entry] + Long.bitCount(nodeBits & mask) - 1;
+      offset += STRIDE;
+    }
+  }
+}
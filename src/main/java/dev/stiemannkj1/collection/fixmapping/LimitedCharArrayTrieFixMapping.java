@@ -17,31 +17,46 @@ package dev.stiemannkj1.collection.fixmapping;
 
 import dev.stiemannkj1.annotation.VisibleForTesting;
 import dev.stiemannkj1.util.Pair;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
-class LimitedCharArrayTrieFixMapping<T> implements FixMappings.FixMapping<T> {
+class LimitedCharArrayTrieFixMapping<T> implements FixMappings.IndexedFixMapping<T> {
+
+  private static final long[] EMPTY_LONGS = new long[0];
+  private static final int[] EMPTY_INTS = new int[0];
 
   private static final class Node<T> {
     private Node<T>[] nodes;
-    private Pair<String, T> keyValuePair;
+    // Only used by sparse tries, which pack children in char order and mark each present child
+    // with a bit. The bits only span the words from the node's lowest to highest child index, and
+    // each word's rank counts the children in the words before it.
+    private long[] childBits;
+    private int[] childRanks;
+    private int firstChildWord;
+    private int keyIndex = NO_KEY;
 
     private boolean isMatch() {
-      return this.keyValuePair != null;
+      return this.keyIndex != NO_KEY;
     }
   }
 
   private final boolean forPrefix;
-  private final Node<T>[] nodes;
+  private final Node<T> root;
   private final char min;
   private final int offset;
   private final char max;
   private final int minPrefixLength;
+  private final Pair<String, T>[] keyValuePairs;
 
+  @SuppressWarnings("unchecked")
   LimitedCharArrayTrieFixMapping(
-      final boolean forPrefix, final char min, final char max, final Map<String, T> fixes) {
-
-    // TODO implement Patricia Trie to save space
+      final boolean forPrefix,
+      final boolean sparse,
+      final char min,
+      final char max,
+      final Map<String, T> fixes) {
 
     if (max < min) {
       throw new IllegalArgumentException("Max character must be more than min character.");
@@ -57,13 +72,14 @@ class LimitedCharArrayTrieFixMapping<T> implements FixMappings.FixMapping<T> {
     this.max = max;
     this.offset = prevPowerOf2(min);
 
-    int trieNodeLength = nextPowerOf2(toIndex(max, offset));
+    // The array must hold the index of max itself.
+    final int trieNodeLength = nextPowerOf2(toIndex(max, offset) + 1);
 
-    @SuppressWarnings("unchecked")
-    final Node<T>[] initialNodes = new Node[trieNodeLength];
-    this.nodes = initialNodes;
+    this.root = new Node<>();
+    this.keyValuePairs = new Pair[fixes.size()];
 
     int minLength = Integer.MAX_VALUE;
+    int keyIndex = 0;
 
     for (final Map.Entry<String, T> fix : fixes.entrySet()) {
 
@@ -87,7 +103,7 @@ class LimitedCharArrayTrieFixMapping<T> implements FixMappings.FixMapping<T> {
         minLength = length;
       }
 
-      Node<T>[] currentNodes = this.nodes;
+      Node<T> parentNode = root;
 
       for (int i = 0; i < length; i++) {
 
@@ -107,31 +123,122 @@ class LimitedCharArrayTrieFixMapping<T> implements FixMappings.FixMapping<T> {
 
         final int charAsIndex = toIndex(char_, offset);
 
-        Node<T> currentNode = currentNodes[charAsIndex];
+        if (parentNode.nodes == null) {
+          initChildren(parentNode, sparse, trieNodeLength);
+        }
+
+        Node<T> currentNode = child(parentNode, charAsIndex);
 
         if (currentNode == null) {
           currentNode = new Node<>();
-          currentNodes[charAsIndex] = currentNode;
+          addChild(parentNode, charAsIndex, currentNode);
         } else if (endOfMatch && currentNode.isMatch()) {
           throw new IllegalArgumentException("Duplicate keys found for: " + fixString);
         }
 
         if (endOfMatch) {
-          currentNode.keyValuePair = Pair.fromEntry(fix);
+          currentNode.keyIndex = keyIndex;
+          keyValuePairs[keyIndex++] = Pair.fromEntry(fix);
           break;
-        } else if (currentNode.nodes == null) {
-          @SuppressWarnings("unchecked")
-          final Node<T>[] nodes = new Node[trieNodeLength];
-          currentNode.nodes = nodes;
         }
 
-        currentNodes = currentNode.nodes;
+        parentNode = currentNode;
       }
     }
 
     this.minPrefixLength = minLength;
   }
 
+  private static <T> void initChildren(
+      final Node<T> parent, final boolean sparse, final int trieNodeLength) {
+
+    if (sparse) {
+      parent.childBits = EMPTY_LONGS;
+      parent.childRanks = EMPTY_INTS;
+      @SuppressWarnings("unchecked")
+      final Node<T>[] nodes = new Node[0];
+      parent.nodes = nodes;
+    } else {
+      @SuppressWarnings("unchecked")
+      final Node<T>[] nodes = new Node[trieNodeLength];
+      parent.nodes = nodes;
+    }
+  }
+
+  // Shifts only use the low 6 bits of the index, so this masks the bits below the index's bit.
+  private static int rank(final Node<?> parent, final int word, final int index) {
+    return parent.childRanks[word] + Long.bitCount(parent.childBits[word] & ((1L << index) - 1));
+  }
+
+  private static <T> Node<T> child(final Node<T> parent, final int index) {
+
+    final long[] childBits = parent.childBits;
+
+    if (childBits == null) {
+      return parent.nodes[index];
+    }
+
+    final int word = (index >>> 6) - parent.firstChildWord;
+
+    if (word < 0 || word >= childBits.length || (childBits[word] & (1L << index)) == 0) {
+      return null;
+    }
+
+    return parent.nodes[rank(parent, word, index)];
+  }
+
+  private static <T> void addChild(final Node<T> parent, final int index, final Node<T> child) {
+
+    if (parent.childBits == null) {
+      parent.nodes[index] = child;
+      return;
+    }
+
+    final int absoluteWord = index >>> 6;
+
+    if (parent.childBits.length == 0) {
+      parent.firstChildWord = absoluteWord;
+    }
+
+    final int firstWord = Math.min(parent.firstChildWord, absoluteWord);
+    final int lastWord =
+        Math.max(parent.firstChildWord + parent.childBits.length - 1, absoluteWord);
+
+    if (lastWord - firstWord + 1 > parent.childBits.length) {
+
+      final long[] childBits = new long[lastWord - firstWord + 1];
+      final int[] childRanks = new int[childBits.length];
+      final int shift = parent.firstChildWord - firstWord;
+
+      System.arraycopy(parent.childBits, 0, childBits, shift, parent.childBits.length);
+      System.arraycopy(parent.childRanks, 0, childRanks, shift, parent.childRanks.length);
+      Arrays.fill(
+          childRanks, shift + parent.childRanks.length, childRanks.length, parent.nodes.length);
+
+      parent.childBits = childBits;
+      parent.childRanks = childRanks;
+      parent.firstChildWord = firstWord;
+    }
+
+    final int word = absoluteWord - parent.firstChildWord;
+    final int rank = rank(parent, word, index);
+    final int length = parent.nodes.length;
+    @SuppressWarnings("unchecked")
+    final Node<T>[] nodes = new Node[length + 1];
+
+    System.arraycopy(parent.nodes, 0, nodes, 0, rank);
+    System.arraycopy(parent.nodes, rank, nodes, rank + 1, length - rank);
+    nodes[rank] = child;
+
+    parent.childBits[word] |= 1L << index;
+
+    for (int i = word + 1; i < parent.childRanks.length; i++) {
+      parent.childRanks[i]++;
+    }
+
+    parent.nodes = nodes;
+  }
+
   static int nextPowerOf2(int v) {
 
     // https://graphics.stanford.edu/~seander/bithacks.html#RoundUpPowerOf2
@@ -164,20 +271,33 @@ class LimitedCharArrayTrieFixMapping<T> implements FixMappings.FixMapping<T> {
   @VisibleForTesting
   @Override
   public Pair<String, T> getKeyAndValue(
-      final boolean getLongestMatch, final String string, final AtomicLong debugSearchSteps) {
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
 
-    if (string == null) {
+    final int keyIndex = getKeyIndex(getLongestMatch, string, debugSearchSteps);
+
+    if (keyIndex == NO_KEY) {
       return null;
     }
 
+    return keyValuePairs[keyIndex];
+  }
+
+  @Override
+  public int getKeyIndex(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    if (string == null) {
+      return NO_KEY;
+    }
+
     final int length = string.length();
 
     if (length < minPrefixLength) {
-      return null;
+      return NO_KEY;
     }
 
-    Node<T>[] currentNodes = nodes;
-    Pair<String, T> lastMatch = null;
+    Node<T> parentNode = root;
+    int lastMatch = NO_KEY;
 
     for (int i = 0; i < length; i++) {
 
@@ -191,7 +311,7 @@ class LimitedCharArrayTrieFixMapping<T> implements FixMappings.FixMapping<T> {
         break;
       }
 
-      final Node<T> currentNode = currentNodes[toIndex(char_, offset)];
+      final Node<T> currentNode = child(parentNode, toIndex(char_, offset));
 
       if (currentNode == null) {
         break;
@@ -200,19 +320,71 @@ class LimitedCharArrayTrieFixMapping<T> implements FixMappings.FixMapping<T> {
       if (currentNode.isMatch()) {
 
         if (!getLongestMatch) {
-          return currentNode.keyValuePair;
+          return currentNode.keyIndex;
         }
 
-        lastMatch = currentNode.keyValuePair;
+        lastMatch = currentNode.keyIndex;
       }
 
       if (currentNode.nodes == null) {
         break;
       }
 
-      currentNodes = currentNode.nodes;
+      parentNode = currentNode;
     }
 
     return lastMatch;
   }
+
+  @Override
+  public int size() {
+    return keyValuePairs.length;
+  }
+
+  @Override
+  public Pair<String, T> keyAndValueAt(final int keyIndex) {
+    return keyValuePairs[keyIndex];
+  }
+
+  void forEachKeyAndValue(
+      final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+    if (string == null) {
+      return;
+    }
+
+    final int length = string.length();
+
+    if (length < minPrefixLength) {
+      return;
+    }
+
+    Node<T> parentNode = root;
+
+    for (int i = 0; i < length; i++) {
+
+      final char char_ = string.charAt(forPrefix ? i : length - i - 1);
+
+      if (char_ < min || max < char_) {
+        return;
+      }
+
+      final Node<T> currentNode = child(parentNode, toIndex(char_, offset));
+
+      if (currentNode == null) {
+        return;
+      }
+
+      if (currentNode.isMatch()) {
+        final Pair<String, T> keyValuePair = keyValuePairs[currentNode.keyIndex];
+        consumer.accept(keyValuePair.first, keyValuePair.second);
+      }
+
+      if (currentNode.nodes == null) {
+        return;
+      }
+
+      parentNode = currentNode;
+    }
+  }
 }
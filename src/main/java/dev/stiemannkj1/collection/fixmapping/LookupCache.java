@@ -0,0 +1,311 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import dev.stiemannkj1.util.Pair;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// A bounded cache of lookup results, including misses, keyed on the looked up string. Entries are
+// immutable and live in a set associative table which is only updated by compare and set, so
+// neither lookups nor updates lock. A new result only replaces an entry if its string has been
+// looked up more often recently, as estimated by a TinyLFU style frequency sketch, so one-off
+// strings can't evict hot ones. Lookups record their strings in striped buffers rather than in the
+// shared sketch, so hits from different threads don't write the same cache lines.
+final class LookupCache<T> {
+
+  @VisibleForTesting static final int WAYS = 4;
+
+  private static final class Entry<T> {
+    private final String string;
+    private final int hash;
+    private final Pair<String, T> keyAndValue;
+
+    private Entry(final String string, final int hash, final Pair<String, T> keyAndValue) {
+      this.string = string;
+      this.hash = hash;
+      this.keyAndValue = keyAndValue;
+    }
+  }
+
+  private final AtomicReferenceArray<Entry<T>> entries;
+  private final int mask;
+  private final FrequencySketch sketch;
+  private final AccessBuffer accesses;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  LookupCache(final int capacity) {
+
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive.");
+    }
+
+    final int length = LimitedCharArrayTrieFixMapping.nextPowerOf2(Math.max(capacity, WAYS));
+
+    this.entries = new AtomicReferenceArray<>(length);
+    this.mask = length - 1;
+    this.sketch = new FrequencySketch(length);
+    this.accesses = new AccessBuffer(sketch);
+  }
+
+  Pair<String, T> keyAndValue(
+      final CharSequence string, final Function<CharSequence, Pair<String, T>> lookup) {
+
+    if (string == null) {
+      return lookup.apply(null);
+    }
+
+    final int hash = hash(string);
+    final int set = spread(hash) & mask & -WAYS;
+
+    accesses.record(hash);
+
+    for (int i = set; i < set + WAYS; i++) {
+
+      final Entry<T> entry = entries.get(i);
+
+      if (entry != null && entry.hash == hash && entry.string.contentEquals(string)) {
+        hits.increment();
+        return entry.keyAndValue;
+      }
+    }
+
+    misses.increment();
+
+    final Pair<String, T> keyAndValue = lookup.apply(string);
+    // Misses are already slow, so they also bring the sketch up to date before comparing
+    // frequencies.
+    accesses.drain();
+    int victimIndex = set;
+    Entry<T> victim = entries.get(set);
+    int victimFrequency = victim == null ? -1 : sketch.frequency(victim.hash);
+
+    for (int i = set + 1; i < set + WAYS && victimFrequency >= 0; i++) {
+
+      final Entry<T> entry = entries.get(i);
+      final int frequency = entry == null ? -1 : sketch.frequency(entry.hash);
+
+      if (frequency < victimFrequency) {
+        victimIndex = i;
+        victim = entry;
+        victimFrequency = frequency;
+      }
+    }
+
+    if (victim == null || sketch.frequency(hash) > victimFrequency) {
+      // Losing the race to another update only means this result isn't cached.
+      entries.compareAndSet(victimIndex, victim, new Entry<>(string.toString(), hash, keyAndValue));
+    }
+
+    return keyAndValue;
+  }
+
+  long hitCount() {
+    return hits.sum();
+  }
+
+  long missCount() {
+    return misses.sum();
+  }
+
+  // Matches String.hashCode() so Strings can use their cached hash.
+  private static int hash(final CharSequence string) {
+
+    if (string instanceof String) {
+      return string.hashCode();
+    }
+
+    int hash = 0;
+
+    for (int i = 0; i < string.length(); i++) {
+      hash = (31 * hash) + string.charAt(i);
+    }
+
+    return hash;
+  }
+
+  private static int spread(final int hash) {
+    final int spread = hash * 0x9E3779B9;
+    return spread ^ (spread >>> 16);
+  }
+
+  // Each thread records hashes in the stripe picked by its id. A stripe is drained into the sketch
+  // when it fills, by whichever thread gets the drain lock, and a full stripe drops hashes until
+  // then. Dropped and overwritten hashes only make the sketch less exact, as in Caffeine's read
+  // buffer.
+  private static final class AccessBuffer {
+
+    private static final int MAX_STRIPES = 64;
+    // Each stripe is its own 256 bytes, so stripes don't share cache lines. The first long counts
+    // writes to the stripe and the next SLOTS longs hold recorded hashes.
+    private static final int STRIPE_LENGTH = 32;
+    private static final int SLOTS = 16;
+    // Marks slots which hold a hash, since any int is a valid hash.
+    private static final long RECORDED = 1L << Integer.SIZE;
+
+    private final AtomicLongArray stripes;
+    private final int stripeMask;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+
+    private AccessBuffer(final FrequencySketch sketch) {
+
+      final int stripeCount =
+          LimitedCharArrayTrieFixMapping.nextPowerOf2(
+              Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors() * 2));
+
+      this.stripes = new AtomicLongArray(stripeCount * STRIPE_LENGTH);
+      this.stripeMask = stripeCount - 1;
+      this.sketch = sketch;
+    }
+
+    private void record(final int hash) {
+
+      final int stripe = stripe();
+      final long writes = stripes.getAndIncrement(stripe);
+
+      if (writes < SLOTS) {
+        stripes.lazySet(stripe + 1 + (int) writes, RECORDED | (hash & 0xFFFFFFFFL));
+      }
+
+      if (writes == SLOTS - 1) {
+        drain();
+      }
+    }
+
+    // Never waits, since another thread which holds the lock is already draining.
+    private void drain() {
+
+      if (!drainLock.tryLock()) {
+        return;
+      }
+
+      try {
+
+        for (int stripe = 0; stripe < stripes.length(); stripe += STRIPE_LENGTH) {
+
+          final long writes = stripes.get(stripe);
+
+          if (writes == 0) {
+            continue;
+          }
+
+          for (int i = 1; i <= Math.min(writes, SLOTS); i++) {
+
+            final long recorded = stripes.getAndSet(stripe + i, 0);
+
+            if (recorded != 0) {
+              sketch.increment((int) recorded);
+            }
+          }
+
+          stripes.set(stripe, 0);
+        }
+      } finally {
+        drainLock.unlock();
+      }
+    }
+
+    private int stripe() {
+      final int spread = (int) Thread.currentThread().getId() * 0x9E3779B9;
+      return ((spread ^ (spread >>> 16)) & stripeMask) * STRIPE_LENGTH;
+    }
+  }
+
+  // A count-min sketch of 4-bit counters which are all halved once enough increments have been
+  // sampled, so old popularity fades. Only the thread holding the drain lock increments counters,
+  // so increments are never lost. Frequencies are read without the lock.
+  private static final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+      0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L
+    };
+    private static final long MAX_COUNTER = 0xF;
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    // Each long holds 16 counters.
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int size;
+
+    private FrequencySketch(final int capacity) {
+      this.table = new long[capacity];
+      this.mask = capacity - 1;
+      this.sampleSize = capacity * 10;
+    }
+
+    private int frequency(final int hash) {
+
+      int frequency = (int) MAX_COUNTER;
+
+      for (int i = 0; i < SEEDS.length; i++) {
+
+        final long seeded = seeded(hash, i);
+        final int shift = counterShift(seeded);
+
+        frequency = Math.min(frequency, (int) ((table[index(seeded)] >>> shift) & MAX_COUNTER));
+      }
+
+      return frequency;
+    }
+
+    private void increment(final int hash) {
+
+      for (int i = 0; i < SEEDS.length; i++) {
+
+        final long seeded = seeded(hash, i);
+        final int index = index(seeded);
+        final int shift = counterShift(seeded);
+
+        if (((table[index] >>> shift) & MAX_COUNTER) < MAX_COUNTER) {
+          table[index] += 1L << shift;
+        }
+      }
+
+      if (++size >= sampleSize) {
+        reset();
+      }
+    }
+
+    private void reset() {
+
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+
+      size /= 2;
+    }
+
+    private static long seeded(final int hash, final int i) {
+      final long seeded = (hash + SEEDS[i]) * SEEDS[i];
+      return seeded + (seeded >>> 32);
+    }
+
+    private int index(final long seeded) {
+      return (int) seeded & mask;
+    }
+
+    private static int counterShift(final long seeded) {
+      return (int) (seeded >>> 60) << 2;
+    }
+  }
+}
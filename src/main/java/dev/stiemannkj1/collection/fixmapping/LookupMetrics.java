@@ -0,0 +1,115 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.util.Pair;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Counts lookups with striped adders so concurrent lookups don't contend on one cache line. Search
+// steps are counted by a per thread counter which only its own thread touches, then added to the
+// shared counts once per lookup.
+final class LookupMetrics<T> {
+
+  // Bucket 0 counts zeros and bucket i counts values in [2^(i - 1), 2^i). Larger values are counted
+  // in the last bucket.
+  static final int BUCKETS = 33;
+
+  private static final ThreadLocal<AtomicLong> SEARCH_STEPS =
+      ThreadLocal.withInitial(AtomicLong::new);
+
+  private final FixMappings.FixMapping<T> fixMapping;
+  private final Function<CharSequence, Pair<String, T>> lookup;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder steps = new LongAdder();
+  private final LongAdder[] stepsHistogram = newHistogram();
+  private final LongAdder[] matchLengthHistogram = newHistogram();
+
+  // Steps are only counted for the mappings in this package, since other mappings can't report
+  // them.
+  LookupMetrics(final Object mapping, final Function<CharSequence, Pair<String, T>> lookup) {
+
+    if (mapping instanceof FixMappings.FixMapping) {
+      @SuppressWarnings("unchecked")
+      final FixMappings.FixMapping<T> fixMapping = (FixMappings.FixMapping<T>) mapping;
+      this.fixMapping = fixMapping;
+    } else {
+      this.fixMapping = null;
+    }
+
+    this.lookup = lookup;
+  }
+
+  Pair<String, T> keyAndValue(final CharSequence string) {
+
+    final Pair<String, T> keyAndValue;
+
+    if (fixMapping == null || string == null) {
+      keyAndValue = lookup.apply(string);
+    } else {
+
+      final AtomicLong searchSteps = SEARCH_STEPS.get();
+      searchSteps.lazySet(0);
+      keyAndValue = fixMapping.getKeyAndValue(true, string, searchSteps);
+
+      final long lookupSteps = searchSteps.get();
+      steps.add(lookupSteps);
+      stepsHistogram[bucket(lookupSteps)].increment();
+    }
+
+    if (keyAndValue == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+      matchLengthHistogram[bucket(keyAndValue.first.length())].increment();
+    }
+
+    return keyAndValue;
+  }
+
+  FixMappings.LookupMetricsSnapshot snapshot() {
+    return new FixMappings.LookupMetricsSnapshot(
+        hits.sum(), misses.sum(), steps.sum(), sums(stepsHistogram), sums(matchLengthHistogram));
+  }
+
+  static int bucket(final long value) {
+    return Math.min(Long.SIZE - Long.numberOfLeadingZeros(value), BUCKETS - 1);
+  }
+
+  private static LongAdder[] newHistogram() {
+
+    final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] = new LongAdder();
+    }
+
+    return histogram;
+  }
+
+  private static long[] sums(final LongAdder[] histogram) {
+
+    final long[] sums = new long[histogram.length];
+
+    for (int i = 0; i < histogram.length; i++) {
+      sums[i] = histogram[i].sum();
+    }
+
+    return sums;
+  }
+}
@@ -0,0 +1,275 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import dev.stiemannkj1.util.Pair;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// Runs lookups directly over the bytes written by DoubleArrayTrieFixMapping.write(), so loading
+// only reads the fixed size header regardless of the number of keys. Keys and values are only
+// materialized for matches, and never when only the key index is needed.
+class MappedDoubleArrayTrieFixMapping<T> implements FixMappings.IndexedFixMapping<T> {
+
+  static final int MAGIC = 0x46584D50;
+  static final int VERSION = 1;
+  static final int HEADER_LENGTH = 11 * Integer.BYTES;
+
+  private static final int ROOT = 0;
+  private static final int NO_STATE = -1;
+
+  private final ByteBuffer buffer;
+  private final Function<ByteBuffer, ? extends T> valueDecoder;
+  private final boolean forPrefix;
+  private final int minPrefixLength;
+  private final char minChar;
+  private final char maxChar;
+  private final int stateCount;
+  private final int keyCount;
+  // Byte offsets of each section in the buffer.
+  private final int codes;
+  private final int base;
+  private final int check;
+  private final int keyIndexes;
+  private final int keyOffsets;
+  private final int valueOffsets;
+  private final int keyChars;
+  private final int valueBytes;
+
+  MappedDoubleArrayTrieFixMapping(
+      final boolean forPrefix,
+      final ByteBuffer buffer,
+      final Function<ByteBuffer, ? extends T> valueDecoder) {
+
+    // Slices are always big-endian, matching DataOutput.
+    final ByteBuffer slice = buffer.slice().asReadOnlyBuffer();
+
+    if (slice.capacity() < HEADER_LENGTH || slice.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("Buffer does not contain a fix mapping.");
+    }
+
+    final int version = slice.getInt(4);
+
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported fix mapping version: " + version);
+    }
+
+    if ((slice.getInt(8) != 0) != forPrefix) {
+      throw new IllegalArgumentException(
+          "Buffer does not contain a " + (forPrefix ? "prefix" : "suffix") + " mapping.");
+    }
+
+    final int codesLength = slice.getInt(20);
+    final int stateCount = slice.getInt(24);
+    final int keyCount = slice.getInt(28);
+    final int keyCharCount = slice.getInt(32);
+    final int valueByteCount = slice.getInt(36);
+
+    final long codes = HEADER_LENGTH;
+    final long base = codes + ((long) codesLength * Integer.BYTES);
+    final long check = base + ((long) stateCount * Integer.BYTES);
+    final long keyIndexes = check + ((long) stateCount * Integer.BYTES);
+    final long keyOffsets = keyIndexes + ((long) stateCount * Integer.BYTES);
+    final long valueOffsets = keyOffsets + ((long) (keyCount + 1) * Integer.BYTES);
+    final long keyChars = valueOffsets + ((long) (keyCount + 1) * Integer.BYTES);
+    final long valueBytes = keyChars + ((long) keyCharCount * Character.BYTES);
+
+    if (codesLength < 0
+        || stateCount <= ROOT
+        || keyCount <= 0
+        || keyCharCount < 0
+        || valueByteCount < 0
+        || (valueBytes + valueByteCount) != slice.capacity()) {
+      throw new IllegalArgumentException("Fix mapping is truncated or corrupt.");
+    }
+
+    this.buffer = slice;
+    this.valueDecoder = valueDecoder;
+    this.forPrefix = forPrefix;
+    this.minPrefixLength = slice.getInt(12);
+    this.minChar = (char) slice.getInt(16);
+    this.maxChar = (char) (minChar + codesLength - 1);
+    this.stateCount = stateCount;
+    this.keyCount = keyCount;
+    this.codes = (int) codes;
+    this.base = (int) base;
+    this.check = (int) check;
+    this.keyIndexes = (int) keyIndexes;
+    this.keyOffsets = (int) keyOffsets;
+    this.valueOffsets = (int) valueOffsets;
+    this.keyChars = (int) keyChars;
+    this.valueBytes = (int) valueBytes;
+  }
+
+  private int intAt(final int section, final int index) {
+    return buffer.getInt(section + (index * Integer.BYTES));
+  }
+
+  private String keyAt(final int keyIndex) {
+
+    final int start = intAt(keyOffsets, keyIndex);
+    final char[] key = new char[intAt(keyOffsets, keyIndex + 1) - start];
+
+    for (int i = 0; i < key.length; i++) {
+      key[i] = buffer.getChar(keyChars + ((start + i) * Character.BYTES));
+    }
+
+    return new String(key);
+  }
+
+  private T valueAt(final int keyIndex) {
+
+    if (valueDecoder == null) {
+      return null;
+    }
+
+    final ByteBuffer value = buffer.duplicate();
+    value.position(valueBytes + intAt(valueOffsets, keyIndex));
+    value.limit(valueBytes + intAt(valueOffsets, keyIndex + 1));
+    return valueDecoder.apply(value.slice());
+  }
+
+  @VisibleForTesting
+  @Override
+  public Pair<String, T> getKeyAndValue(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    final int keyIndex = getKeyIndex(getLongestMatch, string, debugSearchSteps);
+
+    if (keyIndex == NO_KEY) {
+      return null;
+    }
+
+    return keyAndValueAt(keyIndex);
+  }
+
+  @Override
+  public int getKeyIndex(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    if (string == null) {
+      return NO_KEY;
+    }
+
+    final int length = string.length();
+
+    if (length < minPrefixLength) {
+      return NO_KEY;
+    }
+
+    int state = ROOT;
+    int lastKeyIndex = NO_KEY;
+
+    for (int i = 0; i < length; i++) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      state = nextState(state, string.charAt(forPrefix ? i : length - i - 1));
+
+      if (state == NO_STATE) {
+        break;
+      }
+
+      final int keyIndex = intAt(keyIndexes, state);
+
+      if (keyIndex != NO_KEY) {
+
+        lastKeyIndex = keyIndex;
+
+        if (!getLongestMatch) {
+          break;
+        }
+      }
+
+      if (intAt(base, state) == 0) {
+        break;
+      }
+    }
+
+    return lastKeyIndex;
+  }
+
+  @Override
+  public int size() {
+    return keyCount;
+  }
+
+  @Override
+  public Pair<String, T> keyAndValueAt(final int keyIndex) {
+    return Pair.of(keyAt(keyIndex), valueAt(keyIndex));
+  }
+
+  void forEachKeyAndValue(
+      final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+    if (string == null) {
+      return;
+    }
+
+    final int length = string.length();
+
+    if (length < minPrefixLength) {
+      return;
+    }
+
+    int state = ROOT;
+
+    for (int i = 0; i < length; i++) {
+
+      state = nextState(state, string.charAt(forPrefix ? i : length - i - 1));
+
+      if (state == NO_STATE) {
+        return;
+      }
+
+      final int keyIndex = intAt(keyIndexes, state);
+
+      if (keyIndex != NO_KEY) {
+        consumer.accept(keyAt(keyIndex), valueAt(keyIndex));
+      }
+
+      if (intAt(base, state) == 0) {
+        return;
+      }
+    }
+  }
+
+  private int nextState(final int state, final char char_) {
+
+    if (char_ < minChar || maxChar < char_) {
+      return NO_STATE;
+    }
+
+    final int code = intAt(codes, char_ - minChar);
+
+    if (code == 0) {
+      return NO_STATE;
+    }
+
+    final int nextState = intAt(base, state) + code;
+
+    if (nextState >= stateCount || intAt(check, nextState) != state) {
+      return NO_STATE;
+    }
+
+    return nextState;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+// Java 11+ runtimes load the version of this class in src/main/java11 from the multi-release jar,
+// which compares many chars at a time. This version compares one char at a time.
+final class Mismatches {
+
+  // Returns the index of the first differing char relative to the offsets, or -1 if the ranges
+  // are equal.
+  static int mismatch(
+      final char[] chars1,
+      final int offset1,
+      final char[] chars2,
+      final int offset2,
+      final int length) {
+
+    for (int i = 0; i < length; i++) {
+      if (chars1[offset1 + i] != chars2[offset2 + i]) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private Mismatches() {}
+}
@@ -0,0 +1,164 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+// Rejects most strings which can't match any key before an engine runs. Every key is at least
+// minKeyLength chars long, so a string can only match if it starts (or ends for suffixes) with the
+// head of some key. Strings are rejected if they are shorter than every key, if any of their head
+// chars never appears at that position in a key's head, or if the Bloom filter of key heads
+// doesn't contain their head.
+final class NegativeLookupFilter {
+
+  // Heads of up to 4 chars pack exactly into a long.
+  @VisibleForTesting static final int MAX_HEAD_LENGTH = 4;
+  private static final int BITS_PER_HEAD = 16;
+  private static final int HASHES = 4;
+
+  private final boolean forPrefix;
+  private final int minKeyLength;
+  private final int headLength;
+  // Bit (char % 64) of each mask is set when the char appears at that position in a key's head.
+  private final long[] headCharMasks;
+  private final long[] bloomFilter;
+  private final int bloomMask;
+  private final double falsePositiveRate;
+
+  NegativeLookupFilter(final boolean forPrefix, final Collection<String> keys) {
+
+    this.forPrefix = forPrefix;
+
+    int minKeyLength = Integer.MAX_VALUE;
+
+    for (final String key : keys) {
+      minKeyLength = Math.min(minKeyLength, key.length());
+    }
+
+    this.minKeyLength = minKeyLength;
+    this.headLength = Math.min(minKeyLength, MAX_HEAD_LENGTH);
+    this.headCharMasks = new long[headLength];
+
+    final Set<Long> heads = new HashSet<>();
+
+    for (final String key : keys) {
+
+      long head = 0;
+
+      for (int i = 0; i < headLength; i++) {
+        final char char_ = charAt(key, i);
+        headCharMasks[i] |= 1L << char_;
+        head = (head << Character.SIZE) | char_;
+      }
+
+      heads.add(head);
+    }
+
+    final int bits =
+        LimitedCharArrayTrieFixMapping.nextPowerOf2(
+            Math.max(Long.SIZE, heads.size() * BITS_PER_HEAD));
+
+    this.bloomFilter = new long[bits / Long.SIZE];
+    this.bloomMask = bits - 1;
+
+    for (final long head : heads) {
+      add(head);
+    }
+
+    long setBits = 0;
+
+    for (final long word : bloomFilter) {
+      setBits += Long.bitCount(word);
+    }
+
+    this.falsePositiveRate = Math.pow((double) setBits / bits, HASHES);
+  }
+
+  boolean mightMatch(final CharSequence string) {
+
+    if (string == null || string.length() < minKeyLength) {
+      return false;
+    }
+
+    long head = 0;
+
+    for (int i = 0; i < headLength; i++) {
+
+      final char char_ = charAt(string, i);
+
+      if ((headCharMasks[i] & (1L << char_)) == 0) {
+        return false;
+      }
+
+      head = (head << Character.SIZE) | char_;
+    }
+
+    final long hash = mix(head);
+    final int hash1 = (int) hash;
+    final int hash2 = (int) (hash >>> 32) | 1;
+
+    for (int i = 0; i < HASHES; i++) {
+
+      final int bit = (hash1 + i * hash2) & bloomMask;
+
+      if ((bloomFilter[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  // The estimated fraction of strings which are long enough to match but which pass the Bloom
+  // filter without matching any key head.
+  double falsePositiveRate() {
+    return falsePositiveRate;
+  }
+
+  private void add(final long head) {
+
+    final long hash = mix(head);
+    final int hash1 = (int) hash;
+    final int hash2 = (int) (hash >>> 32) | 1;
+
+    for (int i = 0; i < HASHES; i++) {
+      final int bit = (hash1 + i * hash2) & bloomMask;
+      bloomFilter[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  private char charAt(final CharSequence string, final int index) {
+
+    if (forPrefix) {
+      return string.charAt(index);
+    }
+
+    return string.charAt(string.length() - 1 - index);
+  }
+
+  // The MurmurHash3 finalizer, so every head bit affects every hash bit.
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,275 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Routes are split on '/' into a trie of whole segments, so a segment only matches a static
+// segment when every char of both segments is equal. Each node finds its static child with one
+// hash table probe, so paths whose segments match only one kind of child take one probe per
+// segment no matter how many routes there are. Static segments are tried before parameters and
+// parameters before wildcards, and a failed match backtracks to the next choice. Where static and
+// parameter children overlap, a miss may visit every node which matches a prefix of the path: up
+// to 2^depth nodes, as more overlapping routes are added.
+final class PathRouteTrie {
+
+  static final int NO_ROUTE = 0;
+  static final char SEPARATOR = '/';
+  static final String WILDCARD = "*";
+
+  static final class Route {
+    // Parameter segments are null and a trailing wildcard segment is WILDCARD.
+    private final String[] segments;
+    private final int number;
+
+    Route(final String[] segments, final int number) {
+      this.segments = segments;
+      this.number = number;
+    }
+  }
+
+  private static final class Node {
+    private Map<String, Node> staticNodes = new HashMap<>();
+    // Open addressed by segment hash code.
+    private String[] segments;
+    private int[] hashes;
+    private Node[] nodes;
+    private Node parameter;
+    private int route = NO_ROUTE;
+    private int wildcardRoute = NO_ROUTE;
+
+    private void freeze() {
+
+      int capacity = 1;
+
+      while (capacity < staticNodes.size() * 2) {
+        capacity <<= 1;
+      }
+
+      segments = new String[capacity];
+      hashes = new int[capacity];
+      nodes = new Node[capacity];
+
+      for (final Map.Entry<String, Node> staticNode : staticNodes.entrySet()) {
+
+        final int hash = staticNode.getKey().hashCode();
+        int i = spread(hash) & (capacity - 1);
+
+        while (segments[i] != null) {
+          i = (i + 1) & (capacity - 1);
+        }
+
+        segments[i] = staticNode.getKey();
+        hashes[i] = hash;
+        nodes[i] = staticNode.getValue();
+        staticNode.getValue().freeze();
+      }
+
+      staticNodes = null;
+
+      if (parameter != null) {
+        parameter.freeze();
+      }
+    }
+
+    private Node staticNode(
+        final CharSequence path, final int start, final int end, final int hash) {
+
+      final int mask = segments.length - 1;
+
+      for (int i = spread(hash) & mask; segments[i] != null; i = (i + 1) & mask) {
+        if (hashes[i] == hash && regionEquals(segments[i], path, start, end)) {
+          return nodes[i];
+        }
+      }
+
+      return null;
+    }
+  }
+
+  private final Node root = new Node();
+
+  PathRouteTrie(final List<Route> routes) {
+
+    for (final Route route : routes) {
+
+      Node node = root;
+      final String[] segments = route.segments;
+
+      for (int i = 0; i < segments.length; i++) {
+
+        final String segment = segments[i];
+
+        if (segment == null) {
+
+          if (node.parameter == null) {
+            node.parameter = new Node();
+          }
+
+          node = node.parameter;
+        } else if (WILDCARD.equals(segment) && i == segments.length - 1) {
+          node.wildcardRoute = route.number;
+          node = null;
+          break;
+        } else {
+          node = node.staticNodes.computeIfAbsent(segment, ignored -> new Node());
+        }
+      }
+
+      if (node != null) {
+        node.route = route.number;
+      }
+    }
+
+    root.freeze();
+  }
+
+  // Parameter bounds are written as start and end pairs in the order of the route's parameters,
+  // followed by the bounds of the wildcard. Bounds of routes which failed to match may also be
+  // overwritten.
+  int route(final CharSequence path, final int start, final int end, final int[] parameterBounds) {
+    return route(path, start, end, parameterBounds, null);
+  }
+
+  // Each visited node is one search step.
+  @VisibleForTesting
+  int route(
+      final CharSequence path,
+      final int start,
+      final int end,
+      final int[] parameterBounds,
+      final AtomicLong debugSearchSteps) {
+
+    if (start >= end || path.charAt(start) != SEPARATOR) {
+      return NO_ROUTE;
+    }
+
+    return route(root, path, start + 1, end, parameterBounds, 0, debugSearchSteps);
+  }
+
+  private static int route(
+      final Node node,
+      final CharSequence path,
+      final int segmentStart,
+      final int end,
+      final int[] parameterBounds,
+      final int parameter,
+      final AtomicLong debugSearchSteps) {
+
+    if (debugSearchSteps != null) {
+      debugSearchSteps.incrementAndGet();
+    }
+
+    int segmentEnd = segmentStart;
+    int hash = 0;
+
+    while (segmentEnd < end) {
+
+      final char char_ = path.charAt(segmentEnd);
+
+      if (char_ == SEPARATOR) {
+        break;
+      }
+
+      // Matches String.hashCode(), so static segments are hashed once when they are added.
+      hash = 31 * hash + char_;
+      segmentEnd++;
+    }
+
+    final boolean lastSegment = segmentEnd == end;
+    final Node staticNode = node.staticNode(path, segmentStart, segmentEnd, hash);
+
+    if (staticNode != null) {
+
+      final int route =
+          lastSegment
+              ? staticNode.route
+              : route(
+                  staticNode,
+                  path,
+                  segmentEnd + 1,
+                  end,
+                  parameterBounds,
+                  parameter,
+                  debugSearchSteps);
+
+      if (route != NO_ROUTE) {
+        return route;
+      }
+    }
+
+    // Parameters never match empty segments.
+    if (node.parameter != null && segmentEnd > segmentStart) {
+
+      final int route =
+          lastSegment
+              ? node.parameter.route
+              : route(
+                  node.parameter,
+                  path,
+                  segmentEnd + 1,
+                  end,
+                  parameterBounds,
+                  parameter + 1,
+                  debugSearchSteps);
+
+      if (route != NO_ROUTE) {
+        setBounds(parameterBounds, parameter, segmentStart, segmentEnd);
+        return route;
+      }
+    }
+
+    if (node.wildcardRoute != NO_ROUTE) {
+      setBounds(parameterBounds, parameter, segmentStart, end);
+      return node.wildcardRoute;
+    }
+
+    return NO_ROUTE;
+  }
+
+  private static void setBounds(
+      final int[] parameterBounds, final int parameter, final int start, final int end) {
+
+    if (parameterBounds != null) {
+      parameterBounds[parameter * 2] = start;
+      parameterBounds[parameter * 2 + 1] = end;
+    }
+  }
+
+  private static boolean regionEquals(
+      final String segment, final CharSequence path, final int start, final int end) {
+
+    if (segment.length() != end - start) {
+      return false;
+    }
+
+    for (int i = 0; i < segment.length(); i++) {
+      if (segment.charAt(i) != path.charAt(start + i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static int spread(final int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,310 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.util.Pair;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class PathRouters {
+
+  private static final String[] EMPTY_STRINGS = new String[0];
+
+  // Lookups split paths on '/' as they read them, so they don't build strings or allocate.
+  public interface ImmutablePathRouter<T> {
+
+    default T valueFor(final CharSequence path) {
+      final Pair<String, T> keyAndValue = keyAndValueFor(path, null);
+
+      if (keyAndValue == null) {
+        return null;
+      }
+
+      return keyAndValue.second;
+    }
+
+    default Pair<String, T> keyAndValueFor(final CharSequence path, final int[] parameterBounds) {
+
+      if (path == null) {
+        return null;
+      }
+
+      return keyAndValueFor(path, 0, path.length(), parameterBounds);
+    }
+
+    // Routes the chars of the path in [start, end), so query strings can be skipped without
+    // copying the path. When the parameter bounds are not null, the start and end offsets of each
+    // parameter in the path are written to them in the order the parameters appear in the route.
+    // They must hold at least 2 * maxParameterCount() ints.
+    Pair<String, T> keyAndValueFor(
+        final CharSequence path, final int start, final int end, final int[] parameterBounds);
+
+    // Unlike the other lookups, this allocates the match and its parameter bounds.
+    PathMatch<T> match(final CharSequence path);
+
+    int maxParameterCount();
+  }
+
+  public static final class PathMatch<T> {
+
+    private final Pair<String, T> keyAndValue;
+    private final CharSequence path;
+    private final String[] parameterNames;
+    private final int[] parameterBounds;
+
+    private PathMatch(
+        final Pair<String, T> keyAndValue,
+        final CharSequence path,
+        final String[] parameterNames,
+        final int[] parameterBounds) {
+      this.keyAndValue = keyAndValue;
+      this.path = path;
+      this.parameterNames = parameterNames;
+      this.parameterBounds = parameterBounds;
+    }
+
+    public String key() {
+      return keyAndValue.first;
+    }
+
+    public T value() {
+      return keyAndValue.second;
+    }
+
+    public Pair<String, T> keyAndValue() {
+      return keyAndValue;
+    }
+
+    public int parameterCount() {
+      return parameterNames.length;
+    }
+
+    // A trailing wildcard is named "*".
+    public String parameterName(final int parameter) {
+      return parameterNames[parameter];
+    }
+
+    public int parameterStart(final int parameter) {
+      checkParameter(parameter);
+      return parameterBounds[parameter * 2];
+    }
+
+    public int parameterEnd(final int parameter) {
+      checkParameter(parameter);
+      return parameterBounds[parameter * 2 + 1];
+    }
+
+    public CharSequence parameter(final String name) {
+
+      for (int i = 0; i < parameterNames.length; i++) {
+        if (parameterNames[i].equals(name)) {
+          return path.subSequence(parameterStart(i), parameterEnd(i));
+        }
+      }
+
+      return null;
+    }
+
+    private void checkParameter(final int parameter) {
+      if (parameter < 0 || parameter >= parameterNames.length) {
+        throw new IndexOutOfBoundsException(
+            "parameter " + parameter + ", parameter count " + parameterNames.length);
+      }
+    }
+
+    @Override
+    public String toString() {
+
+      final StringBuilder string =
+          new StringBuilder("PathMatch{key=").append(keyAndValue.first).append(", parameters={");
+
+      for (int i = 0; i < parameterNames.length; i++) {
+
+        if (i > 0) {
+          string.append(", ");
+        }
+
+        string.append(parameterNames[i]).append('=').append(parameter(parameterNames[i]));
+      }
+
+      return string.append("}}").toString();
+    }
+  }
+
+  // Keys are paths such as "/users/{id}/posts" or "/files/*". Segments in braces are parameters
+  // which match any nonempty segment and a trailing "*" matches the rest of the path after its
+  // '/'. Other segments must match exactly. Routes which differ only in their parameter names
+  // are duplicates.
+  public static <T> ImmutablePathRouter<T> pathRouter(final Map<String, T> routes) {
+    return new PathRouter<>(routes);
+  }
+
+  private static final class PathRouter<T> implements ImmutablePathRouter<T> {
+
+    // Both are indexed by route number - 1.
+    private final Pair<String, T>[] keysAndValues;
+    private final String[][] parameterNames;
+    private final PathRouteTrie trie;
+    private final int maxParameterCount;
+
+    @SuppressWarnings("unchecked")
+    private PathRouter(final Map<String, T> routes) {
+
+      if (routes.isEmpty()) {
+        throw new IllegalArgumentException("Routes cannot be empty.");
+      }
+
+      this.keysAndValues = new Pair[routes.size()];
+      this.parameterNames = new String[routes.size()][];
+
+      final List<PathRouteTrie.Route> trieRoutes = new ArrayList<>(routes.size());
+      final Set<String> normalizedRoutes = new HashSet<>();
+      int maxParameterCount = 0;
+      int routeNumber = 0;
+
+      for (final Map.Entry<String, T> route : routes.entrySet()) {
+
+        if (route == null || route.getKey() == null || route.getKey().isEmpty()) {
+          throw new IllegalArgumentException("Empty keys are not allowed.");
+        }
+
+        final String key = route.getKey();
+
+        if (key.charAt(0) != PathRouteTrie.SEPARATOR) {
+          throw new IllegalArgumentException("Routes must start with '/': " + key);
+        }
+
+        final String[] segments = key.substring(1).split("/", -1);
+        final List<String> names = new ArrayList<>();
+        final StringBuilder normalizedRoute = new StringBuilder();
+
+        for (int i = 0; i < segments.length; i++) {
+
+          final String segment = segments[i];
+
+          if (PathRouteTrie.WILDCARD.equals(segment)) {
+
+            if (i != segments.length - 1) {
+              throw new IllegalArgumentException(
+                  "Wildcards must be the last segment of the route: " + key);
+            }
+
+            names.add(PathRouteTrie.WILDCARD);
+          } else if (segment.startsWith("{") && segment.endsWith("}") && segment.length() > 2) {
+
+            final String name = segment.substring(1, segment.length() - 1);
+
+            if (!isValidName(name) || names.contains(name)) {
+              throw new IllegalArgumentException("Invalid route: " + key);
+            }
+
+            names.add(name);
+            segments[i] = null;
+          } else if (segment.indexOf('{') >= 0 || segment.indexOf('}') >= 0) {
+            throw new IllegalArgumentException("Invalid route: " + key);
+          }
+
+          normalizedRoute.append('/').append(segments[i] == null ? "{}" : segment);
+        }
+
+        if (!normalizedRoutes.add(normalizedRoute.toString())) {
+          throw new IllegalArgumentException("Duplicate keys found for: " + key);
+        }
+
+        maxParameterCount = Math.max(maxParameterCount, names.size());
+        parameterNames[routeNumber] = names.toArray(EMPTY_STRINGS);
+        keysAndValues[routeNumber++] = Pair.fromEntry(route);
+        trieRoutes.add(new PathRouteTrie.Route(segments, routeNumber));
+      }
+
+      this.maxParameterCount = maxParameterCount;
+      this.trie = new PathRouteTrie(trieRoutes);
+    }
+
+    @Override
+    public Pair<String, T> keyAndValueFor(
+        final CharSequence path, final int start, final int end, final int[] parameterBounds) {
+
+      if (path == null) {
+        return null;
+      }
+
+      if (start < 0 || start > end || end > path.length()) {
+        throw new IndexOutOfBoundsException(
+            "start " + start + ", end " + end + ", length " + path.length());
+      }
+
+      if (parameterBounds != null && parameterBounds.length < maxParameterCount * 2) {
+        throw new IllegalArgumentException(
+            "Parameter bounds length "
+                + parameterBounds.length
+                + " must be at least "
+                + (maxParameterCount * 2)
+                + ".");
+      }
+
+      final int routeNumber = trie.route(path, start, end, parameterBounds);
+
+      if (routeNumber == PathRouteTrie.NO_ROUTE) {
+        return null;
+      }
+
+      return keysAndValues[routeNumber - 1];
+    }
+
+    @Override
+    public PathMatch<T> match(final CharSequence path) {
+
+      if (path == null) {
+        return null;
+      }
+
+      final int[] parameterBounds = new int[maxParameterCount * 2];
+      final int routeNumber = trie.route(path, 0, path.length(), parameterBounds);
+
+      if (routeNumber == PathRouteTrie.NO_ROUTE) {
+        return null;
+      }
+
+      return new PathMatch<>(
+          keysAndValues[routeNumber - 1], path, parameterNames[routeNumber - 1], parameterBounds);
+    }
+
+    @Override
+    public int maxParameterCount() {
+      return maxParameterCount;
+    }
+  }
+
+  private static boolean isValidName(final String name) {
+
+    for (int i = 0; i < name.length(); i++) {
+
+      final char char_ = name.charAt(i);
+
+      if (char_ == '{' || char_ == '}' || char_ == '*') {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private PathRouters() {}
+}
@@ -0,0 +1,313 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import dev.stiemannkj1.util.Pair;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+class RadixTrieFixMapping<T> implements FixMappings.FixMapping<T> {
+
+  private static final char[] EMPTY_CHARS = new char[0];
+
+  private static final class Node<T> {
+    // Labels are stored in search order, so suffix labels are reversed.
+    private char[] label;
+    private char[] firstChars = EMPTY_CHARS;
+    private Node<T>[] nodes;
+    private Pair<String, T> keyValuePair;
+
+    private Node(final char[] label) {
+      this.label = label;
+    }
+
+    private boolean isMatch() {
+      return this.keyValuePair != null;
+    }
+  }
+
+  private final boolean forPrefix;
+  private final Node<T> root;
+  private final int minPrefixLength;
+
+  RadixTrieFixMapping(final boolean forPrefix, final Map<String, T> fixes) {
+
+    if (fixes.isEmpty()) {
+      throw new IllegalArgumentException(
+          (forPrefix ? "Prefixes" : "Suffixes") + " cannot be empty.");
+    }
+
+    this.forPrefix = forPrefix;
+    this.root = new Node<>(EMPTY_CHARS);
+
+    int minLength = Integer.MAX_VALUE;
+
+    for (final Map.Entry<String, T> fix : fixes.entrySet()) {
+
+      if (fix == null) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      final String fixString = fix.getKey();
+
+      if (fixString == null) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      final int length = fixString.length();
+
+      if (length == 0) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      if (length < minLength) {
+        minLength = length;
+      }
+
+      insert(forPrefix, root, fixString, Pair.fromEntry(fix));
+    }
+
+    this.minPrefixLength = minLength;
+  }
+
+  private static <T> void insert(
+      final boolean forPrefix,
+      final Node<T> root,
+      final String fixString,
+      final Pair<String, T> keyValuePair) {
+
+    final int length = fixString.length();
+    Node<T> currentNode = root;
+    int i = 0;
+
+    while (true) {
+
+      final char char_ = fixString.charAt(forPrefix ? i : length - i - 1);
+      final int childIndex = Arrays.binarySearch(currentNode.firstChars, char_);
+
+      if (childIndex < 0) {
+        final Node<T> leaf = new Node<>(toLabel(forPrefix, fixString, i));
+        leaf.keyValuePair = keyValuePair;
+        addNode(currentNode, -childIndex - 1, leaf);
+        return;
+      }
+
+      Node<T> childNode = currentNode.nodes[childIndex];
+      final char[] label = childNode.label;
+
+      // The first character of the label always matches.
+      int matched = 1;
+
+      while (matched < label.length
+          && (i + matched) < length
+          && label[matched]
+              == fixString.charAt(forPrefix ? i + matched : length - (i + matched) - 1)) {
+        matched++;
+      }
+
+      i += matched;
+
+      if (matched < label.length) {
+        childNode = splitNode(childNode, matched);
+        currentNode.nodes[childIndex] = childNode;
+      }
+
+      if (i == length) {
+
+        if (childNode.isMatch()) {
+          throw new IllegalArgumentException("Duplicate keys found for: " + fixString);
+        }
+
+        childNode.keyValuePair = keyValuePair;
+        return;
+      }
+
+      currentNode = childNode;
+    }
+  }
+
+  private static char[] toLabel(final boolean forPrefix, final String fixString, final int start) {
+
+    final int length = fixString.length();
+    final char[] label = new char[length - start];
+
+    for (int i = 0; i < label.length; i++) {
+      label[i] = fixString.charAt(forPrefix ? start + i : length - (start + i) - 1);
+    }
+
+    return label;
+  }
+
+  private static <T> void addNode(final Node<T> parent, final int index, final Node<T> node) {
+
+    final int length = parent.firstChars.length;
+    final char[] firstChars = new char[length + 1];
+    @SuppressWarnings("unchecked")
+    final Node<T>[] nodes = new Node[length + 1];
+
+    System.arraycopy(parent.firstChars, 0, firstChars, 0, index);
+    System.arraycopy(parent.firstChars, index, firstChars, index + 1, length - index);
+    firstChars[index] = node.label[0];
+
+    if (parent.nodes != null) {
+      System.arraycopy(parent.nodes, 0, nodes, 0, index);
+      System.arraycopy(parent.nodes, index, nodes, index + 1, length - index);
+    }
+
+    nodes[index] = node;
+
+    parent.firstChars = firstChars;
+    parent.nodes = nodes;
+  }
+
+  private static <T> Node<T> splitNode(final Node<T> node, final int splitIndex) {
+
+    final char[] label = node.label;
+    final Node<T> parent = new Node<>(Arrays.copyOf(label, splitIndex));
+    node.label = Arrays.copyOfRange(label, splitIndex, label.length);
+    addNode(parent, 0, node);
+
+    return parent;
+  }
+
+  @VisibleForTesting
+  @Override
+  public Pair<String, T> getKeyAndValue(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    if (string == null) {
+      return null;
+    }
+
+    final int length = string.length();
+
+    if (length < minPrefixLength) {
+      return null;
+    }
+
+    Node<T> currentNode = root;
+    Pair<String, T> lastMatch = null;
+    int i = 0;
+
+    while (i < length) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      final int childIndex =
+          Arrays.binarySearch(
+              currentNode.firstChars, string.charAt(forPrefix ? i : length - i - 1));
+
+      if (childIndex < 0) {
+        break;
+      }
+
+      final Node<T> childNode = currentNode.nodes[childIndex];
+      final char[] label = childNode.label;
+
+      if ((length - i) < label.length) {
+        break;
+      }
+
+      for (int j = 1; j < label.length; j++) {
+
+        if (debugSearchSteps != null) {
+          debugSearchSteps.incrementAndGet();
+        }
+
+        if (label[j] != string.charAt(forPrefix ? i + j : length - (i + j) - 1)) {
+          return lastMatch;
+        }
+      }
+
+      i += label.length;
+
+      if (childNode.isMatch()) {
+
+        if (!getLongestMatch) {
+          return childNode.keyValuePair;
+        }
+
+        lastMatch = childNode.keyValuePair;
+      }
+
+      if (childNode.nodes == null) {
+        break;
+      }
+
+      currentNode = childNode;
+    }
+
+    return lastMatch;
+  }
+
+  void forEachKeyAndValue(
+      final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+    if (string == null) {
+      return;
+    }
+
+    final int length = string.length();
+
+    if (length < minPrefixLength) {
+      return;
+    }
+
+    Node<T> currentNode = root;
+    int i = 0;
+
+    while (i < length) {
+
+      final int childIndex =
+          Arrays.binarySearch(
+              currentNode.firstChars, string.charAt(forPrefix ? i : length - i - 1));
+
+      if (childIndex < 0) {
+        return;
+      }
+
+      final Node<T> childNode = currentNode.nodes[childIndex];
+      final char[] label = childNode.label;
+
+      if ((length - i) < label.length) {
+        return;
+      }
+
+      for (int j = 1; j < label.length; j++) {
+        if (label[j] != string.charAt(forPrefix ? i + j : length - (i + j) - 1)) {
+          return;
+        }
+      }
+
+      i += label.length;
+
+      if (childNode.isMatch()) {
+        consumer.accept(childNode.keyValuePair.first, childNode.keyValuePair.second);
+      }
+
+      if (childNode.nodes == null) {
+        return;
+      }
+
+      currentNode = childNode;
+    }
+  }
+}
@@ -0,0 +1,291 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import dev.stiemannkj1.annotation.VisibleForTesting;
+import dev.stiemannkj1.util.Pair;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+// Unlike LimitedCharArrayTrieFixMapping, each node only spans the chars of its own children, so
+// keys may use any chars. Supplementary code points are stored as their two UTF-16 chars. Nodes
+// whose children are dense within their window index children directly and the rest binary search
+// their sorted child chars.
+class UnicodeTrieFixMapping<T> implements FixMappings.FixMapping<T> {
+
+  private static final char[] EMPTY_CHARS = new char[0];
+  // Nodes use direct indexing when their window has at most this many slots per child.
+  @VisibleForTesting static final int MAX_DENSE_SLOTS_PER_CHILD = 2;
+
+  private static final class Node<T> {
+    // The first char of the window for dense nodes.
+    private char min;
+    // The sorted child chars, or null for dense nodes.
+    private char[] chars = EMPTY_CHARS;
+    private Node<T>[] nodes;
+    private Pair<String, T> keyValuePair;
+
+    private boolean isMatch() {
+      return this.keyValuePair != null;
+    }
+
+    private Node<T> child(final char char_) {
+
+      if (chars == null) {
+
+        final int index = char_ - min;
+
+        if (index < 0 || index >= nodes.length) {
+          return null;
+        }
+
+        return nodes[index];
+      }
+
+      final int childIndex = Arrays.binarySearch(chars, char_);
+
+      if (childIndex < 0) {
+        return null;
+      }
+
+      return nodes[childIndex];
+    }
+  }
+
+  private final boolean forPrefix;
+  private final Node<T> root;
+  private final int minPrefixLength;
+
+  UnicodeTrieFixMapping(final boolean forPrefix, final Map<String, T> fixes) {
+
+    if (fixes.isEmpty()) {
+      throw new IllegalArgumentException(
+          (forPrefix ? "Prefixes" : "Suffixes") + " cannot be empty.");
+    }
+
+    this.forPrefix = forPrefix;
+    this.root = new Node<>();
+
+    int minLength = Integer.MAX_VALUE;
+
+    for (final Map.Entry<String, T> fix : fixes.entrySet()) {
+
+      if (fix == null || fix.getKey() == null) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      final String fixString = fix.getKey();
+      final int length = fixString.length();
+
+      if (length == 0) {
+        throw new IllegalArgumentException("Empty keys are not allowed.");
+      }
+
+      if (length < minLength) {
+        minLength = length;
+      }
+
+      Node<T> currentNode = root;
+
+      for (int i = 0; i < length; i++) {
+        currentNode = getOrAddChild(currentNode, fixString.charAt(forPrefix ? i : length - i - 1));
+      }
+
+      if (currentNode.isMatch()) {
+        throw new IllegalArgumentException("Duplicate keys found for: " + fixString);
+      }
+
+      currentNode.keyValuePair = Pair.fromEntry(fix);
+    }
+
+    this.minPrefixLength = minLength;
+
+    compact(root);
+  }
+
+  private static <T> Node<T> getOrAddChild(final Node<T> parent, final char char_) {
+
+    int childIndex = Arrays.binarySearch(parent.chars, char_);
+
+    if (childIndex >= 0) {
+      return parent.nodes[childIndex];
+    }
+
+    childIndex = -childIndex - 1;
+
+    final int length = parent.chars.length;
+    final char[] chars = new char[length + 1];
+    @SuppressWarnings("unchecked")
+    final Node<T>[] nodes = new Node[length + 1];
+
+    System.arraycopy(parent.chars, 0, chars, 0, childIndex);
+    System.arraycopy(parent.chars, childIndex, chars, childIndex + 1, length - childIndex);
+    chars[childIndex] = char_;
+
+    if (parent.nodes != null) {
+      System.arraycopy(parent.nodes, 0, nodes, 0, childIndex);
+      System.arraycopy(parent.nodes, childIndex, nodes, childIndex + 1, length - childIndex);
+    }
+
+    final Node<T> child = new Node<>();
+    nodes[childIndex] = child;
+
+    parent.chars = chars;
+    parent.nodes = nodes;
+
+    return child;
+  }
+
+  // Keys may be long, so nodes are visited with a queue rather than recursively.
+  private static <T> void compact(final Node<T> root) {
+
+    final ArrayDeque<Node<T>> queue = new ArrayDeque<>();
+    queue.add(root);
+
+    while (!queue.isEmpty()) {
+
+      final Node<T> node = queue.remove();
+      final char[] chars = node.chars;
+
+      if (chars.length == 0) {
+        continue;
+      }
+
+      final Node<T>[] nodes = node.nodes;
+
+      for (final Node<T> child : nodes) {
+        queue.add(child);
+      }
+
+      final int windowLength = chars[chars.length - 1] - chars[0] + 1;
+
+      if (windowLength > (long) chars.length * MAX_DENSE_SLOTS_PER_CHILD) {
+        continue;
+      }
+
+      @SuppressWarnings("unchecked")
+      final Node<T>[] window = new Node[windowLength];
+
+      for (int i = 0; i < chars.length; i++) {
+        window[chars[i] - chars[0]] = nodes[i];
+      }
+
+      node.min = chars[0];
+      node.chars = null;
+      node.nodes = window;
+    }
+  }
+
+  @VisibleForTesting
+  boolean isDense(final CharSequence fix) {
+
+    Node<T> node = root;
+    final int length = fix.length();
+
+    for (int i = 0; i < length; i++) {
+      node = node.child(fix.charAt(forPrefix ? i : length - i - 1));
+    }
+
+    return node.chars == null && node.nodes != null;
+  }
+
+  @VisibleForTesting
+  @Override
+  public Pair<String, T> getKeyAndValue(
+      final boolean getLongestMatch, final CharSequence string, final AtomicLong debugSearchSteps) {
+
+    if (string == null) {
+      return null;
+    }
+
+    final int length = string.length();
+
+    if (length < minPrefixLength) {
+      return null;
+    }
+
+    Node<T> parentNode = root;
+    Pair<String, T> lastMatch = null;
+
+    for (int i = 0; i < length; i++) {
+
+      if (debugSearchSteps != null) {
+        debugSearchSteps.incrementAndGet();
+      }
+
+      final Node<T> currentNode = parentNode.child(string.charAt(forPrefix ? i : length - i - 1));
+
+      if (currentNode == null) {
+        break;
+      }
+
+      if (currentNode.isMatch()) {
+
+        if (!getLongestMatch) {
+          return currentNode.keyValuePair;
+        }
+
+        lastMatch = currentNode.keyValuePair;
+      }
+
+      if (currentNode.nodes == null) {
+        break;
+      }
+
+      parentNode = currentNode;
+    }
+
+    return lastMatch;
+  }
+
+  void forEachKeyAndValue(
+      final CharSequence string, final BiConsumer<? super String, ? super T> consumer) {
+
+    if (string == null) {
+      return;
+    }
+
+    final int length = string.length();
+
+    if (length < minPrefixLength) {
+      return;
+    }
+
+    Node<T> parentNode = root;
+
+    for (int i = 0; i < length; i++) {
+
+      final Node<T> currentNode = parentNode.child(string.charAt(forPrefix ? i : length - i - 1));
+
+      if (currentNode == null) {
+        return;
+      }
+
+      if (currentNode.isMatch()) {
+        consumer.accept(currentNode.keyValuePair.first, currentNode.keyValuePair.second);
+      }
+
+      if (currentNode.nodes == null) {
+        return;
+      }
+
+      parentNode = currentNode;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import java.util.Arrays;
+
+// Arrays.mismatch is intrinsified to compare many chars at a time with vector instructions.
+final class Mismatches {
+
+  // Returns the index of the first differing char relative to the offsets, or -1 if the ranges
+  // are equal.
+  static int mismatch(
+      final char[] chars1,
+      final int offset1,
+      final char[] chars2,
+      final int offset2,
+      final int length) {
+    return Arrays.mismatch(chars1, offset1, offset1 + length, chars2, offset2, offset2 + length);
+  }
+
+  private Mismatches() {}
+}
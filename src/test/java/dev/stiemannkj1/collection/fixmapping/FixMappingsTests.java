@@ -15,31 +15,124 @@
 */
 package dev.stiemannkj1.collection.fixmapping;
 
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.ahoCorasickInfixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.binarySearchArrayPrefixIntMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.binarySearchArrayPrefixLongMapping;
 import static dev.stiemannkj1.collection.fixmapping.FixMappings.binarySearchArrayPrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.binarySearchArraySuffixIntMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.binarySearchArraySuffixLongMapping;
 import static dev.stiemannkj1.collection.fixmapping.FixMappings.binarySearchArraySuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.cachedPrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.cachedSuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.choosePrefixEngine;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.chooseSuffixEngine;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.concurrentPrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.concurrentSuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.doubleArrayTriePrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.doubleArrayTrieSuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.eytzingerBinarySearchArrayPrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.eytzingerBinarySearchArraySuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.frontCodedArrayPrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.frontCodedArraySuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.hashedPrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.hashedSuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.limitedCharArrayTriePrefixIntMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.limitedCharArrayTriePrefixLongMapping;
 import static dev.stiemannkj1.collection.fixmapping.FixMappings.limitedCharArrayTriePrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.limitedCharArrayTriePrefixMatcher;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.limitedCharArrayTrieSuffixIntMapping;
 import static dev.stiemannkj1.collection.fixmapping.FixMappings.limitedCharArrayTrieSuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.mappedPrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.mappedPrefixMatcher;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.mappedSuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.mappedSuffixMatcher;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.meteredPrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.meteredSuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.patternMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.patternMatcher;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.prefilteredPrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.prefilteredSuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.prefixIntMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.prefixLongMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.prefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.prefixMatcher;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.radixTriePrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.radixTrieSuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.sparseLimitedCharArrayTriePrefixIntMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.sparseLimitedCharArrayTriePrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.sparseLimitedCharArrayTrieSuffixIntMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.sparseLimitedCharArrayTrieSuffixLongMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.sparseLimitedCharArrayTrieSuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.suffixIntMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.suffixLongMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.suffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.suffixMatcher;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.unicodeTriePrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.unicodeTrieSuffixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.writePrefixMapping;
+import static dev.stiemannkj1.collection.fixmapping.FixMappings.writeSuffixMapping;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.sun.management.ThreadMXBean;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.CachedPrefixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.CachedSuffixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.CaseFolding;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.ConcurrentPrefixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.ConcurrentSuffixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.Engine;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.EngineChoice;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.ImmutableInfixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.ImmutablePatternMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.ImmutablePrefixIntMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.ImmutablePrefixLongMapping;
 import dev.stiemannkj1.collection.fixmapping.FixMappings.ImmutablePrefixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.ImmutableSuffixIntMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.ImmutableSuffixLongMapping;
 import dev.stiemannkj1.collection.fixmapping.FixMappings.ImmutableSuffixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.LookupMetricsSnapshot;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.MeteredPrefixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.MeteredSuffixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.PrefilteredPrefixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.PrefilteredSuffixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.PrefixMapping;
+import dev.stiemannkj1.collection.fixmapping.FixMappings.SuffixMapping;
 import dev.stiemannkj1.util.Pair;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -85,7 +178,7 @@ final class FixMappingsTests {
       final Map<String, Integer> prefixes =
           newTestMapBuilder().add("abc", 0).add("abe", 1).add("abd", 2).add("abdicate", 3).map;
 
-      ImmutablePrefixMapping<Integer> prefixMap = newPrefixMap(prefixes);
+      PrefixMapping<Integer> prefixMap = newPrefixMap(prefixes);
 
       assertEquals(expectPrefixed, prefixMap.matchesAnyPrefix(string));
       assertEquals(expectedValue, prefixMap.valueForPrefix(string));
@@ -123,7 +216,7 @@ final class FixMappingsTests {
       final Map<String, Integer> prefixes =
           newTestMapBuilder().add("abc", 0).add("abe", 1).add("abd", 2).add("abdicate", 3).map;
 
-      ImmutablePrefixMapping<Integer> prefixMap = newPrefixMap(prefixes);
+      PrefixMapping<Integer> prefixMap = newPrefixMap(prefixes);
 
       final AtomicLong firstSearchSteps = new AtomicLong();
       final AtomicLong longestSearchSteps = new AtomicLong();
@@ -174,6 +267,140 @@ final class FixMappingsTests {
       assertDoesNotThrow(() -> newPrefixMap(suffixes));
     }
 
+    @CsvSource(
+        value = {
+          "null,null",
+          "abc,0",
+          "abdicated,3",
+          "abd\u00e9,2",
+          "\u00e9abc,null",
+          "ab\uD83D\uDE00,null",
+          "ab,null"
+        },
+        nullValues = "null")
+    @ParameterizedTest
+    default void detects_prefixes_in_char_arrays_and_utf8_bytes(
+        final String string, final Integer expectedValue) {
+
+      final Map<String, Integer> prefixes =
+          newTestMapBuilder().add("abc", 0).add("abe", 1).add("abd", 2).add("abdicate", 3).map;
+
+      final PrefixMapping<Integer> prefixMap = newPrefixMap(prefixes);
+      final Pair<String, Integer> expectedKeyAndValue =
+          getKeyAndValueByValue(prefixes, expectedValue);
+
+      final char[] chars = string != null ? ("__" + string + "__").toCharArray() : null;
+      final int length = string != null ? string.length() : 0;
+      final byte[] utf8 =
+          string != null ? ("__" + string + "__").getBytes(StandardCharsets.UTF_8) : null;
+      final int utf8Length = string != null ? string.getBytes(StandardCharsets.UTF_8).length : 0;
+      final ByteBuffer heapBuffer = utf8 != null ? ByteBuffer.wrap(utf8) : null;
+      final ByteBuffer directBuffer =
+          utf8 != null ? ByteBuffer.allocateDirect(utf8.length).put(utf8) : null;
+
+      assertEquals(
+          expectedKeyAndValue,
+          prefixMap.keyAndValueForPrefix(string != null ? new StringBuilder(string) : null));
+      assertEquals(expectedKeyAndValue, prefixMap.keyAndValueForPrefix(chars, 2, length));
+      assertEquals(expectedKeyAndValue, prefixMap.keyAndValueForPrefix(utf8, 2, utf8Length));
+      assertEquals(expectedKeyAndValue, prefixMap.keyAndValueForPrefix(heapBuffer, 2, utf8Length));
+      assertEquals(
+          expectedKeyAndValue, prefixMap.keyAndValueForPrefix(directBuffer, 2, utf8Length));
+      assertEquals(expectedValue, prefixMap.valueForPrefix(chars, 2, length));
+      assertEquals(expectedValue, prefixMap.valueForPrefix(utf8, 2, utf8Length));
+      assertEquals(expectedValue != null, prefixMap.matchesAnyPrefix(chars, 2, length));
+      assertEquals(expectedValue != null, prefixMap.matchesAnyPrefix(directBuffer, 2, utf8Length));
+    }
+
+    @Test
+    default void throws_index_out_of_bounds_for_invalid_prefix_ranges() {
+
+      final PrefixMapping<Integer> prefixMap = newPrefixMap(newTestMapBuilder().add("abc", 0).map);
+
+      assertThrows(
+          IndexOutOfBoundsException.class, () -> prefixMap.valueForPrefix(new char[2], 1, 2));
+      assertThrows(
+          IndexOutOfBoundsException.class, () -> prefixMap.valueForPrefix(new byte[2], -1, 1));
+      assertThrows(
+          IndexOutOfBoundsException.class,
+          () -> prefixMap.valueForPrefix(ByteBuffer.allocate(2), 0, 3));
+    }
+
+    @Test
+    default void detects_prefixes_in_batches() {
+
+      final PrefixMapping<Integer> prefixMap =
+          newPrefixMap(
+              newTestMapBuilder().add("abc", 0).add("abe", 1).add("abd", 2).add("abdicate", 3).map);
+
+      final String[] inputs = {
+        "abc", "abdicated", null, "", "ab", "abdi", "x", "abdicate", "abe", "abdicat", "abc1"
+      };
+      // Cover both sequential lookups and lookups split across tasks.
+      final CharSequence[] strings = new CharSequence[(BatchLookups.MIN_FORK_LENGTH * 2) + 3];
+
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = inputs[i % inputs.length];
+      }
+
+      final Object[] values = new Object[strings.length];
+      final Object[] keysAndValues = new Object[strings.length];
+      final Object[] parallelValues = new Object[strings.length];
+      final Object[] parallelKeysAndValues = new Object[strings.length];
+
+      prefixMap.valuesForPrefixes(strings, values);
+      prefixMap.keysAndValuesForPrefixes(strings, keysAndValues);
+      prefixMap.valuesForPrefixes(strings, parallelValues, ForkJoinPool.commonPool());
+      prefixMap.keysAndValuesForPrefixes(strings, parallelKeysAndValues, ForkJoinPool.commonPool());
+
+      final List<Integer> streamedValues =
+          prefixMap
+              .valuesForPrefixes(Arrays.stream(strings).parallel())
+              .collect(Collectors.toList());
+      final List<Pair<String, Integer>> streamedKeysAndValues =
+          prefixMap.keysAndValuesForPrefixes(Arrays.stream(strings)).collect(Collectors.toList());
+
+      for (int i = 0; i < strings.length; i++) {
+        assertEquals(prefixMap.valueForPrefix(strings[i]), values[i]);
+        assertEquals(prefixMap.valueForPrefix(strings[i]), parallelValues[i]);
+        assertEquals(prefixMap.valueForPrefix(strings[i]), streamedValues.get(i));
+        assertEquals(prefixMap.keyAndValueForPrefix(strings[i]), keysAndValues[i]);
+        assertEquals(prefixMap.keyAndValueForPrefix(strings[i]), parallelKeysAndValues[i]);
+        assertEquals(prefixMap.keyAndValueForPrefix(strings[i]), streamedKeysAndValues.get(i));
+      }
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> prefixMap.valuesForPrefixes(strings, new Object[strings.length - 1]));
+    }
+
+    @Test
+    default void visits_all_matching_prefixes_from_shortest_to_longest() {
+
+      final PrefixMapping<Integer> prefixMap =
+          newPrefixMap(
+              newTestMapBuilder()
+                  .add("a", 0)
+                  .add("abc", 1)
+                  .add("abd", 2)
+                  .add("abdicate", 3)
+                  .add("b", 4)
+                  .map);
+      final List<Pair<String, Integer>> matches = new ArrayList<>();
+
+      prefixMap.forEachKeyAndValueForPrefix(
+          "abdicated", (key, value) -> matches.add(Pair.of(key, value)));
+
+      assertEquals(
+          Arrays.asList(Pair.of("a", 0), Pair.of("abd", 2), Pair.of("abdicate", 3)), matches);
+
+      matches.clear();
+      prefixMap.forEachKeyAndValueForPrefix("z", (key, value) -> matches.add(Pair.of(key, value)));
+      prefixMap.forEachKeyAndValueForPrefix(null, (key, value) -> matches.add(Pair.of(key, value)));
+
+      assertTrue(matches.isEmpty());
+    }
+
     static Stream<Map<String, Integer>> invalidPrefixes() {
 
       return Stream.of(
@@ -199,7 +426,7 @@ final class FixMappingsTests {
       assertThrows(expectedExceptionType, () -> newPrefixMap(prefixes));
     }
 
-    ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes);
+    PrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes);
   }
 
   interface SuffixMappersTests {
@@ -240,7 +467,7 @@ final class FixMappingsTests {
       final Map<String, Integer> suffixes =
           newTestMapBuilder().add("abc", 0).add("abe", 1).add("ate", 2).add("abdicate", 3).map;
 
-      ImmutableSuffixMapping<Integer> suffixMap = newSuffixMap(suffixes);
+      SuffixMapping<Integer> suffixMap = newSuffixMap(suffixes);
 
       assertEquals(expectSuffixed, suffixMap.matchesAnySuffix(string));
       assertEquals(expectedValue, suffixMap.valueForSuffix(string));
@@ -278,7 +505,7 @@ final class FixMappingsTests {
       final Map<String, Integer> suffixes =
           newTestMapBuilder().add("abc", 0).add("abe", 1).add("ate", 2).add("abdicate", 3).map;
 
-      ImmutableSuffixMapping<Integer> suffixMap = newSuffixMap(suffixes);
+      SuffixMapping<Integer> suffixMap = newSuffixMap(suffixes);
 
       final AtomicLong firstSearchSteps = new AtomicLong();
       final AtomicLong longestSearchSteps = new AtomicLong();
@@ -329,6 +556,140 @@ final class FixMappingsTests {
       assertDoesNotThrow(() -> newSuffixMap(suffixes));
     }
 
+    @CsvSource(
+        value = {
+          "null,null",
+          "abc,0",
+          "i abdicate,3",
+          "\u00e9ate,2",
+          "ate\u00e9,null",
+          "\uD83D\uDE00abc,0",
+          "at,null"
+        },
+        nullValues = "null")
+    @ParameterizedTest
+    default void detects_suffixes_in_char_arrays_and_utf8_bytes(
+        final String string, final Integer expectedValue) {
+
+      final Map<String, Integer> suffixes =
+          newTestMapBuilder().add("abc", 0).add("abe", 1).add("ate", 2).add("abdicate", 3).map;
+
+      final SuffixMapping<Integer> suffixMap = newSuffixMap(suffixes);
+      final Pair<String, Integer> expectedKeyAndValue =
+          getKeyAndValueByValue(suffixes, expectedValue);
+
+      final char[] chars = string != null ? ("__" + string + "__").toCharArray() : null;
+      final int length = string != null ? string.length() : 0;
+      final byte[] utf8 =
+          string != null ? ("__" + string + "__").getBytes(StandardCharsets.UTF_8) : null;
+      final int utf8Length = string != null ? string.getBytes(StandardCharsets.UTF_8).length : 0;
+      final ByteBuffer heapBuffer = utf8 != null ? ByteBuffer.wrap(utf8) : null;
+      final ByteBuffer directBuffer =
+          utf8 != null ? ByteBuffer.allocateDirect(utf8.length).put(utf8) : null;
+
+      assertEquals(
+          expectedKeyAndValue,
+          suffixMap.keyAndValueForSuffix(string != null ? new StringBuilder(string) : null));
+      assertEquals(expectedKeyAndValue, suffixMap.keyAndValueForSuffix(chars, 2, length));
+      assertEquals(expectedKeyAndValue, suffixMap.keyAndValueForSuffix(utf8, 2, utf8Length));
+      assertEquals(expectedKeyAndValue, suffixMap.keyAndValueForSuffix(heapBuffer, 2, utf8Length));
+      assertEquals(
+          expectedKeyAndValue, suffixMap.keyAndValueForSuffix(directBuffer, 2, utf8Length));
+      assertEquals(expectedValue, suffixMap.valueForSuffix(chars, 2, length));
+      assertEquals(expectedValue, suffixMap.valueForSuffix(utf8, 2, utf8Length));
+      assertEquals(expectedValue != null, suffixMap.matchesAnySuffix(chars, 2, length));
+      assertEquals(expectedValue != null, suffixMap.matchesAnySuffix(directBuffer, 2, utf8Length));
+    }
+
+    @Test
+    default void throws_index_out_of_bounds_for_invalid_suffix_ranges() {
+
+      final SuffixMapping<Integer> suffixMap = newSuffixMap(newTestMapBuilder().add("abc", 0).map);
+
+      assertThrows(
+          IndexOutOfBoundsException.class, () -> suffixMap.valueForSuffix(new char[2], 1, 2));
+      assertThrows(
+          IndexOutOfBoundsException.class, () -> suffixMap.valueForSuffix(new byte[2], -1, 1));
+      assertThrows(
+          IndexOutOfBoundsException.class,
+          () -> suffixMap.valueForSuffix(ByteBuffer.allocate(2), 0, 3));
+    }
+
+    @Test
+    default void detects_suffixes_in_batches() {
+
+      final SuffixMapping<Integer> suffixMap =
+          newSuffixMap(
+              newTestMapBuilder().add("abc", 0).add("abe", 1).add("ate", 2).add("abdicate", 3).map);
+
+      final String[] inputs = {
+        "abc", "i abdicate", null, "", "at", "cate", "z", "abdicate", "abe", "dicate", "1abc"
+      };
+      // Cover both sequential lookups and lookups split across tasks.
+      final CharSequence[] strings = new CharSequence[(BatchLookups.MIN_FORK_LENGTH * 2) + 3];
+
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = inputs[i % inputs.length];
+      }
+
+      final Object[] values = new Object[strings.length];
+      final Object[] keysAndValues = new Object[strings.length];
+      final Object[] parallelValues = new Object[strings.length];
+      final Object[] parallelKeysAndValues = new Object[strings.length];
+
+      suffixMap.valuesForSuffixes(strings, values);
+      suffixMap.keysAndValuesForSuffixes(strings, keysAndValues);
+      suffixMap.valuesForSuffixes(strings, parallelValues, ForkJoinPool.commonPool());
+      suffixMap.keysAndValuesForSuffixes(strings, parallelKeysAndValues, ForkJoinPool.commonPool());
+
+      final List<Integer> streamedValues =
+          suffixMap
+              .valuesForSuffixes(Arrays.stream(strings).parallel())
+              .collect(Collectors.toList());
+      final List<Pair<String, Integer>> streamedKeysAndValues =
+          suffixMap.keysAndValuesForSuffixes(Arrays.stream(strings)).collect(Collectors.toList());
+
+      for (int i = 0; i < strings.length; i++) {
+        assertEquals(suffixMap.valueForSuffix(strings[i]), values[i]);
+        assertEquals(suffixMap.valueForSuffix(strings[i]), parallelValues[i]);
+        assertEquals(suffixMap.valueForSuffix(strings[i]), streamedValues.get(i));
+        assertEquals(suffixMap.keyAndValueForSuffix(strings[i]), keysAndValues[i]);
+        assertEquals(suffixMap.keyAndValueForSuffix(strings[i]), parallelKeysAndValues[i]);
+        assertEquals(suffixMap.keyAndValueForSuffix(strings[i]), streamedKeysAndValues.get(i));
+      }
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> suffixMap.valuesForSuffixes(strings, new Object[strings.length - 1]));
+    }
+
+    @Test
+    default void visits_all_matching_suffixes_from_shortest_to_longest() {
+
+      final SuffixMapping<Integer> suffixMap =
+          newSuffixMap(
+              newTestMapBuilder()
+                  .add("e", 0)
+                  .add("ate", 1)
+                  .add("bate", 2)
+                  .add("abdicate", 3)
+                  .add("x", 4)
+                  .map);
+      final List<Pair<String, Integer>> matches = new ArrayList<>();
+
+      suffixMap.forEachKeyAndValueForSuffix(
+          "i abdicate", (key, value) -> matches.add(Pair.of(key, value)));
+
+      assertEquals(
+          Arrays.asList(Pair.of("e", 0), Pair.of("ate", 1), Pair.of("abdicate", 3)), matches);
+
+      matches.clear();
+      suffixMap.forEachKeyAndValueForSuffix("z", (key, value) -> matches.add(Pair.of(key, value)));
+      suffixMap.forEachKeyAndValueForSuffix(null, (key, value) -> matches.add(Pair.of(key, value)));
+
+      assertTrue(matches.isEmpty());
+    }
+
     static Stream<Map<String, Integer>> invalidSuffixes() {
 
       return Stream.of(
@@ -354,7 +715,7 @@ final class FixMappingsTests {
       assertThrows(expectedExceptionType, () -> newSuffixMap(suffixes));
     }
 
-    ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> prefixes);
+    SuffixMapping<Integer> newSuffixMap(final Map<String, Integer> prefixes);
   }
 
   private static void assertFirstMatchSearchTakesLessSteps(
@@ -384,6 +745,67 @@ final class FixMappingsTests {
     assertTrue(firstSearchSteps.get() <= longestSearchSteps.get());
   }
 
+  static final class MismatchesTests {
+
+    @Test
+    void finds_the_same_mismatches_as_comparing_each_char() {
+
+      final Random random = new Random(0);
+
+      for (int i = 0; i < 10_000; i++) {
+
+        final char[] chars1 = randomChars(random, 1 + random.nextInt(200));
+        final char[] chars2 = randomChars(random, 1 + random.nextInt(200));
+        final int offset1 = random.nextInt(chars1.length);
+        final int offset2 = random.nextInt(chars2.length);
+        final int length =
+            random.nextInt(Math.min(chars1.length - offset1, chars2.length - offset2) + 1);
+
+        // Mostly equal ranges, so mismatches are found past the first few chars.
+        if (random.nextBoolean()) {
+          System.arraycopy(chars1, offset1, chars2, offset2, random.nextInt(length + 1));
+        }
+
+        int expected = -1;
+
+        for (int j = 0; j < length; j++) {
+          if (chars1[offset1 + j] != chars2[offset2 + j]) {
+            expected = j;
+            break;
+          }
+        }
+
+        assertEquals(expected, Mismatches.mismatch(chars1, offset1, chars2, offset2, length));
+      }
+    }
+
+    // The java11Test task sets this property and puts the Java 11 classes first.
+    @Test
+    void loads_the_java_11_version_from_the_java_11_classes() {
+
+      assumeTrue(Boolean.getBoolean("fixmapping.java11Classes"));
+
+      assertTrue(
+          Mismatches.class
+              .getProtectionDomain()
+              .getCodeSource()
+              .getLocation()
+              .getPath()
+              .contains("java11"));
+    }
+
+    private static char[] randomChars(final Random random, final int length) {
+
+      final char[] chars = new char[length];
+
+      for (int i = 0; i < length; i++) {
+        chars[i] = (char) ('a' + random.nextInt(3));
+      }
+
+      return chars;
+    }
+  }
+
   static final class BinarySearchArrayPrefixMapTests implements PrefixMappersTests {
     @Override
     public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
@@ -392,8 +814,8 @@ final class FixMappingsTests {
 
     @CsvSource(
         value = {
-          "abdicate,abd,abdicate,3,11,8,8",
-          "abdicated,abd,abdicate,3,14,8,11",
+          "abdicate,abd,abd,11,11,11,11",
+          "abdicated,abd,abd,14,14,14,14",
         })
     @ParameterizedTest
     @Override
@@ -414,6 +836,71 @@ final class FixMappingsTests {
           firstMatchStepsOddKeys,
           longestMatchStepsOddKeys);
     }
+
+    @Test
+    void matches_long_keys_by_comparing_packed_chars() {
+
+      final StringBuilder base = new StringBuilder();
+
+      while (base.length() < BinarySearchArrayFixMapping.MIN_PACKED_KEY_LENGTH) {
+        base.append("/api/v1/customers");
+      }
+
+      final MapBuilder<String, Integer> mapBuilder = newTestMapBuilder().add(base.toString(), -1);
+
+      for (int i = 0; i < 100; i += 3) {
+        mapBuilder.add(base + "/" + i, i);
+      }
+
+      final ImmutablePrefixMapping<Integer> expectedPrefixMap =
+          doubleArrayTriePrefixMapping(mapBuilder.map);
+
+      for (final ImmutablePrefixMapping<Integer> prefixMap :
+          Arrays.asList(
+              binarySearchArrayPrefixMapping(mapBuilder.map),
+              eytzingerBinarySearchArrayPrefixMapping(mapBuilder.map))) {
+        for (int i = 0; i < 100; i++) {
+
+          final String key = base + "/" + i;
+          final List<String> strings =
+              Arrays.asList(key, key + "/details", key.substring(0, key.length() - 1));
+
+          for (final String string : strings) {
+            assertEquals(
+                expectedPrefixMap.keyAndValueForPrefix(string),
+                prefixMap.keyAndValueForPrefix(string));
+            assertEquals(
+                expectedPrefixMap.matchesAnyPrefix(new StringBuilder(string)),
+                prefixMap.matchesAnyPrefix(new StringBuilder(string)));
+          }
+        }
+      }
+    }
+
+    @Test
+    void copies_no_more_of_the_string_than_the_longest_key() {
+
+      final StringBuilder key = new StringBuilder();
+
+      while (key.length() < BinarySearchArrayFixMapping.MIN_PACKED_KEY_LENGTH) {
+        key.append("/api/v1/customers");
+      }
+
+      final StringBuilder string = new StringBuilder(key);
+
+      while (string.length() < 100_000) {
+        string.append("/details");
+      }
+
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          binarySearchArrayPrefixMapping(
+              newTestMapBuilder().add(key.toString(), 0).add("/api", 1).map);
+      BinarySearchArrayFixMapping.SEARCH_CHARS.remove();
+
+      assertEquals(Pair.of(key.toString(), 0), prefixMap.keyAndValueForPrefix(string.toString()));
+      assertTrue(prefixMap.matchesAnyPrefix(string));
+      assertEquals(key.length(), BinarySearchArrayFixMapping.SEARCH_CHARS.get().length);
+    }
   }
 
   static final class BinarySearchArraySuffixMapTests implements SuffixMappersTests {
@@ -424,8 +911,8 @@ final class FixMappingsTests {
 
     @CsvSource(
         value = {
-          "abdicate,abdicate,ate,8,8,5,13",
-          "i abdicate,abdicate,ate,8,10,5,13",
+          "abdicate,ate,ate,13,13,13,13",
+          "i abdicate,ate,ate,13,13,13,13",
         })
     @ParameterizedTest
     @Override
@@ -446,18 +933,86 @@ final class FixMappingsTests {
           firstMatchStepsOddKeys,
           longestMatchStepsOddKeys);
     }
+
+    @Test
+    void matches_long_keys_by_comparing_packed_chars() {
+
+      final StringBuilder base = new StringBuilder();
+
+      while (base.length() < BinarySearchArrayFixMapping.MIN_PACKED_KEY_LENGTH) {
+        base.append("/api/v1/customers");
+      }
+
+      final MapBuilder<String, Integer> mapBuilder = newTestMapBuilder().add(base.toString(), -1);
+
+      for (int i = 0; i < 100; i += 3) {
+        mapBuilder.add(i + "/" + base, i);
+      }
+
+      final ImmutableSuffixMapping<Integer> expectedSuffixMap =
+          doubleArrayTrieSuffixMapping(mapBuilder.map);
+
+      for (final ImmutableSuffixMapping<Integer> suffixMap :
+          Arrays.asList(
+              binarySearchArraySuffixMapping(mapBuilder.map),
+              eytzingerBinarySearchArraySuffixMapping(mapBuilder.map))) {
+        for (int i = 0; i < 100; i++) {
+
+          final String key = i + "/" + base;
+          final List<String> strings = Arrays.asList(key, "details/" + key, key.substring(1));
+
+          for (final String string : strings) {
+            assertEquals(
+                expectedSuffixMap.keyAndValueForSuffix(string),
+                suffixMap.keyAndValueForSuffix(string));
+            assertEquals(
+                expectedSuffixMap.matchesAnySuffix(new StringBuilder(string)),
+                suffixMap.matchesAnySuffix(new StringBuilder(string)));
+          }
+        }
+      }
+    }
+
+    @Test
+    void copies_no_more_of_the_string_than_the_longest_key() {
+
+      final StringBuilder key = new StringBuilder();
+
+      while (key.length() < BinarySearchArrayFixMapping.MIN_PACKED_KEY_LENGTH) {
+        key.append("/api/v1/customers");
+      }
+
+      final StringBuilder string = new StringBuilder();
+
+      while (string.length() < 100_000) {
+        string.append("details/");
+      }
+
+      string.append(key);
+
+      final ImmutableSuffixMapping<Integer> suffixMap =
+          binarySearchArraySuffixMapping(
+              newTestMapBuilder().add(key.toString(), 0).add("customers", 1).map);
+      BinarySearchArrayFixMapping.SEARCH_CHARS.remove();
+
+      assertEquals(Pair.of(key.toString(), 0), suffixMap.keyAndValueForSuffix(string.toString()));
+      assertTrue(suffixMap.matchesAnySuffix(string));
+      assertEquals(key.length(), BinarySearchArrayFixMapping.SEARCH_CHARS.get().length);
+    }
   }
 
-  static final class LimitedCharArrayTriePrefixMapTests implements PrefixMappersTests {
+  static final class BuilderPrefixMapTests implements PrefixMappersTests {
     @Override
     public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
-      return limitedCharArrayTriePrefixMapping('a', 'z', prefixes);
+      return FixMappings.<Integer>builder()
+          .addAll(prefixes.entrySet().iterator())
+          .buildPrefixMapping();
     }
 
     @CsvSource(
         value = {
-          "abdicate,abd,abd,3,8,3,8",
-          "abdicated,abd,abd,3,8,3,8",
+          "abdicate,abd,abd,11,11,11,11",
+          "abdicated,abd,abd,14,14,14,14",
         })
     @ParameterizedTest
     @Override
@@ -478,18 +1033,72 @@ final class FixMappingsTests {
           firstMatchStepsOddKeys,
           longestMatchStepsOddKeys);
     }
+
+    @Test
+    void builds_the_same_mapping_from_sorted_and_unsorted_keys() throws IOException {
+
+      final List<String> keys =
+          IntStream.range(0, 2_000)
+              .mapToObj(i -> Integer.toString(i * 7, 36))
+              .sorted()
+              .collect(Collectors.toList());
+      final List<String> shuffledKeys = new ArrayList<>(keys);
+      Collections.shuffle(shuffledKeys, new Random(0));
+
+      final ImmutablePrefixMapping<Integer> sortedPrefixMap =
+          FixMappings.<Integer>builder(keys.size())
+              .addAll(keys.stream().map(key -> Pair.of(key, key.length())))
+              .buildPrefixMapping();
+      final ImmutablePrefixMapping<Integer> unsortedPrefixMap =
+          FixMappings.<Integer>builder()
+              .addAll(
+                  new BufferedReader(new StringReader(String.join("\n", shuffledKeys))),
+                  line -> Pair.of(line, line.length()))
+              .buildPrefixMapping();
+
+      for (final String key : keys) {
+        for (final String string : Arrays.asList(key, key + "0", key + "~", key.substring(1))) {
+          assertEquals(
+              sortedPrefixMap.keyAndValueForPrefix(string),
+              unsortedPrefixMap.keyAndValueForPrefix(string));
+        }
+      }
+
+      assertEquals(Pair.of("jg", 2), sortedPrefixMap.keyAndValueForPrefix("jg!"));
+    }
+
+    @Test
+    void throws_when_given_invalid_keys_or_reused() {
+
+      final FixMappings.Builder<Integer> sortedBuilder = FixMappings.<Integer>builder().add("a", 0);
+      assertThrows(IllegalArgumentException.class, () -> sortedBuilder.add("a", 1));
+      assertThrows(IllegalArgumentException.class, () -> sortedBuilder.add("", 1));
+      assertThrows(IllegalArgumentException.class, () -> sortedBuilder.add(null, 1));
+
+      final FixMappings.Builder<Integer> unsortedBuilder =
+          FixMappings.<Integer>builder().add("b", 0).add("ab", 1).add("a", 2).add("b", 3);
+      assertThrows(IllegalArgumentException.class, unsortedBuilder::buildPrefixMapping);
+
+      final FixMappings.Builder<Integer> builder = FixMappings.<Integer>builder().add("a", 0);
+      assertEquals(0, builder.buildPrefixMapping().valueForPrefix("abc"));
+      assertThrows(IllegalStateException.class, () -> builder.add("b", 1));
+      assertThrows(IllegalStateException.class, builder::buildSuffixMapping);
+      assertThrows(IllegalArgumentException.class, () -> FixMappings.builder(-1));
+    }
   }
 
-  static final class LimitedCharArrayTrieSuffixMapTests implements SuffixMappersTests {
+  static final class BuilderSuffixMapTests implements SuffixMappersTests {
     @Override
     public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
-      return limitedCharArrayTrieSuffixMapping('a', 'z', suffixes);
+      return FixMappings.<Integer>builder()
+          .addAll(suffixes.entrySet().iterator())
+          .buildSuffixMapping();
     }
 
     @CsvSource(
         value = {
-          "abdicate,ate,ate,3,8,3,8",
-          "i abdicate,ate,ate,3,8,3,8",
+          "abdicate,ate,ate,13,13,13,13",
+          "i abdicate,ate,ate,13,13,13,13",
         })
     @ParameterizedTest
     @Override
@@ -510,53 +1119,2146 @@ final class FixMappingsTests {
           firstMatchStepsOddKeys,
           longestMatchStepsOddKeys);
     }
-  }
 
-  static final class LimitedCharArrayTrieFixMapperTests {
-
-    @CsvSource({"0,0", "1,1", "2,2", "3,4", "4,4", "5,8", "6,8", "7,8", "8,8", "9,16", "16,16"})
-    @ParameterizedTest
-    void gets_next_power_of_2(final int i, final int expectedPowerOf2) {
-      assertEquals(expectedPowerOf2, LimitedCharArrayTrieFixMapping.nextPowerOf2(i));
+    @Test
+    void builds_from_keys_sorted_by_their_last_chars() {
+
+      final ImmutableSuffixMapping<Integer> suffixMap =
+          FixMappings.<Integer>builder()
+              .add("a", 0)
+              .add("ba", 1)
+              .add("cb", 2)
+              .add("bc", 3)
+              .buildSuffixMapping();
+
+      assertEquals(1, suffixMap.valueForSuffix("aba"));
+      assertEquals(2, suffixMap.valueForSuffix("acb"));
+      assertEquals(3, suffixMap.valueForSuffix("abc"));
+      assertNull(suffixMap.valueForSuffix("ab"));
     }
+  }
 
-    @CsvSource({
-      "0,0", "1,1", "2,2", "3,2", "4,4", "5,4", "6,4", "7,4", "8,8", "9,8", "16,16", "17,16"
-    })
-    @ParameterizedTest
-    void gets_next_prev_of_2(final int i, final int expectedPowerOf2) {
-      assertEquals(expectedPowerOf2, LimitedCharArrayTrieFixMapping.prevPowerOf2(i));
+  static final class EytzingerBinarySearchArrayPrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return eytzingerBinarySearchArrayPrefixMapping(prefixes);
     }
 
-    @CsvSource({"a,0", "b,0", "c,1", "d,32", "e,64"})
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,10,10,10,10",
+          "abdicated,abd,abd,10,10,10,10",
+        })
     @ParameterizedTest
-    void gets_index_from_char(final char char_, final int offset) {
-      assertEquals(char_ - offset, LimitedCharArrayTrieFixMapping.toIndex(char_, offset));
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
     }
-  }
 
-  private static final class MapBuilder<K, V> {
-    private final Map<K, V> map = new HashMap<>();
+    @Test
+    void matches_the_same_keys_as_binary_search_for_every_tree_shape() {
+
+      // Keys shorter than the packed heads and keys containing NUL chars have equal heads.
+      final List<String> keys =
+          Arrays.asList(
+              "a",
+              "a\u0000",
+              "a\u0000b",
+              "ab",
+              "abc",
+              "abcd",
+              "abcde",
+              "abcdf",
+              "abce",
+              "abd",
+              "abdicate",
+              "b",
+              "ba",
+              "\uFFFFa",
+              "\uFFFF\uFFFF",
+              "\u0000",
+              "x\u8000y",
+              "x\u8000");
+      final List<String> strings = new ArrayList<>(keys);
+
+      for (final String key : keys) {
+        strings.add(key + "\u0000");
+        strings.add(key + "zz");
+        strings.add(key.substring(0, key.length() - 1));
+      }
 
-    private MapBuilder<K, V> add(final K key, V value) {
-      map.put(key, value);
-      return this;
+      for (int size = 1; size <= keys.size(); size++) {
+
+        final MapBuilder<String, Integer> mapBuilder = newTestMapBuilder();
+
+        for (int i = 0; i < size; i++) {
+          mapBuilder.add(keys.get(i), i);
+        }
+
+        final FixMappings.FixMapping<Integer> expectedPrefixMap =
+            (FixMappings.FixMapping<Integer>) binarySearchArrayPrefixMapping(mapBuilder.map);
+        final FixMappings.FixMapping<Integer> prefixMap =
+            (FixMappings.FixMapping<Integer>)
+                eytzingerBinarySearchArrayPrefixMapping(mapBuilder.map);
+
+        for (final String string : strings) {
+          assertEquals(
+              expectedPrefixMap.getKeyAndValue(false, string, null),
+              prefixMap.getKeyAndValue(false, string, null));
+          assertEquals(
+              expectedPrefixMap.getKeyAndValue(true, string, null),
+              prefixMap.getKeyAndValue(true, string, null));
+        }
+      }
     }
   }
 
-  private static MapBuilder<String, Integer> newTestMapBuilder() {
-    return new MapBuilder<>();
+  static final class EytzingerBinarySearchArraySuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return eytzingerBinarySearchArraySuffixMapping(suffixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,10,10,10,10",
+          "i abdicate,ate,ate,10,10,10,10",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
   }
 
-  private static Map<String, Integer> toMap(final List<Map.Entry<String, Integer>> entries) {
-    return new AbstractMap<>() {
-      @Override
-      public Set<Map.Entry<String, Integer>> entrySet() {
-        return new AbstractSet<>() {
-          @Override
-          public Iterator<Map.Entry<String, Integer>> iterator() {
-            return entries.iterator();
-          }
+  static final class FrontCodedArrayPrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return frontCodedArrayPrefixMapping(prefixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,9,9,10,10",
+          "abdicated,abd,abd,9,9,10,10",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void matches_the_same_keys_as_binary_search_across_blocks() {
+
+      final MapBuilder<String, Integer> mapBuilder = newTestMapBuilder();
+      int value = 0;
+
+      for (final String resource : Arrays.asList("customers", "orders", "order-items")) {
+        mapBuilder.add("/api/v1/" + resource, value++);
+
+        for (int id = 0; id < FrontCodedArrayFixMapping.BLOCK_SIZE * 3; id += 3) {
+          mapBuilder.add("/api/v1/" + resource + "/" + id, value++);
+        }
+      }
+
+      mapBuilder.add("/api", value++).add("/", value);
+
+      final ImmutablePrefixMapping<Integer> expectedPrefixMap =
+          binarySearchArrayPrefixMapping(mapBuilder.map);
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          frontCodedArrayPrefixMapping(mapBuilder.map);
+
+      for (final String resource : Arrays.asList("customers", "orders", "order-items", "users")) {
+        for (int id = 0; id < FrontCodedArrayFixMapping.BLOCK_SIZE * 4; id++) {
+
+          final String string = "/api/v1/" + resource + "/" + id + "/details";
+          final List<String> expectedKeys = new ArrayList<>();
+          final List<String> keys = new ArrayList<>();
+
+          assertEquals(
+              expectedPrefixMap.keyAndValueForPrefix(string),
+              prefixMap.keyAndValueForPrefix(string));
+          assertEquals("/", prefixMap.keyAndValueForPrefix(string.substring(0, 2)).first);
+
+          expectedPrefixMap.forEachKeyAndValueForPrefix(string, (key, v) -> expectedKeys.add(key));
+          prefixMap.forEachKeyAndValueForPrefix(string, (key, v) -> keys.add(key));
+
+          assertEquals(expectedKeys, keys);
+        }
+      }
+
+      assertFalse(prefixMap.matchesAnyPrefix("api"));
+    }
+
+    @Test
+    void matches_prefixes_without_decoding_keys() {
+
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          frontCodedArrayPrefixMapping(
+              newTestMapBuilder().add("abc", 0).add("abdicate", 1).add("xyz", 2).map);
+
+      assertTrue(prefixMap.matchesAnyPrefix("abdicated"));
+      assertFalse(prefixMap.matchesAnyPrefix("abd"));
+      assertMatchesWithoutAllocating(() -> prefixMap.matchesAnyPrefix("abdicated"));
+    }
+  }
+
+  static final class FrontCodedArraySuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return frontCodedArraySuffixMapping(suffixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,10,10,11,11",
+          "i abdicate,ate,ate,10,10,11,11",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void matches_suffixes_without_decoding_keys() {
+
+      final ImmutableSuffixMapping<Integer> suffixMap =
+          frontCodedArraySuffixMapping(
+              newTestMapBuilder().add("abc", 0).add("ate", 1).add("xyz", 2).map);
+
+      assertTrue(suffixMap.matchesAnySuffix(new StringBuilder("abdicate")));
+      assertFalse(suffixMap.matchesAnySuffix("at"));
+      assertMatchesWithoutAllocating(() -> suffixMap.matchesAnySuffix((CharSequence) "abdicate"));
+    }
+  }
+
+  static final class LimitedCharArrayTriePrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return limitedCharArrayTriePrefixMapping('a', 'z', prefixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,3,8,3,8",
+          "abdicated,abd,abd,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+  }
+
+  static final class LimitedCharArrayTrieSuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return limitedCharArrayTrieSuffixMapping('a', 'z', suffixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,3,8,3,8",
+          "i abdicate,ate,ate,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+  }
+
+  static final class SparseLimitedCharArrayTriePrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return sparseLimitedCharArrayTriePrefixMapping('a', 'z', prefixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,3,8,3,8",
+          "abdicated,abd,abd,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void packs_children_across_bitmap_words() {
+
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          sparseLimitedCharArrayTriePrefixMapping(
+              ' ',
+              '~',
+              newTestMapBuilder()
+                  .add(" ", 0)
+                  .add("?", 1)
+                  .add("@a", 2)
+                  .add("@~", 3)
+                  .add("_", 4)
+                  .add("`", 5)
+                  .add("~", 6)
+                  .map);
+
+      assertEquals(0, prefixMap.valueForPrefix("  "));
+      assertEquals(1, prefixMap.valueForPrefix("?a"));
+      assertEquals(2, prefixMap.valueForPrefix("@a~"));
+      assertEquals(3, prefixMap.valueForPrefix("@~a"));
+      assertEquals(4, prefixMap.valueForPrefix("_a"));
+      assertEquals(5, prefixMap.valueForPrefix("`a"));
+      assertEquals(6, prefixMap.valueForPrefix("~a"));
+      assertNull(prefixMap.valueForPrefix("@"));
+      assertNull(prefixMap.valueForPrefix("@b"));
+      assertNull(prefixMap.valueForPrefix("a"));
+    }
+
+    @Test
+    void matches_keys_spread_across_the_whole_char_range() {
+
+      final Random random = new Random(0);
+      final Map<String, Integer> prefixes = new HashMap<>();
+
+      while (prefixes.size() < 2_000) {
+        prefixes.put(
+            new String(new char[] {(char) random.nextInt(), (char) random.nextInt(16)}),
+            prefixes.size());
+      }
+
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          sparseLimitedCharArrayTriePrefixMapping('\u0000', '\uFFFF', prefixes);
+
+      for (final Map.Entry<String, Integer> prefix : prefixes.entrySet()) {
+        assertEquals(prefix.getValue(), prefixMap.valueForPrefix(prefix.getKey() + "a"));
+        assertEquals(
+            prefixes.get(prefix.getKey().charAt(0) + "\u0010"),
+            prefixMap.valueForPrefix(prefix.getKey().charAt(0) + "\u0010"));
+      }
+    }
+  }
+
+  static final class SparseLimitedCharArrayTrieSuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return sparseLimitedCharArrayTrieSuffixMapping('a', 'z', suffixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,3,8,3,8",
+          "i abdicate,ate,ate,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+  }
+
+  static final class UnicodeTriePrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return unicodeTriePrefixMapping(prefixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,3,8,3,8",
+          "abdicated,abd,abd,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void matches_keys_with_any_chars() {
+
+      final Map<String, Integer> prefixes =
+          newTestMapBuilder()
+              .add("\u6771\u4EAC", 0)
+              .add("\u6771\u4EAC\u30BF\u30EF\u30FC", 1)
+              .add("\uD83D\uDE00", 2)
+              .add("\uD83D\uDE01smile", 3)
+              .add("\u0000\uFFFF", 4)
+              .add("a", 5)
+              .add("b", 6)
+              .add("c", 7)
+              .map;
+      final ImmutablePrefixMapping<Integer> prefixMap = unicodeTriePrefixMapping(prefixes);
+
+      assertEquals(0, prefixMap.valueForPrefix("\u6771\u4EAC\u99C5"));
+      assertEquals(1, prefixMap.valueForPrefix("\u6771\u4EAC\u30BF\u30EF\u30FC\u306B"));
+      assertEquals(2, prefixMap.valueForPrefix("\uD83D\uDE00\uD83D\uDE00"));
+      assertEquals(3, prefixMap.valueForPrefix("\uD83D\uDE01smiles"));
+      assertNull(prefixMap.valueForPrefix("\uD83D\uDE01smil"));
+      assertNull(prefixMap.valueForPrefix("\uD83D\uDE02"));
+      assertEquals(4, prefixMap.valueForPrefix("\u0000\uFFFF\u0000"));
+      assertNull(prefixMap.valueForPrefix("\u0000\uFFFE"));
+      assertEquals(7, prefixMap.valueForPrefix("cat"));
+      assertNull(prefixMap.valueForPrefix("dog"));
+
+      final UnicodeTrieFixMapping<Integer> fixMapping = (UnicodeTrieFixMapping<Integer>) prefixMap;
+
+      // The root's children span nearly every char, so it stays sparse while the surrogate pair's
+      // high surrogate has two adjacent children.
+      assertFalse(fixMapping.isDense(""));
+      assertTrue(fixMapping.isDense("\uD83D"));
+      assertTrue(fixMapping.isDense("\u6771"));
+    }
+  }
+
+  static final class UnicodeTrieSuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return unicodeTrieSuffixMapping(suffixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,3,8,3,8",
+          "i abdicate,ate,ate,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void matches_keys_with_any_chars() {
+
+      final ImmutableSuffixMapping<Integer> suffixMap =
+          unicodeTrieSuffixMapping(
+              newTestMapBuilder()
+                  .add("\u682A\u5F0F\u4F1A\u793E", 0)
+                  .add("\uD83C\uDF89", 1)
+                  .add(".\u00E9", 2)
+                  .map);
+
+      assertEquals(0, suffixMap.valueForSuffix("\u30BD\u30CB\u30FC\u682A\u5F0F\u4F1A\u793E"));
+      assertEquals(1, suffixMap.valueForSuffix("party\uD83C\uDF89"));
+      assertNull(suffixMap.valueForSuffix("party\uD83C\uDF8A"));
+      assertEquals(2, suffixMap.valueForSuffix("caf.\u00E9"));
+      assertNull(suffixMap.valueForSuffix("caf.e"));
+    }
+  }
+
+  static final class RadixTriePrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return radixTriePrefixMapping(prefixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,3,8,3,8",
+          "abdicated,abd,abd,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void splits_shared_edges() {
+
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          radixTriePrefixMapping(
+              newTestMapBuilder()
+                  .add("/api/v1/customers", 0)
+                  .add("/api/v1/customers/orders", 1)
+                  .add("/api/v2", 2)
+                  .add("/api", 3)
+                  .map);
+
+      assertEquals(0, prefixMap.valueForPrefix("/api/v1/customers/1"));
+      assertEquals(1, prefixMap.valueForPrefix("/api/v1/customers/orders/1"));
+      assertEquals(2, prefixMap.valueForPrefix("/api/v2/customers"));
+      assertEquals(3, prefixMap.valueForPrefix("/api/v1/custom"));
+      assertEquals(3, prefixMap.valueForPrefix("/api/v3"));
+      assertNull(prefixMap.valueForPrefix("/ap"));
+    }
+  }
+
+  static final class RadixTrieSuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return radixTrieSuffixMapping(suffixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,3,8,3,8",
+          "i abdicate,ate,ate,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+  }
+
+  static final class DoubleArrayTriePrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return doubleArrayTriePrefixMapping(prefixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,3,8,3,8",
+          "abdicated,abd,abd,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void maps_keys_with_sparse_chars() {
+
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          doubleArrayTriePrefixMapping(
+              newTestMapBuilder()
+                  .add("\u0000", 0)
+                  .add("a\uFFFF", 1)
+                  .add("ab", 2)
+                  .add("abc", 3)
+                  .add("b", 4)
+                  .add("~", 5)
+                  .map);
+
+      assertEquals(0, prefixMap.valueForPrefix("\u0000a"));
+      assertEquals(1, prefixMap.valueForPrefix("a\uFFFF"));
+      assertEquals(2, prefixMap.valueForPrefix("abd"));
+      assertEquals(3, prefixMap.valueForPrefix("abcd"));
+      assertEquals(4, prefixMap.valueForPrefix("ba"));
+      assertEquals(5, prefixMap.valueForPrefix("~"));
+      assertNull(prefixMap.valueForPrefix("a"));
+      assertNull(prefixMap.valueForPrefix("c"));
+      assertNull(prefixMap.valueForPrefix("a\uFFFE"));
+    }
+
+    @Test
+    void maps_keys_longer_than_the_stack_is_deep() {
+
+      final StringBuilder key = new StringBuilder();
+
+      for (int i = 0; i < 100_000; i++) {
+        key.append((char) ('a' + (i % 26)));
+      }
+
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          doubleArrayTriePrefixMapping(
+              newTestMapBuilder().add(key.toString(), 0).add("abc", 1).map);
+
+      assertEquals(0, prefixMap.valueForPrefix(key.append("z").toString()));
+      assertEquals(1, prefixMap.valueForPrefix("abcz"));
+    }
+  }
+
+  static final class DoubleArrayTrieSuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return doubleArrayTrieSuffixMapping(suffixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,3,8,3,8",
+          "i abdicate,ate,ate,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+  }
+
+  static final class HashedPrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return hashedPrefixMapping(prefixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,4,9,4,9",
+          "abdicated,abd,abd,4,9,4,9",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void maps_many_keys_with_few_lengths() {
+
+      final MapBuilder<String, Integer> mapBuilder = newTestMapBuilder();
+
+      for (int i = 0; i < 5000; i++) {
+        mapBuilder.add(String.format("SKU-%06d", i * 7), i);
+      }
+
+      mapBuilder.add("SKU-", -1).add("SKU-0000", -2);
+
+      final ImmutablePrefixMapping<Integer> expectedPrefixMap =
+          doubleArrayTriePrefixMapping(mapBuilder.map);
+      final ImmutablePrefixMapping<Integer> prefixMap = hashedPrefixMapping(mapBuilder.map);
+
+      for (int i = 0; i < 40000; i += 3) {
+
+        final String string = String.format("SKU-%06d-XL", i);
+        final List<String> expectedKeys = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+
+        assertEquals(
+            expectedPrefixMap.keyAndValueForPrefix(string), prefixMap.keyAndValueForPrefix(string));
+
+        expectedPrefixMap.forEachKeyAndValueForPrefix(
+            string, (key, value) -> expectedKeys.add(key));
+        prefixMap.forEachKeyAndValueForPrefix(string, (key, value) -> keys.add(key));
+
+        assertEquals(expectedKeys, keys);
+      }
+
+      assertEquals(-1, prefixMap.valueForPrefix("SKU-1"));
+      assertFalse(prefixMap.matchesAnyPrefix("SKU"));
+    }
+  }
+
+  static final class HashedSuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return hashedSuffixMapping(suffixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,4,9,4,9",
+          "i abdicate,ate,ate,4,9,4,9",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+  }
+
+  static final class MappedPrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+      try {
+        writePrefixMapping(prefixes, FixMappingsTests::toBytes, out);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      return mappedPrefixMapping(ByteBuffer.wrap(out.toByteArray()), FixMappingsTests::fromBytes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,3,8,3,8",
+          "abdicated,abd,abd,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void maps_prefixes_from_a_file() throws IOException {
+
+      final Path path = Files.createTempFile("prefixes", ".bin");
+
+      try {
+        writePrefixMapping(
+            newTestMapBuilder().add("abc", 0).add("abdicate", 1).map,
+            FixMappingsTests::toBytes,
+            path);
+
+        final ImmutablePrefixMapping<Integer> prefixMap =
+            mappedPrefixMapping(path, FixMappingsTests::fromBytes);
+
+        assertEquals(Pair.of("abdicate", 1), prefixMap.keyAndValueForPrefix("abdicate"));
+        assertEquals(0, prefixMap.valueForPrefix("abc"));
+        assertNull(prefixMap.valueForPrefix("abd"));
+        assertTrue(mappedPrefixMatcher(path).matchesAnyPrefix("abc"));
+        assertThrows(IllegalArgumentException.class, () -> mappedSuffixMatcher(path));
+      } finally {
+        Files.deleteIfExists(path);
+      }
+    }
+
+    @Test
+    void matches_prefixes_without_decoding_values() throws IOException {
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      writePrefixMapping(
+          newTestMapBuilder().add("abc", 0).add("abdicate", 1).map, FixMappingsTests::toBytes, out);
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          mappedPrefixMapping(
+              ByteBuffer.wrap(out.toByteArray()),
+              value -> {
+                throw new AssertionError("Decoded a value while matching.");
+              });
+
+      assertTrue(prefixMap.matchesAnyPrefix("abdicated"));
+      assertTrue(prefixMap.matchesAnyPrefix(new StringBuilder("abcd")));
+      assertFalse(prefixMap.matchesAnyPrefix("abd"));
+    }
+
+    @Test
+    void throws_illegal_arg_for_invalid_buffers() throws IOException {
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      writePrefixMapping(newTestMapBuilder().add("abc", 0).map, FixMappingsTests::toBytes, out);
+      final byte[] bytes = out.toByteArray();
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> mappedPrefixMapping(ByteBuffer.allocate(0), FixMappingsTests::fromBytes));
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              mappedPrefixMapping(
+                  ByteBuffer.wrap(bytes, 0, bytes.length - 1), FixMappingsTests::fromBytes));
+
+      // Corrupt the version.
+      bytes[Integer.BYTES]++;
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> mappedPrefixMapping(ByteBuffer.wrap(bytes), FixMappingsTests::fromBytes));
+    }
+  }
+
+  static final class MappedSuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+      try {
+        writeSuffixMapping(suffixes, FixMappingsTests::toBytes, out);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      return mappedSuffixMapping(ByteBuffer.wrap(out.toByteArray()), FixMappingsTests::fromBytes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,3,8,3,8",
+          "i abdicate,ate,ate,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void maps_suffixes_from_a_file() throws IOException {
+
+      final Path path = Files.createTempFile("suffixes", ".bin");
+
+      try {
+        writeSuffixMapping(
+            newTestMapBuilder().add("ate", 0).add("abdicate", 1).map,
+            FixMappingsTests::toBytes,
+            path);
+
+        final ImmutableSuffixMapping<Integer> suffixMap =
+            mappedSuffixMapping(path, FixMappingsTests::fromBytes);
+
+        assertEquals(Pair.of("abdicate", 1), suffixMap.keyAndValueForSuffix("abdicate"));
+        assertEquals(0, suffixMap.valueForSuffix("ate"));
+        assertNull(suffixMap.valueForSuffix("abd"));
+        assertTrue(mappedSuffixMatcher(path).matchesAnySuffix("ate"));
+        assertThrows(IllegalArgumentException.class, () -> mappedPrefixMatcher(path));
+      } finally {
+        Files.deleteIfExists(path);
+      }
+    }
+
+    @Test
+    void throws_illegal_arg_for_invalid_buffers() throws IOException {
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      writeSuffixMapping(newTestMapBuilder().add("ate", 0).map, FixMappingsTests::toBytes, out);
+      final byte[] bytes = out.toByteArray();
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> mappedSuffixMapping(ByteBuffer.allocate(0), FixMappingsTests::fromBytes));
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              mappedSuffixMapping(
+                  ByteBuffer.wrap(bytes, 0, bytes.length - 1), FixMappingsTests::fromBytes));
+
+      // Corrupt the version.
+      bytes[Integer.BYTES]++;
+
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> mappedSuffixMapping(ByteBuffer.wrap(bytes), FixMappingsTests::fromBytes));
+    }
+  }
+
+  static final class ConcurrentPrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ConcurrentPrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return concurrentPrefixMapping(prefixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,3,8,3,8",
+          "abdicated,abd,abd,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    static Stream<Map<String, Integer>> invalidPrefixes() {
+      // Concurrent mappings may start empty.
+      return PrefixMappersTests.invalidPrefixes().filter(prefixes -> !prefixes.isEmpty());
+    }
+
+    @MethodSource("invalidPrefixes")
+    @ParameterizedTest
+    @Override
+    public void throws_illegal_arg_when_provided_invalid_values(
+        final Map<String, Integer> prefixes) {
+      PrefixMappersTests.super.throws_illegal_arg_when_provided_invalid_values(prefixes);
+    }
+
+    @Test
+    void puts_and_removes_keys_without_changing_snapshots() {
+
+      final ConcurrentPrefixMapping<Integer> prefixMap = concurrentPrefixMapping();
+
+      assertNull(prefixMap.valueForPrefix("abdicate"));
+      assertNull(prefixMap.put("abd", 0));
+      assertNull(prefixMap.put("abdicate", 1));
+
+      final ImmutablePrefixMapping<Integer> snapshot = prefixMap.snapshot();
+
+      // Only snapshots may be used where lookups must not change.
+      assertFalse(prefixMap instanceof ImmutablePrefixMapping);
+
+      assertEquals(1, prefixMap.put("abdicate", 2));
+      assertEquals(0, prefixMap.remove("abd"));
+      assertNull(prefixMap.remove("abd"));
+      assertNull(prefixMap.remove("missing"));
+
+      assertEquals(Pair.of("abdicate", 2), prefixMap.keyAndValueForPrefix("abdicate"));
+      assertNull(prefixMap.valueForPrefix("abd"));
+      assertEquals(Pair.of("abdicate", 1), snapshot.keyAndValueForPrefix("abdicate"));
+      assertEquals(0, snapshot.valueForPrefix("abd"));
+
+      assertEquals(2, prefixMap.remove("abdicate"));
+      assertFalse(prefixMap.matchesAnyPrefix("abdicate"));
+      assertTrue(snapshot.matchesAnyPrefix("abdicate"));
+
+      assertThrows(IllegalArgumentException.class, () -> prefixMap.put("", 0));
+      assertThrows(IllegalArgumentException.class, () -> prefixMap.put(null, 0));
+    }
+
+    @Test
+    void puts_keys_from_many_threads() {
+
+      final ConcurrentPrefixMapping<Integer> prefixMap = concurrentPrefixMapping();
+
+      IntStream.range(0, 10_000).parallel().forEach(i -> prefixMap.put(Integer.toString(i), i));
+
+      for (int i = 0; i < 10_000; i++) {
+        assertEquals(
+            Pair.of(Integer.toString(i), i), prefixMap.keyAndValueForPrefix(Integer.toString(i)));
+      }
+
+      IntStream.range(0, 10_000).parallel().forEach(i -> prefixMap.remove(Integer.toString(i)));
+
+      for (int i = 0; i < 10_000; i++) {
+        assertNull(prefixMap.keyAndValueForPrefix(Integer.toString(i)));
+      }
+    }
+  }
+
+  static final class ConcurrentSuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ConcurrentSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return concurrentSuffixMapping(suffixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,3,8,3,8",
+          "i abdicate,ate,ate,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    static Stream<Map<String, Integer>> invalidSuffixes() {
+      // Concurrent mappings may start empty.
+      return SuffixMappersTests.invalidSuffixes().filter(suffixes -> !suffixes.isEmpty());
+    }
+
+    @MethodSource("invalidSuffixes")
+    @ParameterizedTest
+    @Override
+    public void throws_illegal_arg_when_provided_invalid_values(
+        final Map<String, Integer> suffixes) {
+      SuffixMappersTests.super.throws_illegal_arg_when_provided_invalid_values(suffixes);
+    }
+
+    @Test
+    void puts_and_removes_keys_without_changing_snapshots() {
+
+      final ConcurrentSuffixMapping<Integer> suffixMap = concurrentSuffixMapping();
+
+      assertNull(suffixMap.valueForSuffix("abdicate"));
+      assertNull(suffixMap.put("ate", 0));
+      assertNull(suffixMap.put("cate", 1));
+
+      final ImmutableSuffixMapping<Integer> snapshot = suffixMap.snapshot();
+
+      // Only snapshots may be used where lookups must not change.
+      assertFalse(suffixMap instanceof ImmutableSuffixMapping);
+
+      assertEquals(1, suffixMap.put("cate", 2));
+      assertEquals(0, suffixMap.remove("ate"));
+      assertNull(suffixMap.remove("ate"));
+      assertNull(suffixMap.remove("missing"));
+
+      assertEquals(Pair.of("cate", 2), suffixMap.keyAndValueForSuffix("abdicate"));
+      assertNull(suffixMap.valueForSuffix("ate"));
+      assertEquals(Pair.of("cate", 1), snapshot.keyAndValueForSuffix("abdicate"));
+      assertEquals(0, snapshot.valueForSuffix("ate"));
+
+      assertEquals(2, suffixMap.remove("cate"));
+      assertFalse(suffixMap.matchesAnySuffix("abdicate"));
+      assertTrue(snapshot.matchesAnySuffix("abdicate"));
+
+      assertThrows(IllegalArgumentException.class, () -> suffixMap.put("", 0));
+      assertThrows(IllegalArgumentException.class, () -> suffixMap.put(null, 0));
+    }
+
+    @Test
+    void puts_keys_from_many_threads() {
+
+      final ConcurrentSuffixMapping<Integer> suffixMap = concurrentSuffixMapping();
+
+      IntStream.range(0, 10_000).parallel().forEach(i -> suffixMap.put(Integer.toString(i), i));
+
+      for (int i = 0; i < 10_000; i++) {
+        assertEquals(
+            Pair.of(Integer.toString(i), i), suffixMap.keyAndValueForSuffix(Integer.toString(i)));
+      }
+
+      IntStream.range(0, 10_000).parallel().forEach(i -> suffixMap.remove(Integer.toString(i)));
+
+      for (int i = 0; i < 10_000; i++) {
+        assertNull(suffixMap.keyAndValueForSuffix(Integer.toString(i)));
+      }
+    }
+  }
+
+  static final class AdaptivePrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return prefixMapping(prefixes);
+    }
+  }
+
+  static final class AdaptiveSuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return suffixMapping(suffixes);
+    }
+  }
+
+  static final class CaseFoldingPrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return prefixMapping(prefixes, CaseFolding.UNICODE);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,3,8,3,8",
+          "abdicated,abd,abd,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void ignores_case() {
+
+      final Map<String, Integer> prefixes =
+          newTestMapBuilder()
+              .add("Content-", 0)
+              .add("X-FORWARDED-", 1)
+              .add("\u00C4rger", 2)
+              .add("\u03C2", 3)
+              .map;
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          prefixMapping(prefixes, CaseFolding.UNICODE);
+
+      assertEquals(Pair.of("Content-", 0), prefixMap.keyAndValueForPrefix("content-type"));
+      assertEquals(Pair.of("X-FORWARDED-", 1), prefixMap.keyAndValueForPrefix("x-Forwarded-For"));
+      assertEquals(Pair.of("\u00C4rger", 2), prefixMap.keyAndValueForPrefix("\u00E4RGERLICH"));
+      assertEquals(Pair.of("\u03C2", 3), prefixMap.keyAndValueForPrefix("\u03A3\u03B1"));
+
+      final ImmutablePrefixMapping<Integer> asciiPrefixMap =
+          prefixMapping(prefixes, CaseFolding.ASCII);
+
+      assertEquals(2, asciiPrefixMap.valueForPrefix("\u00C4RGER"));
+      assertNull(asciiPrefixMap.valueForPrefix("\u00E4rger"));
+      assertTrue(prefixMatcher(CaseFolding.ASCII, "abc").matchesAnyPrefix("ABC"));
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              prefixMapping(
+                  newTestMapBuilder().add("abc", 0).add("ABC", 1).map, CaseFolding.ASCII));
+    }
+  }
+
+  static final class CaseFoldingSuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return suffixMapping(suffixes, CaseFolding.UNICODE);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,3,8,3,8",
+          "i abdicate,ate,ate,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void ignores_case() {
+
+      final Map<String, Integer> suffixes =
+          newTestMapBuilder()
+              .add(".HTML", 0)
+              .add(".Example.com", 1)
+              .add("\u00C4rger", 2)
+              .add("\u03C2", 3)
+              .map;
+      final ImmutableSuffixMapping<Integer> suffixMap =
+          suffixMapping(suffixes, CaseFolding.UNICODE);
+
+      assertEquals(Pair.of(".HTML", 0), suffixMap.keyAndValueForSuffix("INDEX.html"));
+      assertEquals(Pair.of(".Example.com", 1), suffixMap.keyAndValueForSuffix("www.EXAMPLE.COM"));
+      assertEquals(Pair.of("\u00C4rger", 2), suffixMap.keyAndValueForSuffix("VER\u00E4RGER"));
+      assertEquals(Pair.of("\u03C2", 3), suffixMap.keyAndValueForSuffix("\u03B1\u03A3"));
+
+      final ImmutableSuffixMapping<Integer> asciiSuffixMap =
+          suffixMapping(suffixes, CaseFolding.ASCII);
+
+      assertEquals(2, asciiSuffixMap.valueForSuffix("\u00C4RGER"));
+      assertNull(asciiSuffixMap.valueForSuffix("\u00E4rger"));
+      assertTrue(suffixMatcher(CaseFolding.ASCII, "abc").matchesAnySuffix("ABC"));
+      assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              suffixMapping(
+                  newTestMapBuilder().add("abc", 0).add("ABC", 1).map, CaseFolding.ASCII));
+    }
+  }
+
+  static final class PrefilteredPrefixMapTests implements PrefixMappersTests {
+    @Override
+    public ImmutablePrefixMapping<Integer> newPrefixMap(final Map<String, Integer> prefixes) {
+      return prefilteredPrefixMapping(prefixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,abd,abd,3,8,3,8",
+          "abdicated,abd,abd,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_prefixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      PrefixMappersTests.super.detects_prefixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void rejects_misses_without_searching() {
+
+      final PrefilteredPrefixMapping<Integer> prefixMap =
+          prefilteredPrefixMapping(
+              newTestMapBuilder().add("/api/", 0).add("/static/", 1).add("/static/img/", 2).map);
+      final AtomicLong searchSteps = new AtomicLong();
+
+      for (final String string : Arrays.asList("/ap", "/index.html", "api/", "/API/", "")) {
+        assertNull(
+            ((FixMappings.FixMapping<Integer>) prefixMap)
+                .getKeyAndValue(true, string, searchSteps));
+      }
+
+      assertEquals(0, searchSteps.get());
+      assertEquals(Pair.of("/static/img/", 2), prefixMap.keyAndValueForPrefix("/static/img/a"));
+      assertTrue(prefixMap.falsePositiveRate() > 0);
+      assertTrue(prefixMap.falsePositiveRate() < 0.01);
+
+      final List<String> keys = new ArrayList<>();
+      prefixMap.forEachKeyAndValueForPrefix("/static/img/a", (key, value) -> keys.add(key));
+      assertEquals(Arrays.asList("/static/", "/static/img/"), keys);
+      prefixMap.forEachKeyAndValueForPrefix("/img/", (key, value) -> keys.add(key));
+      assertEquals(2, keys.size());
+    }
+
+    @Test
+    void rejects_most_misses_of_many_keys() {
+
+      final Random random = new Random(0);
+      final Map<String, Integer> prefixes = new HashMap<>();
+
+      while (prefixes.size() < 10_000) {
+        prefixes.put(randomString(random, 8), prefixes.size());
+      }
+
+      final PrefilteredPrefixMapping<Integer> prefixMap = prefilteredPrefixMapping(prefixes);
+      final Set<String> heads = new HashSet<>();
+
+      for (final Map.Entry<String, Integer> prefix : prefixes.entrySet()) {
+        assertEquals(prefix.getValue(), prefixMap.valueForPrefix(prefix.getKey() + "/file"));
+        heads.add(prefix.getKey().substring(0, NegativeLookupFilter.MAX_HEAD_LENGTH));
+      }
+
+      final NegativeLookupFilter filter = new NegativeLookupFilter(true, prefixes.keySet());
+      int misses = 0;
+      int falsePositives = 0;
+
+      for (int i = 0; i < 100_000; i++) {
+
+        final String string = randomString(random, 12);
+
+        if (heads.contains(string.substring(0, NegativeLookupFilter.MAX_HEAD_LENGTH))) {
+          continue;
+        }
+
+        misses++;
+
+        if (filter.mightMatch(string)) {
+          falsePositives++;
+        }
+
+        assertNull(prefixMap.keyAndValueForPrefix(string));
+      }
+
+      assertTrue(prefixMap.falsePositiveRate() < 0.01);
+      assertTrue(falsePositives <= misses * prefixMap.falsePositiveRate() * 2);
+    }
+
+    private static String randomString(final Random random, final int length) {
+
+      final char[] chars = new char[length];
+
+      for (int i = 0; i < length; i++) {
+        chars[i] = Character.forDigit(random.nextInt(36), 36);
+      }
+
+      return new String(chars);
+    }
+  }
+
+  static final class PrefilteredSuffixMapTests implements SuffixMappersTests {
+    @Override
+    public ImmutableSuffixMapping<Integer> newSuffixMap(final Map<String, Integer> suffixes) {
+      return prefilteredSuffixMapping(suffixes);
+    }
+
+    @CsvSource(
+        value = {
+          "abdicate,ate,ate,3,8,3,8",
+          "i abdicate,ate,ate,3,8,3,8",
+        })
+    @ParameterizedTest
+    @Override
+    public void detects_suffixes_with_minimal_steps(
+        final String string,
+        final String firstMatchEvenKeys,
+        final String firstMatchOddKeys,
+        final int firstMatchStepsEvenKeys,
+        final int longestMatchStepsEvenKeys,
+        final int firstMatchStepsOddKeys,
+        final int longestMatchStepsOddKeys) {
+      SuffixMappersTests.super.detects_suffixes_with_minimal_steps(
+          string,
+          firstMatchEvenKeys,
+          firstMatchOddKeys,
+          firstMatchStepsEvenKeys,
+          longestMatchStepsEvenKeys,
+          firstMatchStepsOddKeys,
+          longestMatchStepsOddKeys);
+    }
+
+    @Test
+    void rejects_misses_without_searching() {
+
+      final PrefilteredSuffixMapping<Integer> suffixMap =
+          prefilteredSuffixMapping(
+              newTestMapBuilder().add(".html", 0).add(".tar.gz", 1).add(".gz", 2).map);
+      final AtomicLong searchSteps = new AtomicLong();
+
+      for (final String string : Arrays.asList("gz", "index.htm", "a.zip", "a.GZ", "")) {
+        assertNull(
+            ((FixMappings.FixMapping<Integer>) suffixMap)
+                .getKeyAndValue(true, string, searchSteps));
+      }
+
+      assertEquals(0, searchSteps.get());
+      assertEquals(Pair.of(".tar.gz", 1), suffixMap.keyAndValueForSuffix("a.tar.gz"));
+      assertTrue(suffixMap.falsePositiveRate() < 0.01);
+    }
+  }
+
+  static final class CachedMapTests {
+
+    @Test
+    void caches_matches_and_misses() {
+
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          doubleArrayTriePrefixMapping(
+              newTestMapBuilder().add("abc", 0).add("abd", 1).add("abdicate", 2).map);
+      final Map<String, Integer> lookups = new HashMap<>();
+      final CachedPrefixMapping<Integer> cachedPrefixMap =
+          cachedPrefixMapping(
+              string -> {
+                lookups.merge(string, 1, Integer::sum);
+                return prefixMap.keyAndValueForPrefix(string);
+              },
+              16);
+
+      for (int i = 0; i < 3; i++) {
+        assertEquals(Pair.of("abdicate", 2), cachedPrefixMap.keyAndValueForPrefix("abdicated"));
+        assertEquals(0, cachedPrefixMap.valueForPrefix(new StringBuilder("abcd")));
+        assertNull(cachedPrefixMap.valueForPrefix("xyz"));
+        assertFalse(cachedPrefixMap.matchesAnyPrefix("xyz".toCharArray(), 0, 3));
+      }
+
+      assertNull(cachedPrefixMap.keyAndValueForPrefix((String) null));
+      assertEquals(1, lookups.get("abdicated"));
+      assertEquals(1, lookups.get("abcd"));
+      assertEquals(1, lookups.get("xyz"));
+      assertEquals(9, cachedPrefixMap.hitCount());
+      assertEquals(3, cachedPrefixMap.missCount());
+    }
+
+    @Test
+    void keeps_frequently_looked_up_strings() {
+
+      final Map<String, Integer> lookups = new HashMap<>();
+      final CachedSuffixMapping<Integer> cachedSuffixMap =
+          cachedSuffixMapping(
+              string -> {
+                lookups.merge(string, 1, Integer::sum);
+                return string.endsWith(".html") ? Pair.of(".html", 0) : null;
+              },
+              64);
+
+      for (int i = 0; i < 50; i++) {
+        for (int j = 0; j < LookupCache.WAYS; j++) {
+          cachedSuffixMap.valueForSuffix("/hot/" + j + ".html");
+        }
+      }
+
+      for (int i = 0; i < 300; i++) {
+        cachedSuffixMap.valueForSuffix("/cold/" + i + ".html");
+      }
+
+      for (int j = 0; j < LookupCache.WAYS; j++) {
+        assertEquals(0, cachedSuffixMap.valueForSuffix("/hot/" + j + ".html"));
+        assertEquals(1, lookups.get("/hot/" + j + ".html"));
+      }
+
+      assertThrows(IllegalArgumentException.class, () -> cachedSuffixMapping(cachedSuffixMap, 0));
+    }
+
+    @Test
+    void returns_the_same_results_from_many_threads() {
+
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          prefixMapping(
+              IntStream.range(0, 100)
+                  .boxed()
+                  .collect(Collectors.toMap(i -> "/" + i + "/", i -> i)));
+      final CachedPrefixMapping<Integer> cachedPrefixMap = cachedPrefixMapping(prefixMap, 32);
+      final List<String> strings =
+          IntStream.range(0, 20_000)
+              .mapToObj(i -> "/" + (i * 7919 % 150) + "/resource")
+              .collect(Collectors.toList());
+
+      final List<Pair<String, Integer>> keysAndValues =
+          strings
+              .parallelStream()
+              .map(cachedPrefixMap::keyAndValueForPrefix)
+              .collect(Collectors.toList());
+
+      for (int i = 0; i < strings.size(); i++) {
+        assertEquals(prefixMap.keyAndValueForPrefix(strings.get(i)), keysAndValues.get(i));
+      }
+
+      assertEquals(strings.size(), cachedPrefixMap.hitCount() + cachedPrefixMap.missCount());
+      assertTrue(cachedPrefixMap.hitCount() > 0);
+    }
+  }
+
+  static final class MeteredMapTests {
+
+    @Test
+    void counts_lookups_steps_and_match_lengths() {
+
+      final ImmutablePrefixMapping<Integer> prefixMap =
+          doubleArrayTriePrefixMapping(
+              newTestMapBuilder().add("abc", 0).add("abd", 1).add("abdicate", 2).map);
+      final MeteredPrefixMapping<Integer> meteredPrefixMap = meteredPrefixMapping(prefixMap);
+      final AtomicLong searchSteps = new AtomicLong();
+
+      assertEquals(Pair.of("abdicate", 2), meteredPrefixMap.keyAndValueForPrefix("abdicated"));
+      ((FixMappings.FixMapping<Integer>) prefixMap).getKeyAndValue(true, "abdicated", searchSteps);
+      assertEquals(0, meteredPrefixMap.valueForPrefix(new StringBuilder("abcd")));
+      ((FixMappings.FixMapping<Integer>) prefixMap).getKeyAndValue(true, "abcd", searchSteps);
+      assertNull(meteredPrefixMap.valueForPrefix("xyz"));
+      ((FixMappings.FixMapping<Integer>) prefixMap).getKeyAndValue(true, "xyz", searchSteps);
+
+      final LookupMetricsSnapshot metrics = meteredPrefixMap.metrics();
+
+      assertEquals(3, metrics.lookups());
+      assertEquals(2, metrics.hits());
+      assertEquals(1, metrics.misses());
+      assertEquals(searchSteps.get(), metrics.steps());
+      assertEquals(3, Arrays.stream(metrics.stepsHistogram()).sum());
+
+      final long[] matchLengthHistogram = metrics.matchLengthHistogram();
+      assertEquals(LookupMetrics.BUCKETS, matchLengthHistogram.length);
+      assertEquals(1, matchLengthHistogram[LookupMetrics.bucket(3)]);
+      assertEquals(1, matchLengthHistogram[LookupMetrics.bucket(8)]);
+      assertEquals(2, Arrays.stream(matchLengthHistogram).sum());
+
+      // Snapshots don't change as lookups continue.
+      meteredPrefixMap.keyAndValueForPrefix("abc");
+      assertEquals(3, metrics.lookups());
+      assertEquals(4, meteredPrefixMap.metrics().lookups());
+    }
+
+    @Test
+    void counts_lookups_of_other_mappings_without_steps() {
+
+      final MeteredSuffixMapping<Integer> meteredSuffixMap =
+          meteredSuffixMapping(string -> string.endsWith(".html") ? Pair.of(".html", 0) : null);
+
+      assertEquals(0, meteredSuffixMap.valueForSuffix("index.html"));
+      assertNull(meteredSuffixMap.valueForSuffix("index.css"));
+
+      final LookupMetricsSnapshot metrics = meteredSuffixMap.metrics();
+
+      assertEquals(2, metrics.lookups());
+      assertEquals(1, metrics.hits());
+      assertEquals(0, metrics.steps());
+      assertEquals(0, Arrays.stream(metrics.stepsHistogram()).sum());
+      assertEquals(1, metrics.matchLengthHistogram()[LookupMetrics.bucket(5)]);
+    }
+
+    @Test
+    void counts_lookups_from_many_threads() {
+
+      final MeteredSuffixMapping<Integer> meteredSuffixMap =
+          meteredSuffixMapping(
+              suffixMapping(
+                  IntStream.range(0, 100).boxed().collect(Collectors.toMap(i -> "." + i, i -> i))));
+
+      IntStream.range(0, 20_000)
+          .parallel()
+          .forEach(i -> meteredSuffixMap.keyAndValueForSuffix("file." + (i % 200)));
+
+      final LookupMetricsSnapshot metrics = meteredSuffixMap.metrics();
+
+      assertEquals(20_000, metrics.lookups());
+      assertEquals(10_000, metrics.hits());
+      assertEquals(20_000, Arrays.stream(metrics.stepsHistogram()).sum());
+      assertEquals(10_000, Arrays.stream(metrics.matchLengthHistogram()).sum());
+    }
+  }
+
+  static final class PrimitiveMappingTests {
+
+    private static final Map<String, Integer> KEYS =
+        newTestMapBuilder().add("abc", 0).add("abe", 1).add("abd", 2).add("abdicate", 3).map;
+
+    private static Map<String, Long> toLongs(final Map<String, Integer> map) {
+      return map.entrySet().stream()
+          .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue() + (1L << 40)));
+    }
+
+    @Test
+    void maps_prefixes_to_ints() {
+      for (final ImmutablePrefixIntMapping prefixMap :
+          Arrays.asList(
+              prefixIntMapping(KEYS),
+              binarySearchArrayPrefixIntMapping(KEYS),
+              limitedCharArrayTriePrefixIntMapping('a', 'z', KEYS),
+              sparseLimitedCharArrayTriePrefixIntMapping('a', 'z', KEYS))) {
+
+        assertEquals(2, prefixMap.valueForPrefix("abdicat", -1));
+        assertEquals(3, prefixMap.valueForPrefix("abdicated", -1));
+        assertEquals(-1, prefixMap.valueForPrefix("xyz", -1));
+        assertEquals(-1, prefixMap.valueForPrefix((String) null, -1));
+        assertEquals(3, prefixMap.valueForPrefix("abdicated".toCharArray(), 0, 9, -1));
+        assertEquals(
+            0, prefixMap.valueForPrefix("abcd".getBytes(StandardCharsets.UTF_8), 0, 4, -1));
+        assertEquals(8, prefixMap.matchLengthForPrefix("abdicated"));
+        assertEquals(3, prefixMap.matchLengthForPrefix(new StringBuilder("abe")));
+        assertEquals(-1, prefixMap.matchLengthForPrefix("ab"));
+        assertTrue(prefixMap.matchesAnyPrefix("abdi"));
+        assertFalse(prefixMap.matchesAnyPrefix("ab"));
+      }
+    }
+
+    @Test
+    void maps_suffixes_to_ints() {
+
+      final Map<String, Integer> suffixes =
+          newTestMapBuilder().add("abc", 0).add("abe", 1).add("ate", 2).add("abdicate", 3).map;
+
+      for (final ImmutableSuffixIntMapping suffixMap :
+          Arrays.asList(
+              suffixIntMapping(suffixes),
+              binarySearchArraySuffixIntMapping(suffixes),
+              limitedCharArrayTrieSuffixIntMapping('a', 'z', suffixes),
+              sparseLimitedCharArrayTrieSuffixIntMapping('a', 'z', suffixes))) {
+
+        assertEquals(2, suffixMap.valueForSuffix("dedicate", -1));
+        assertEquals(3, suffixMap.valueForSuffix("i abdicate", -1));
+        assertEquals(-1, suffixMap.valueForSuffix("xyz", -1));
+        assertEquals(8, suffixMap.matchLengthForSuffix("i abdicate"));
+        assertEquals(-1, suffixMap.matchLengthForSuffix("te"));
+        assertTrue(suffixMap.matchesAnySuffix("xabe"));
+        assertFalse(suffixMap.matchesAnySuffix("abx"));
+      }
+    }
+
+    @Test
+    void maps_prefixes_and_suffixes_to_longs() {
+
+      final Map<String, Long> keys = toLongs(KEYS);
+
+      for (final ImmutablePrefixLongMapping prefixMap :
+          Arrays.asList(
+              prefixLongMapping(keys),
+              binarySearchArrayPrefixLongMapping(keys),
+              limitedCharArrayTriePrefixLongMapping('a', 'z', keys))) {
+        assertEquals((1L << 40) + 3, prefixMap.valueForPrefix("abdicated", -1L));
+        assertEquals(-1L, prefixMap.valueForPrefix("xyz", -1L));
+        assertEquals(3, prefixMap.matchLengthForPrefix("abex"));
+      }
+
+      for (final ImmutableSuffixLongMapping suffixMap :
+          Arrays.asList(
+              suffixLongMapping(keys),
+              binarySearchArraySuffixLongMapping(keys),
+              sparseLimitedCharArrayTrieSuffixLongMapping('a', 'z', keys))) {
+        assertEquals((1L << 40) + 1, suffixMap.valueForSuffix("xabe", -1L));
+        assertEquals(-1L, suffixMap.valueForSuffix("abx", -1L));
+        assertEquals(3, suffixMap.matchLengthForSuffix("xabd"));
+      }
+    }
+
+    @Test
+    void throws_on_null_values() {
+
+      final Map<String, Integer> prefixes = new HashMap<>(KEYS);
+      prefixes.put("xyz", null);
+
+      assertThrows(IllegalArgumentException.class, () -> prefixIntMapping(prefixes));
+      assertThrows(
+          IllegalArgumentException.class, () -> binarySearchArraySuffixIntMapping(prefixes));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> limitedCharArrayTriePrefixIntMapping('a', 'z', prefixes));
+      assertThrows(IllegalArgumentException.class, () -> prefixIntMapping(Collections.emptyMap()));
+    }
+  }
+
+  static final class EngineChoiceTests {
+
+    @Test
+    void chooses_limited_char_array_trie_for_small_alphabets() {
+
+      final EngineChoice engineChoice =
+          choosePrefixEngine(
+              newTestMapBuilder().add("abc", 0).add("abe", 1).add("abd", 2).add("xyz", 3).map);
+
+      assertEquals(Engine.LIMITED_CHAR_ARRAY_TRIE, engineChoice.engine());
+      assertEquals('a', engineChoice.min());
+      assertEquals('z', engineChoice.max());
+      assertEquals(4, engineChoice.keyCount());
+      assertEquals(3, engineChoice.minKeyLength());
+      assertEquals(3, engineChoice.maxKeyLength());
+      assertEquals(8, engineChoice.trieNodeCount());
+      assertEquals(1.0 / 3, engineChoice.sharedCharRatio(), 0.000001);
+    }
+
+    @Test
+    void counts_shared_chars_from_the_end_for_suffixes() {
+
+      final Map<String, Integer> suffixes = newTestMapBuilder().add("abc", 0).add("xbc", 1).map;
+
+      assertEquals(4, chooseSuffixEngine(suffixes).trieNodeCount());
+      assertEquals(6, choosePrefixEngine(suffixes).trieNodeCount());
+    }
+
+    @Test
+    void chooses_double_array_trie_for_wide_alphabets() {
+
+      final EngineChoice engineChoice =
+          choosePrefixEngine(
+              newTestMapBuilder().add("a\u4E2D", 0).add("a\u6587", 1).add("b", 2).map);
+
+      assertEquals(Engine.DOUBLE_ARRAY_TRIE, engineChoice.engine());
+    }
+
+    @Test
+    void chooses_hashed_for_many_keys_with_few_lengths() {
+
+      final MapBuilder<String, Integer> mapBuilder = newTestMapBuilder();
+
+      for (int i = 0; i < EngineChoice.MIN_HASHED_KEY_COUNT; i++) {
+        mapBuilder.add("\u4E2D" + (i % 2 == 0 ? "" : "-") + String.format("%06d", i), i);
+      }
+
+      final EngineChoice engineChoice = choosePrefixEngine(mapBuilder.map);
+
+      assertEquals(Engine.HASHED, engineChoice.engine());
+      assertTrue(engineChoice.distinctKeyLengths() <= EngineChoice.MAX_HASHED_KEY_LENGTHS);
+
+      final ImmutablePrefixMapping<Integer> prefixMap = engineChoice.prefixMapping(mapBuilder.map);
+
+      for (final Map.Entry<String, Integer> entry : mapBuilder.map.entrySet()) {
+        assertEquals(entry.getValue(), prefixMap.valueForPrefix(entry.getKey() + "/1"));
+      }
+    }
+
+    @Test
+    void chooses_radix_trie_for_long_unshared_keys() {
+
+      final MapBuilder<String, Integer> mapBuilder = newTestMapBuilder();
+
+      for (int i = 0; i < 100; i++) {
+        mapBuilder.add("\u4E2D/" + i + "/" + Integer.toHexString(i * 7919) + "/resource", i);
+      }
+
+      final EngineChoice engineChoice = choosePrefixEngine(mapBuilder.map);
+
+      assertEquals(Engine.RADIX_TRIE, engineChoice.engine());
+
+      final ImmutablePrefixMapping<Integer> prefixMap = engineChoice.prefixMapping(mapBuilder.map);
+
+      for (final Map.Entry<String, Integer> entry : mapBuilder.map.entrySet()) {
+        assertEquals(entry.getValue(), prefixMap.valueForPrefix(entry.getKey() + "/1"));
+      }
+    }
+  }
+
+  static final class AhoCorasickInfixMapTests {
+
+    @CsvSource(
+        value = {
+          "null,false,null,null",
+          ",false,null,null",
+          "123456,false,null,null",
+          "ab,false,null,null",
+          "abc,true,0,0",
+          "1abc1,true,0,0",
+          "xabex,true,1,1",
+          "ate,true,2,2",
+          "i abdicate,true,3,3",
+          "abdicated,true,3,3",
+          "abcabdicate,true,0,3",
+          "the cat ate,true,2,2",
+          "xy,false,null,null",
+          "yxyz,true,4,4"
+        },
+        nullValues = "null")
+    @ParameterizedTest
+    @SuppressWarnings("unchecked")
+    void detects_infixes(
+        final String string,
+        final boolean expectInfixed,
+        final Integer expectedFirstValue,
+        final Integer expectedLongestValue) {
+
+      final Map<String, Integer> infixes =
+          newTestMapBuilder()
+              .add("abc", 0)
+              .add("abe", 1)
+              .add("ate", 2)
+              .add("abdicate", 3)
+              .add("xyz", 4)
+              .map;
+
+      final ImmutableInfixMapping<Integer> infixMap = ahoCorasickInfixMapping(infixes);
+
+      assertEquals(expectInfixed, infixMap.matchesAnyInfix(string));
+      assertEquals(expectedFirstValue, infixMap.valueForInfix(string));
+      assertEquals(
+          getKeyAndValueByValue(infixes, expectedFirstValue), infixMap.keyAndValueForInfix(string));
+      assertEquals(
+          getKeyAndValueByValue(infixes, expectedLongestValue),
+          infixMap.longestKeyAndValueForInfix(string));
+
+      assertFirstMatchSearchTakesLessSteps(
+          string, expectedFirstValue, (FixMappings.FixMapping<Integer>) infixMap);
+    }
+
+    @Test
+    void finds_all_infixes_with_offsets() {
+
+      final ImmutableInfixMapping<Integer> infixMap =
+          ahoCorasickInfixMapping(
+              newTestMapBuilder().add("he", 0).add("she", 1).add("his", 2).add("hers", 3).map);
+
+      assertEquals(
+          Arrays.asList(
+              Pair.of(1, Pair.of("she", 1)),
+              Pair.of(2, Pair.of("he", 0)),
+              Pair.of(2, Pair.of("hers", 3)),
+              Pair.of(8, Pair.of("his", 2))),
+          infixMap.allKeysAndValuesForInfix("ushers, his"));
+      assertEquals(Collections.emptyList(), infixMap.allKeysAndValuesForInfix("hi"));
+      assertEquals(Collections.emptyList(), infixMap.allKeysAndValuesForInfix(null));
+    }
+
+    @MethodSource(
+        "dev.stiemannkj1.collection.fixmapping.FixMappingsTests$PrefixMappersTests#invalidPrefixes")
+    @ParameterizedTest
+    void throws_illegal_arg_when_provided_invalid_values(final Map<String, Integer> infixes) {
+      assertThrows(IllegalArgumentException.class, () -> ahoCorasickInfixMapping(infixes));
+    }
+  }
+
+  static final class GlobPatternMapTests {
+
+    @CsvSource(
+        value = {
+          "null,null",
+          ",null",
+          "app.min.js,0",
+          "app.min.jsx,null",
+          "/js/app.min.js,null",
+          "/static/,1",
+          "/static/img/logo.png,1",
+          "/static/site.css,4",
+          "/static/css/site.css,1",
+          "/api/orders/v2/items,2",
+          "/api/orders/v2/,2",
+          "/api/users/v2/list,3",
+          "/api/a/b/v2/x,null",
+          "file1.txt,5",
+          "file12.txt,null",
+          "file/.txt,null",
+          "*literal,6",
+          "xliteral,null"
+        },
+        nullValues = "null")
+    @ParameterizedTest
+    void detects_most_specific_patterns(final String string, final Integer expectedValue) {
+
+      final Map<String, Integer> patterns =
+          newTestMapBuilder()
+              .add("*.min.js", 0)
+              .add("/static/**", 1)
+              .add("/api/*/v2/*", 2)
+              .add("/api/users/v2/*", 3)
+              .add("/static/*.css", 4)
+              .add("file?.txt", 5)
+              .add("\\*literal", 6)
+              .map;
+
+      final ImmutablePatternMapping<Integer> patternMap = patternMapping(patterns);
+
+      assertEquals(expectedValue != null, patternMap.matchesAnyPattern(string));
+      assertEquals(expectedValue, patternMap.valueForPattern(string));
+      assertEquals(
+          getKeyAndValueByValue(patterns, expectedValue), patternMap.keyAndValueForPattern(string));
+
+      if (string != null) {
+        assertEquals(expectedValue, patternMap.valueForPattern(new StringBuilder(string)));
+        assertEquals(
+            expectedValue, patternMap.valueForPattern(string.toCharArray(), 0, string.length()));
+      }
+    }
+
+    @Test
+    void takes_one_step_per_char_regardless_of_pattern_count() {
+
+      final Map<String, Integer> patterns =
+          IntStream.range(0, 10_000)
+              .boxed()
+              .collect(Collectors.toMap(i -> "/p" + i + "/*/**.js", i -> i));
+      final FixMappings.FixMapping<Integer> patternMap =
+          (FixMappings.FixMapping<Integer>) patternMapping(patterns);
+
+      for (final String string : Arrays.asList("/p9999/a/b/c.js", "/p123/a/b/c.css", "/q/a.js")) {
+
+        final AtomicLong searchSteps = new AtomicLong();
+        final Pair<String, Integer> keyAndValue =
+            patternMap.getKeyAndValue(true, string, searchSteps);
+
+        if (string.startsWith("/p9999")) {
+          assertEquals(Pair.of("/p9999/*/**.js", 9999), keyAndValue);
+        } else {
+          assertNull(keyAndValue);
+        }
+
+        assertTrue(searchSteps.get() <= string.length());
+      }
+    }
+
+    @Test
+    void matches_more_states_than_are_cached() {
+
+      final Map<String, Integer> patterns =
+          IntStream.range(0, GlobPatternFixMapping.MAX_CACHED_STATES)
+              .boxed()
+              .collect(Collectors.toMap(i -> "/" + i + "/*", i -> i));
+      final ImmutablePatternMapping<Integer> patternMap = patternMapping(patterns);
+
+      IntStream.range(0, GlobPatternFixMapping.MAX_CACHED_STATES)
+          .parallel()
+          .forEach(
+              i -> {
+                assertEquals(i, patternMap.valueForPattern("/" + i + "/index.html"));
+                assertNull(patternMap.valueForPattern("/" + i + "/a/index.html"));
+              });
+    }
+
+    @MethodSource(
+        "dev.stiemannkj1.collection.fixmapping.FixMappingsTests$PrefixMappersTests#invalidPrefixes")
+    @ParameterizedTest
+    void throws_illegal_arg_when_provided_invalid_values(final Map<String, Integer> patterns) {
+      assertThrows(IllegalArgumentException.class, () -> patternMapping(patterns));
+    }
+
+    @Test
+    void throws_illegal_arg_when_provided_invalid_patterns() {
+      assertTrue(patternMatcher("a\\\\").matchesAnyPattern("a\\"));
+      assertThrows(IllegalArgumentException.class, () -> patternMatcher("a\\"));
+      assertThrows(IllegalArgumentException.class, () -> patternMatcher("a**", "a***"));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> patternMapping(Collections.singletonMap("a*", null)));
+    }
+  }
+
+  static final class LimitedCharArrayTrieFixMapperTests {
+
+    @CsvSource({"0,0", "1,1", "2,2", "3,4", "4,4", "5,8", "6,8", "7,8", "8,8", "9,16", "16,16"})
+    @ParameterizedTest
+    void gets_next_power_of_2(final int i, final int expectedPowerOf2) {
+      assertEquals(expectedPowerOf2, LimitedCharArrayTrieFixMapping.nextPowerOf2(i));
+    }
+
+    @CsvSource({
+      "0,0", "1,1", "2,2", "3,2", "4,4", "5,4", "6,4", "7,4", "8,8", "9,8", "16,16", "17,16"
+    })
+    @ParameterizedTest
+    void gets_next_prev_of_2(final int i, final int expectedPowerOf2) {
+      assertEquals(expectedPowerOf2, LimitedCharArrayTrieFixMapping.prevPowerOf2(i));
+    }
+
+    @CsvSource(value = {"@,@,@", "A,`,`", "a,z,z", "\uFFFF,\uFFFF,\uFFFF"})
+    @ParameterizedTest
+    void maps_chars_at_the_end_of_the_range(final char min, final char max, final String prefix) {
+
+      assertTrue(limitedCharArrayTriePrefixMatcher(min, max, prefix).matchesAnyPrefix(prefix));
+      assertFalse(limitedCharArrayTriePrefixMatcher(min, max, prefix).matchesAnyPrefix("1"));
+    }
+
+    @CsvSource({"a,0", "b,0", "c,1", "d,32", "e,64"})
+    @ParameterizedTest
+    void gets_index_from_char(final char char_, final int offset) {
+      assertEquals(char_ - offset, LimitedCharArrayTrieFixMapping.toIndex(char_, offset));
+    }
+  }
+
+  private static final class MapBuilder<K, V> {
+    private final Map<K, V> map = new HashMap<>();
+
+    private MapBuilder<K, V> add(final K key, V value) {
+      map.put(key, value);
+      return this;
+    }
+  }
+
+  private static MapBuilder<String, Integer> newTestMapBuilder() {
+    return new MapBuilder<>();
+  }
+
+  private static Map<String, Integer> toMap(final List<Map.Entry<String, Integer>> entries) {
+    return new AbstractMap<>() {
+      @Override
+      public Set<Map.Entry<String, Integer>> entrySet() {
+        return new AbstractSet<>() {
+          @Override
+          public Iterator<Map.Entry<String, Integer>> iterator() {
+            return entries.iterator();
+          }
 
           @Override
           public int size() {
@@ -567,6 +3269,39 @@ final class FixMappingsTests {
     };
   }
 
+  private static byte[] toBytes(final Integer value) {
+    return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+  }
+
+  private static Integer fromBytes(final ByteBuffer bytes) {
+    return bytes.getInt(0);
+  }
+
+  // Decoding a key for each match would allocate at least a String and a Pair per call.
+  private static void assertMatchesWithoutAllocating(final BooleanSupplier matchesAny) {
+
+    final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    final int matches = 100_000;
+    final long threadId = Thread.currentThread().getId();
+
+    for (int i = 0; i < matches; i++) {
+      assertTrue(matchesAny.getAsBoolean());
+    }
+
+    final long start = threads.getThreadAllocatedBytes(threadId);
+
+    for (int i = 0; i < matches; i++) {
+      if (!matchesAny.getAsBoolean()) {
+        fail("Expected a match.");
+      }
+    }
+
+    assertTrue(threads.getThreadAllocatedBytes(threadId) - start < matches);
+  }
+
   private static <K, V> Pair<K, V> getKeyAndValueByValue(final Map<K, V> map, final V value) {
     return map.entrySet().stream()
         .filter(entry -> Objects.equals(entry.getValue(), value))
@@ -0,0 +1,294 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import static dev.stiemannkj1.collection.fixmapping.IpPrefixMappings.ipPrefixMapping;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dev.stiemannkj1.collection.fixmapping.IpPrefixMappings.ImmutableIpPrefixMapping;
+import dev.stiemannkj1.util.Pair;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+final class IpPrefixMappingsTests {
+
+  private static final Map<String, Integer> PREFIXES = new HashMap<>();
+
+  static {
+    PREFIXES.put("0.0.0.0/0", 0);
+    PREFIXES.put("10.0.0.0/8", 1);
+    PREFIXES.put("10.1.0.0/16", 2);
+    PREFIXES.put("10.1.2.0/24", 3);
+    PREFIXES.put("10.1.2.3", 4);
+    PREFIXES.put("10.1.2.128/25", 5);
+    PREFIXES.put("192.168.0.0/17", 6);
+    PREFIXES.put("2001:db8::/32", 7);
+    PREFIXES.put("2001:db8:1::/48", 8);
+    PREFIXES.put("2001:db8:1:0:0:0:0:1/128", 9);
+    PREFIXES.put("::ffff:10.9.0.0/112", 10);
+  }
+
+  @CsvSource(
+      value = {
+        "10.1.2.3,10.1.2.3",
+        "10.1.2.4,10.1.2.0/24",
+        "10.1.2.255,10.1.2.128/25",
+        "10.1.3.0,10.1.0.0/16",
+        "10.2.0.0,10.0.0.0/8",
+        "192.168.127.255,192.168.0.0/17",
+        "192.168.128.0,0.0.0.0/0",
+        "255.255.255.255,0.0.0.0/0",
+        "2001:db8:1::1,2001:db8:1:0:0:0:0:1/128",
+        "2001:db8:1::2,2001:db8:1::/48",
+        "2001:db8:2::,2001:db8::/32",
+        "2001:db9::,null",
+        "::,null",
+        "::ffff:10.9.0.1,::ffff:10.9.0.0/112",
+        "::ffff:10.2.0.0,10.0.0.0/8",
+      },
+      nullValues = "null")
+  @ParameterizedTest
+  void finds_longest_prefixes(final String address, final String expectedKey)
+      throws UnknownHostException {
+
+    final ImmutableIpPrefixMapping<Integer> ipPrefixMap = ipPrefixMapping(PREFIXES);
+    final Pair<String, Integer> expected =
+        expectedKey == null ? null : Pair.of(expectedKey, PREFIXES.get(expectedKey));
+    final byte[] bytes = InetAddress.getByName(address).getAddress();
+
+    assertEquals(expected, ipPrefixMap.keyAndValueForAddress(bytes));
+    assertEquals(expected, ipPrefixMap.keyAndValueForAddress(InetAddress.getByAddress(bytes)));
+    assertEquals(expected == null ? null : expected.second, ipPrefixMap.valueForAddress(bytes));
+
+    if (bytes.length == 4) {
+      assertEquals(expected, ipPrefixMap.keyAndValueForIpv4(toInt(bytes)));
+    } else {
+      assertEquals(expected, ipPrefixMap.keyAndValueForIpv6(toLong(bytes, 0), toLong(bytes, 8)));
+    }
+  }
+
+  @Test
+  void finds_ipv4_mapped_prefixes_and_ipv4_prefixes_for_the_same_addresses()
+      throws UnknownHostException {
+
+    final ImmutableIpPrefixMapping<Integer> ipPrefixMap = ipPrefixMapping(PREFIXES);
+    final Pair<String, Integer> mapped = Pair.of("::ffff:10.9.0.0/112", 10);
+
+    assertEquals(mapped, ipPrefixMap.keyAndValueForIpv6(0, 0xFFFF0A090001L));
+    assertEquals(mapped, ipPrefixMap.keyAndValueForIpv4(0x0A090001));
+    assertEquals(mapped, ipPrefixMap.keyAndValueForAddress(InetAddress.getByName("10.9.0.1")));
+    assertEquals(Pair.of("10.0.0.0/8", 1), ipPrefixMap.keyAndValueForIpv6(0, 0xFFFF0A000001L));
+
+    final Map<String, Integer> ipv6Prefixes = new HashMap<>();
+    ipv6Prefixes.put("::/0", 0);
+    ipv6Prefixes.put("::ffff:0:0/96", 1);
+    final ImmutableIpPrefixMapping<Integer> ipv6PrefixMap = ipPrefixMapping(ipv6Prefixes);
+
+    assertEquals(Pair.of("::ffff:0:0/96", 1), ipv6PrefixMap.keyAndValueForIpv4(0x0A000001));
+    assertEquals(
+        Pair.of("::ffff:0:0/96", 1),
+        ipv6PrefixMap.keyAndValueForAddress(InetAddress.getByName("::ffff:10.0.0.1")));
+    assertEquals(Pair.of("::/0", 0), ipv6PrefixMap.keyAndValueForIpv6(0, 0xFFFE0A000001L));
+
+    ipv6Prefixes.remove("::ffff:0:0/96");
+    assertEquals(Pair.of("::/0", 0), ipPrefixMapping(ipv6Prefixes).keyAndValueForIpv4(0x0A000001));
+  }
+
+  @Test
+  void finds_the_same_prefixes_as_a_linear_search() {
+
+    final Random random = new Random(0);
+    final Map<String, Integer> prefixes = new HashMap<>();
+    final List<int[]> ipv4Prefixes = new ArrayList<>();
+    final List<long[]> ipv6Prefixes = new ArrayList<>();
+
+    while (prefixes.size() < 20_000) {
+
+      if (random.nextBoolean()) {
+
+        final int length = random.nextInt(33);
+        final int address = random.nextInt() & (int) (0xFFFFFFFF00000000L >>> length);
+        final String key = toIpv4String(address) + "/" + length;
+
+        if (prefixes.putIfAbsent(key, prefixes.size()) == null) {
+          ipv4Prefixes.add(new int[] {address, length, prefixes.get(key)});
+        }
+      } else {
+
+        final int length = random.nextInt(129);
+        // Few distinct high bits keep the prefixes nested.
+        final long high =
+            ((long) random.nextInt(4) << 62 | random.nextLong() >>> 40) & mask(length);
+        final long low = random.nextLong() & mask(length - 64);
+        final String key = toIpv6String(high, low) + "/" + length;
+
+        if (prefixes.putIfAbsent(key, prefixes.size()) == null) {
+          ipv6Prefixes.add(new long[] {high, low, length, prefixes.get(key)});
+        }
+      }
+    }
+
+    final ImmutableIpPrefixMapping<Integer> ipPrefixMap = ipPrefixMapping(prefixes);
+
+    for (int i = 0; i < 20_000; i++) {
+
+      final int[] ipv4Prefix = ipv4Prefixes.get(random.nextInt(ipv4Prefixes.size()));
+      final int ipv4Address =
+          ipv4Prefix[0] | (random.nextInt() & (int) (0xFFFFFFFFL >>> ipv4Prefix[1]));
+      Integer expectedValue = null;
+      int expectedLength = -1;
+
+      for (final int[] prefix : ipv4Prefixes) {
+
+        final int prefixMask = (int) (0xFFFFFFFF00000000L >>> prefix[1]);
+
+        if ((ipv4Address & prefixMask) == prefix[0] && prefix[1] > expectedLength) {
+          expectedValue = prefix[2];
+          expectedLength = prefix[1];
+        }
+      }
+
+      assertEquals(expectedValue, ipPrefixMap.valueForIpv4(ipv4Address));
+
+      final long[] ipv6Prefix = ipv6Prefixes.get(random.nextInt(ipv6Prefixes.size()));
+      final long high = ipv6Prefix[0] | (random.nextLong() & ~mask((int) ipv6Prefix[2]));
+      final long low = ipv6Prefix[1] | (random.nextLong() & ~mask((int) ipv6Prefix[2] - 64));
+      expectedValue = null;
+      expectedLength = -1;
+
+      for (final long[] prefix : ipv6Prefixes) {
+
+        final int length = (int) prefix[2];
+
+        if ((high & mask(length)) == prefix[0]
+            && (low & mask(length - 64)) == prefix[1]
+            && length > expectedLength) {
+          expectedValue = (int) prefix[3];
+          expectedLength = length;
+        }
+      }
+
+      assertEquals(expectedValue, ipPrefixMap.valueForIpv6(high, low));
+    }
+  }
+
+  @CsvSource(
+      value = {
+        "''",
+        "10.0.0.0/33",
+        "10.0.0.0/",
+        "10.0.0.0/-1",
+        "10.0.0/8",
+        "10.0.0.256/32",
+        "10.0.0.1/8",
+        "10..0.0/8",
+        "localhost",
+        "2001:db8::/129",
+        "2001:db8::1/32",
+        "2001:db8::g/32",
+        "fe80::1%1/128"
+      })
+  @ParameterizedTest
+  void throws_illegal_arg_when_provided_invalid_prefixes(final String prefix) {
+    assertThrows(
+        IllegalArgumentException.class, () -> ipPrefixMapping(Collections.singletonMap(prefix, 0)));
+  }
+
+  @Test
+  void throws_illegal_arg_when_provided_invalid_values() {
+
+    final Map<String, Integer> duplicatePrefixes = new HashMap<>();
+    duplicatePrefixes.put("10.0.0.0/8", 0);
+    duplicatePrefixes.put("010.0.0.0/8", 1);
+
+    assertThrows(IllegalArgumentException.class, () -> ipPrefixMapping(duplicatePrefixes));
+
+    duplicatePrefixes.remove("010.0.0.0/8");
+    duplicatePrefixes.put("::ffff:10.0.0.0/104", 1);
+
+    assertThrows(IllegalArgumentException.class, () -> ipPrefixMapping(duplicatePrefixes));
+    assertThrows(IllegalArgumentException.class, () -> ipPrefixMapping(Collections.emptyMap()));
+    assertThrows(
+        IllegalArgumentException.class, () -> ipPrefixMapping(Collections.singletonMap(null, 0)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> ipPrefixMapping(PREFIXES).valueForAddress(new byte[5]));
+    assertNull(ipPrefixMapping(PREFIXES).valueForAddress((byte[]) null));
+  }
+
+  private static long mask(final int length) {
+
+    if (length <= 0) {
+      return 0;
+    }
+
+    return length >= Long.SIZE ? -1 : -1L << (Long.SIZE - length);
+  }
+
+  private static int toInt(final byte[] bytes) {
+    return (int) toLong(bytes, 0);
+  }
+
+  private static long toLong(final byte[] bytes, final int start) {
+
+    long value = 0;
+
+    for (int i = start; i < Math.min(bytes.length, start + 8); i++) {
+      value = (value << 8) | (bytes[i] & 0xFF);
+    }
+
+    return value;
+  }
+
+  private static String toIpv4String(final int address) {
+    return (address >>> 24)
+        + "."
+        + (address >>> 16 & 0xFF)
+        + "."
+        + (address >>> 8 & 0xFF)
+        + "."
+        + (address & 0xFF);
+  }
+
+  private static String toIpv6String(final long high, final long low) {
+
+    final StringBuilder string = new StringBuilder();
+
+    for (int i = 0; i < 8; i++) {
+
+      final long word = i < 4 ? high : low;
+
+      if (i > 0) {
+        string.append(':');
+      }
+
+      string.append(Long.toHexString(word >>> (48 - (i % 4) * 16) & 0xFFFF));
+    }
+
+    return string.toString();
+  }
+}
@@ -0,0 +1,256 @@
+/*
+  Copyright 2026 Kyle J. Stiemann
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package dev.stiemannkj1.collection.fixmapping;
+
+import static dev.stiemannkj1.collection.fixmapping.PathRouters.pathRouter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dev.stiemannkj1.collection.fixmapping.PathRouters.ImmutablePathRouter;
+import dev.stiemannkj1.collection.fixmapping.PathRouters.PathMatch;
+import dev.stiemannkj1.util.Pair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+final class PathRoutersTests {
+
+  private static final Map<String, Integer> ROUTES = new HashMap<>();
+
+  static {
+    ROUTES.put("/", 0);
+    ROUTES.put("/api/users", 1);
+    ROUTES.put("/api/users/{id}", 2);
+    ROUTES.put("/api/users/me", 3);
+    ROUTES.put("/api/users/{id}/posts/{post}", 4);
+    ROUTES.put("/api/users/me/posts/latest", 5);
+    ROUTES.put("/api/usersettings", 6);
+    ROUTES.put("/files/*", 7);
+    ROUTES.put("/files/public/{name}", 8);
+    ROUTES.put("/api/", 9);
+  }
+
+  @CsvSource(
+      value = {
+        "/,/,''",
+        "/api/users,/api/users,''",
+        "/api/usersettings,/api/usersettings,''",
+        "/api/users/42,/api/users/{id},id=42",
+        "/api/users/me,/api/users/me,''",
+        "/api/users/me/posts/7,/api/users/{id}/posts/{post},id=me post=7",
+        "/api/users/me/posts/latest,/api/users/me/posts/latest,''",
+        "/api/users/42/posts/latest,/api/users/{id}/posts/{post},id=42 post=latest",
+        "/api/,/api/,''",
+        "/files/,/files/*,*=",
+        "/files/a/b/c.txt,/files/*,*=a/b/c.txt",
+        "/files/public/a.txt,/files/public/{name},name=a.txt",
+        "/files/public/a/b.txt,/files/*,*=public/a/b.txt",
+        "/files/public/,/files/*,*=public/",
+        "/api/user,null,''",
+        "/api/userss,null,''",
+        "/api/users/,null,''",
+        "/api/users//posts/7,null,''",
+        "/api/users/42/posts,null,''",
+        "/files,null,''",
+        "/api,null,''",
+        "api/users,null,''",
+        "'',null,''",
+      },
+      nullValues = "null")
+  @ParameterizedTest
+  void routes_paths_by_segment(
+      final String path, final String expectedKey, final String expectedParameters) {
+
+    final ImmutablePathRouter<Integer> router = pathRouter(ROUTES);
+    final Pair<String, Integer> expected =
+        expectedKey == null ? null : Pair.of(expectedKey, ROUTES.get(expectedKey));
+
+    assertEquals(expected, router.keyAndValueFor(path, null));
+    assertEquals(expected == null ? null : expected.second, router.valueFor(path));
+
+    // Query strings and surrounding chars can be skipped without copying the path.
+    final String request = "GET " + path + "?q=1 HTTP/1.1";
+    final int[] parameterBounds = new int[router.maxParameterCount() * 2];
+    assertEquals(expected, router.keyAndValueFor(request, 4, 4 + path.length(), parameterBounds));
+
+    final PathMatch<Integer> match = router.match(path);
+
+    if (expected == null) {
+      assertNull(match);
+      return;
+    }
+
+    assertEquals(expected, match.keyAndValue());
+    assertEquals(expectedKey, match.key());
+    assertEquals(expected.second, match.value());
+
+    final StringBuilder parameters = new StringBuilder();
+
+    for (int i = 0; i < match.parameterCount(); i++) {
+
+      if (i > 0) {
+        parameters.append(' ');
+      }
+
+      final String name = match.parameterName(i);
+      parameters.append(name).append('=').append(match.parameter(name));
+      assertEquals(match.parameterStart(i) + 4, parameterBounds[i * 2]);
+      assertEquals(match.parameterEnd(i) + 4, parameterBounds[i * 2 + 1]);
+      assertEquals(
+          match.parameter(name).toString(),
+          path.substring(match.parameterStart(i), match.parameterEnd(i)));
+    }
+
+    assertEquals(expectedParameters, parameters.toString());
+  }
+
+  @Test
+  void routes_deep_paths_independently_of_the_route_count() {
+
+    final Map<String, Integer> routes = new HashMap<>();
+
+    for (int i = 0; i < 10_000; i++) {
+      routes.put("/static/" + i + "/{id}/" + (i % 7), i);
+    }
+
+    routes.put("/{a}/{b}/{c}/{d}", -1);
+
+    final ImmutablePathRouter<Integer> router = pathRouter(routes);
+
+    for (int i = 0; i < 10_000; i++) {
+      assertEquals(i, router.valueFor("/static/" + i + "/x/" + (i % 7)));
+    }
+
+    assertEquals(-1, router.valueFor("/static/1/x/2"));
+    assertEquals(4, router.maxParameterCount());
+
+    // The static route fails at its last segment, so the match backtracks to the parameters.
+    final PathMatch<Integer> match = router.match("/static/1/x/2");
+    assertEquals("static", match.parameter("a").toString());
+    assertEquals("1", match.parameter("b").toString());
+    assertEquals("x", match.parameter("c").toString());
+    assertEquals("2", match.parameter("d").toString());
+  }
+
+  @Test
+  void visits_one_node_per_segment_without_overlapping_routes() {
+
+    final List<PathRouteTrie.Route> routes = new ArrayList<>();
+
+    for (int i = 0; i < 10_000; i++) {
+      routes.add(new PathRouteTrie.Route(new String[] {"static", "" + i, null, "end"}, i + 1));
+    }
+
+    final PathRouteTrie trie = new PathRouteTrie(routes);
+    final AtomicLong searchSteps = new AtomicLong();
+
+    assertEquals(5_001, trie.route("/static/5000/x/end", 0, 18, null, searchSteps));
+    assertEquals(4, searchSteps.get());
+
+    searchSteps.set(0);
+    assertEquals(
+        PathRouteTrie.NO_ROUTE, trie.route("/static/5000/x/miss", 0, 19, null, searchSteps));
+    assertEquals(4, searchSteps.get());
+  }
+
+  @Test
+  void visits_every_overlapping_node_on_a_miss() {
+
+    final int depth = 10;
+    final List<PathRouteTrie.Route> routes = new ArrayList<>();
+
+    // Every combination of static and parameter segments, so each level doubles the nodes which
+    // match the path.
+    for (int i = 0; i < 1 << depth; i++) {
+
+      final String[] segments = new String[depth + 1];
+
+      for (int j = 0; j < depth; j++) {
+        segments[j] = (i & (1 << j)) == 0 ? "a" : null;
+      }
+
+      segments[depth] = "end";
+      routes.add(new PathRouteTrie.Route(segments, i + 1));
+    }
+
+    final PathRouteTrie trie = new PathRouteTrie(routes);
+    final StringBuilder path = new StringBuilder();
+
+    for (int i = 0; i < depth; i++) {
+      path.append("/a");
+    }
+
+    final AtomicLong searchSteps = new AtomicLong();
+    final String hit = path + "/end";
+
+    // Static segments win, so a hit takes the all static route without backtracking.
+    assertEquals(1, trie.route(hit, 0, hit.length(), null, searchSteps));
+    assertEquals(depth + 1, searchSteps.get());
+
+    searchSteps.set(0);
+    final String miss = path + "/miss";
+
+    assertEquals(PathRouteTrie.NO_ROUTE, trie.route(miss, 0, miss.length(), null, searchSteps));
+    assertEquals((1 << (depth + 1)) - 1, searchSteps.get());
+  }
+
+  @CsvSource(
+      value = {
+        "''",
+        "api",
+        "/{}",
+        "/{id",
+        "/id}",
+        "/a{id}",
+        "/{id}/{id}",
+        "/{i*d}",
+        "/*/a",
+        "/{a{b}}",
+      })
+  @ParameterizedTest
+  void throws_illegal_arg_when_provided_invalid_routes(final String route) {
+    assertThrows(
+        IllegalArgumentException.class, () -> pathRouter(Collections.singletonMap(route, 0)));
+  }
+
+  @Test
+  void throws_illegal_arg_when_provided_invalid_values() {
+
+    final Map<String, Integer> duplicateRoutes = new HashMap<>();
+    duplicateRoutes.put("/users/{id}", 0);
+    duplicateRoutes.put("/users/{name}", 1);
+
+    assertThrows(IllegalArgumentException.class, () -> pathRouter(duplicateRoutes));
+    assertThrows(IllegalArgumentException.class, () -> pathRouter(Collections.emptyMap()));
+    assertThrows(
+        IllegalArgumentException.class, () -> pathRouter(Collections.singletonMap(null, 0)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> pathRouter(ROUTES).keyAndValueFor("/api/users/1", new int[1]));
+    assertThrows(
+        IndexOutOfBoundsException.class,
+        () -> pathRouter(ROUTES).keyAndValueFor("/api", 2, 5, null));
+    assertNull(pathRouter(ROUTES).valueFor(null));
+    assertNull(pathRouter(ROUTES).match(null));
+  }
+}